@@ -0,0 +1,90 @@
+package codes.sf.springboot.grpc.client.context;
+
+import codes.sf.springboot.grpc.client.stubpostprocess.GrpcStubPostProcessorPipeline;
+import io.grpc.Channel;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterGrpc.GreeterBlockingStub;
+import io.grpc.stub.AbstractStub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.MethodInvoker;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per-creation cost of a gRPC stub through {@link GrpcStubFactoryBean},
+ * with the build-time generated {@link GrpcStubFactories} and with the
+ * factory method's handle, compared with looking up the factory method
+ * reflectively on every creation.
+ *
+ * <p>Run with {@code ./gradlew jmh}.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrpcStubFactoryBeanBenchmark {
+
+    private ManagedChannel channel;
+    private GrpcStubFactoryBean<GreeterBlockingStub> generatedFactoryBean;
+    private GrpcStubFactoryBean<GreeterBlockingStub> methodHandleFactoryBean;
+
+    @Setup
+    public void setup() {
+        channel = ManagedChannelBuilder.forTarget("localhost:1").usePlaintext().build();
+
+        generatedFactoryBean = factoryBean(GrpcStubFactoryBean.factory(GreeterGrpc.class, GreeterBlockingStub.class));
+        methodHandleFactoryBean = factoryBean(GrpcStubFactoryBean.factory(
+                GrpcStubFactoryBean.factoryMethod(GreeterGrpc.class, GreeterBlockingStub.class), GreeterBlockingStub.class));
+    }
+
+    private GrpcStubFactoryBean<GreeterBlockingStub> factoryBean(Function<Channel, AbstractStub<?>> factory) {
+        GrpcStubFactoryBean<GreeterBlockingStub> factoryBean = new GrpcStubFactoryBean<>(GreeterBlockingStub.class, factory, false);
+        factoryBean.setChannelSource(stubClass -> channel);
+        factoryBean.setPostProcessorPipeline(new GrpcStubPostProcessorPipeline(Collections.emptyList()));
+        return factoryBean;
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.shutdownNow();
+    }
+
+    @Benchmark
+    public Object generatedFactory() throws Exception {
+        return generatedFactoryBean.getObject();
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Exception {
+        return methodHandleFactoryBean.getObject();
+    }
+
+    // How stubs were created before the factory method was cached
+    @Benchmark
+    public Object methodInvoker() throws Exception {
+        MethodInvoker methodInvoker = new MethodInvoker();
+        methodInvoker.setStaticMethod(GreeterGrpc.class.getName() + ".newBlockingStub");
+        methodInvoker.setArguments(channel);
+        methodInvoker.prepare();
+        return methodInvoker.invoke();
+    }
+}
@@ -31,10 +31,19 @@ import io.grpc.stub.AbstractStub;
  * with target from environment property {@code grpc.client.target};
  * </li>
  * <li>
+ * if no property is found but a gRPC server library in the same application
+ * has set environment property {@code grpc.inProcessServerName}, it will
+ * configure a new in-process channel to that server;
+ * </li>
+ * <li>
  * finally if no property is found, it will default to creating a new
  * plaintext channel bean with target "{@code localhost:6565}"
  * </li>
  * </ul>
+ * The channel above is used as the default one; stubs mapped to a named channel
+ * with environment properties {@code grpc.client.channels.<name>.*} will
+ * instead use that {@linkplain codes.sf.springboot.grpc.client.channel.GrpcChannelRegistry
+ * named channel}.
  *
  * <p>If you're creating a GrpcChannelSource that returns a constant channel,
  * consider using convenience function {@link #of(Channel) GrpcChannelSource.of(Channel)}
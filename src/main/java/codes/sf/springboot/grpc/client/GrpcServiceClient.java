@@ -0,0 +1,81 @@
+package codes.sf.springboot.grpc.client;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.AbstractStub;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+
+/**
+ * Base class of clients calling the methods of a gRPC service by their
+ * {@link MethodDescriptor}, such as
+ * {@link codes.sf.springboot.grpc.client.reactor.ReactorGrpcClient} and
+ * {@link codes.sf.springboot.grpc.client.future.CompletableFutureGrpcClient}.
+ *
+ * <p>The {@linkplain codes.sf.springboot.grpc.client.context.GrpcStubScanner
+ * stub scanner} registers the clients of every scanned service as beans,
+ * typed by the service's generated class, e.g.
+ * {@code ReactorGrpcClient<GreeterGrpc>}. Unlike the stubs generated by the
+ * annotation processor, they need no build step. A client calls on the
+ * channel and with the call options of the service's stub bean, so it uses
+ * the same channel and stub post processors.
+ *
+ * @param <S> the generated class of the service, e.g. {@code GreeterGrpc}
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public abstract class GrpcServiceClient<S> {
+
+    private static final String SERVICE_NAME_FIELD = "SERVICE_NAME";
+
+    private final AbstractStub<?> stub;
+    private final String serviceName;
+
+    /**
+     * Create new service client.
+     *
+     * @param stub a stub of the service, providing the channel and call options
+     */
+    protected GrpcServiceClient(AbstractStub<?> stub) {
+        Assert.notNull(stub, "Stub must not be null");
+
+        Class<?> serviceClass = stub.getClass().getEnclosingClass();
+        Field serviceNameField = (serviceClass != null)
+                ? ReflectionUtils.findField(serviceClass, SERVICE_NAME_FIELD, String.class) : null;
+        Assert.notNull(serviceNameField, "gRPC stub type " + stub.getClass().getName()
+                + " is not nested in a generated service class");
+
+        this.stub = stub;
+        this.serviceName = (String) ReflectionUtils.getField(serviceNameField, null);
+    }
+
+    /**
+     * @return the stub whose channel and call options the calls use
+     */
+    public AbstractStub<?> getStub() {
+        return stub;
+    }
+
+    /**
+     * @return the full name of the service
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Check that a method belongs to the service and is of the given type.
+     *
+     * @param method the method to call
+     * @param type   the type the call requires
+     * @throws IllegalArgumentException if the method is of another service or type
+     */
+    protected void checkMethod(MethodDescriptor<?, ?> method, MethodDescriptor.MethodType type) {
+        Assert.notNull(method, "Method must not be null");
+        Assert.isTrue(serviceName.equals(MethodDescriptor.extractFullServiceName(method.getFullMethodName())),
+                () -> "Method " + method.getFullMethodName() + " is not a method of service " + serviceName);
+        Assert.isTrue(method.getType() == type,
+                () -> "Method " + method.getFullMethodName() + " is " + method.getType() + ", not " + type);
+    }
+}
@@ -105,4 +105,15 @@ public @interface GrpcStubScan {
      * @return pattern of gRPC classes stubs
      */
     String resourcePattern() default "**/*.class"; // Copied from ClassPathScanningCandidateComponentProvider.DEFAULT_RESOURCE_PATTERN;
+
+    /**
+     * Specify whether detected gRPC stubs should be registered for lazy
+     * initialization.
+     * <p>Lazy stubs are only created when first requested, and resolve their
+     * channel on their first call. Same as property
+     * {@code grpc.client.lazyStubs}.
+     *
+     * @return whether gRPC stubs are lazily initialized
+     */
+    boolean lazyInit() default false;
 }
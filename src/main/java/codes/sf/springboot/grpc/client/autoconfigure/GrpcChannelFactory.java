@@ -0,0 +1,559 @@
+package codes.sf.springboot.grpc.client.autoconfigure;
+
+import codes.sf.springboot.grpc.client.channel.CompositeNameResolverFactory;
+import codes.sf.springboot.grpc.client.channel.FileNameResolverProvider;
+import codes.sf.springboot.grpc.client.channel.HedgingInterceptor;
+import codes.sf.springboot.grpc.client.channel.OutstandingCallsInterceptor;
+import codes.sf.springboot.grpc.client.channel.PeriodicRefreshNameResolverFactory;
+import codes.sf.springboot.grpc.client.channel.PooledChannel;
+import codes.sf.springboot.grpc.client.channel.RetryAttemptsInterceptor;
+import codes.sf.springboot.grpc.client.channel.ServiceConfigNameResolverFactory;
+import codes.sf.springboot.grpc.client.channel.StaticNameResolverProvider;
+import codes.sf.springboot.grpc.client.executor.VirtualThreads;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.LoadBalancer;
+import io.grpc.ManagedChannel;
+import io.grpc.NameResolver;
+import io.grpc.PickFirstBalancerFactory;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.netty.InternalNettyChannelBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.util.RoundRobinLoadBalancerFactory;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.ClassUtils;
+
+import java.math.BigDecimal;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory for the {@linkplain ManagedChannel channels} created by auto
+ * configuration.
+ *
+ * <p>All channels created by this factory share a single Netty
+ * {@link EventLoopGroup}, using the native epoll transport when it's
+ * available, and are configured from {@link GrpcClientProperties}. The
+ * factory owns the event loop group and the channels it creates.
+ *
+ * <p>Besides the name resolvers registered with gRPC, such as DNS, targets
+ * of the form {@code static:///host1:port1,host2:port2} resolve to a
+ * {@linkplain StaticNameResolverProvider static list of addresses}, and
+ * targets of the form {@code file:///path} to the addresses
+ * {@linkplain FileNameResolverProvider listed in a watched file}.
+ * Targets of the form {@code unix:///path} create a channel over the
+ * Unix domain socket at that path, which requires the epoll transport.
+ * Targets of the form {@code in-process:<name>} create an
+ * {@linkplain InProcessChannelBuilder in-process} channel to the
+ * in-process server of that name, bypassing the network entirely.
+ *
+ * <p>Retry policies configured with {@code grpc.client.retry} are turned
+ * into a service config, which the name resolvers supply to channels with
+ * network targets. Hedging policies configured with
+ * {@code grpc.client.hedging} are applied by a {@link HedgingInterceptor}
+ * on those channels. The attempts made under either are counted, see
+ * {@link #getRetriedAttempts()} and {@link #getHedgedAttempts()}.
+ *
+ * <p>When {@code grpc.client.executor} is {@code virtual}, the factory
+ * owns an executor that runs the call callbacks of its channels on virtual
+ * threads, and when it's {@code direct}, callbacks run on the event loop,
+ * see {@link #getExecutor()}.
+ *
+ * <p>When the factory is destroyed, it stops its channels from accepting
+ * new calls and waits up to {@code grpc.client.drainTimeout} for the
+ * outstanding calls to complete, before forcefully shutting them down.
+ *
+ * <p>Auto configuration registers this factory as a bean, so custom
+ * {@link codes.sf.springboot.grpc.client.GrpcChannelSource GrpcChannelSource}
+ * implementations may use it to create channels with the same settings.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class GrpcChannelFactory implements DisposableBean {
+
+    /**
+     * Target prefix for in-process channels, e.g. {@code in-process:my-server}.
+     */
+    public static final String IN_PROCESS_TARGET_PREFIX = "in-process:";
+
+    /**
+     * Target prefix for Unix domain socket channels, e.g. {@code unix:///var/run/envoy.sock}.
+     */
+    public static final String DOMAIN_SOCKET_TARGET_PREFIX = "unix:";
+
+    // Domain socket addresses have no meaningful authority of their own
+    private static final String DOMAIN_SOCKET_AUTHORITY = "localhost";
+
+    private static final Log logger = LogFactory.getLog(GrpcChannelFactory.class);
+
+    private static final long DRAIN_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SHUTDOWN_NOW_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final boolean EPOLL_PRESENT = ClassUtils.isPresent(
+            "io.netty.channel.epoll.Epoll", GrpcChannelFactory.class.getClassLoader());
+
+    private final GrpcClientProperties properties;
+    private final List<ManagedChannel> channels = new CopyOnWriteArrayList<>();
+    private final Map<ManagedChannel, OutstandingCallsInterceptor> outstandingCalls = new ConcurrentHashMap<>();
+    private final Map<String, Object> serviceConfig;
+    private final RetryAttemptsInterceptor retryAttempts;
+    private final Executor executor;
+    private HedgingInterceptor hedgingInterceptor;
+
+    private EventLoopGroup eventLoopGroup;
+    private Class<? extends io.netty.channel.Channel> channelType;
+    private EventLoopGroup domainSocketEventLoopGroup;
+    private NameResolver.Factory nameResolverFactory;
+
+    public GrpcChannelFactory(GrpcClientProperties properties) {
+        this.properties = properties;
+
+        properties.getRetry().keySet().forEach(name -> {
+            if (properties.getHedging().containsKey(name))
+                throw new IllegalArgumentException("gRPC " + name + " can't have both a retry and a hedging policy");
+        });
+
+        this.serviceConfig = !properties.getRetry().isEmpty() ? serviceConfig(properties) : null;
+        this.retryAttempts = (!properties.getRetry().isEmpty() || !properties.getHedging().isEmpty())
+                ? new RetryAttemptsInterceptor(properties.getHedging().keySet()) : null;
+
+        if (properties.isSpringexecutor() && properties.getExecutor() != GrpcClientProperties.ExecutorType.DEFAULT)
+            throw new IllegalArgumentException("Properties " + GrpcClientProperties.PREFIX + ".springexecutor and "
+                    + GrpcClientProperties.PREFIX + ".executor can't both be set");
+        this.executor = executor(properties.getExecutor());
+    }
+
+    /**
+     * Create a new channel for target.
+     *
+     * @param target the target address
+     * @return newly created channel, pooled if so configured
+     */
+    public ManagedChannel createChannel(String target) {
+        GrpcClientProperties.Pool pool = properties.getPool();
+        OutstandingCallsInterceptor callCounter = new OutstandingCallsInterceptor();
+
+        // In-process calls don't use connections, so there's nothing to pool
+        ManagedChannel channel = (pool.getMaxSize() <= 1 || isInProcess(target)) ?
+                buildChannel(target, callCounter)
+                : new PooledChannel(() -> buildChannel(target, callCounter),
+                pool.getMinSize(), pool.getMaxSize(), pool.getScaleUpThreshold(), pool.getScaleDownThreshold());
+
+        channels.add(channel);
+        outstandingCalls.put(channel, callCounter);
+        return channel;
+    }
+
+    /**
+     * Return the number of calls on the channels created by this factory
+     * that have been started but have not yet completed.
+     *
+     * @return the number of outstanding calls
+     */
+    public int getOutstandingCalls() {
+        int total = 0;
+        for (OutstandingCallsInterceptor callCounter : outstandingCalls.values())
+            total += callCounter.getOutstandingCalls();
+        return total;
+    }
+
+    /**
+     * Return the channels created by this factory.
+     *
+     * @return unmodifiable list of channels, in creation order
+     */
+    public List<ManagedChannel> getChannels() {
+        return Collections.unmodifiableList(channels);
+    }
+
+    /**
+     * Return the number of attempts made to retry failed calls on the
+     * channels created by this factory.
+     *
+     * @return the number of retried attempts
+     */
+    public long getRetriedAttempts() {
+        return (retryAttempts != null) ? retryAttempts.getRetriedAttempts() : 0;
+    }
+
+    /**
+     * Return the number of hedged attempts made on the channels created by
+     * this factory.
+     *
+     * @return the number of hedged attempts
+     */
+    public long getHedgedAttempts() {
+        return (retryAttempts != null) ? retryAttempts.getHedgedAttempts() : 0;
+    }
+
+    /**
+     * Return the executor that runs the call callbacks of the channels
+     * created by this factory, as configured by {@code grpc.client.executor}.
+     *
+     * @return the executor, or null for gRPC's default executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Return the scheduler for the timers of interceptors on the channels
+     * created by this factory, or on their stubs. It's the factory's shared
+     * event loop group, so its tasks must never block.
+     *
+     * @return the scheduler, shut down along with the factory
+     */
+    public ScheduledExecutorService getScheduler() {
+        return getEventLoopGroup();
+    }
+
+    private static Executor executor(GrpcClientProperties.ExecutorType type) {
+        switch (type) {
+            case VIRTUAL:
+                return VirtualThreads.newVirtualThreadPerTaskExecutor("grpc-client-virtual-");
+            case DIRECT:
+                return MoreExecutors.directExecutor();
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isInProcess(String target) {
+        return target.startsWith(IN_PROCESS_TARGET_PREFIX);
+    }
+
+    private static boolean isDomainSocket(String target) {
+        return target.startsWith(DOMAIN_SOCKET_TARGET_PREFIX);
+    }
+
+    // Accepts both unix:path and unix:///absolute/path
+    private static String domainSocketPath(String target) {
+        String path = target.substring(DOMAIN_SOCKET_TARGET_PREFIX.length());
+        return path.startsWith("//") ? path.substring(2) : path;
+    }
+
+    private ManagedChannel buildChannel(String target, OutstandingCallsInterceptor callCounter) {
+        if (isInProcess(target)) {
+            InProcessChannelBuilder builder = InProcessChannelBuilder
+                    .forName(target.substring(IN_PROCESS_TARGET_PREFIX.length()))
+                    .intercept(callCounter);
+            if (executor != null)
+                builder.executor(executor);
+            return builder.build();
+        }
+
+        NettyChannelBuilder builder;
+        if (isDomainSocket(target)) {
+            builder = NettyChannelBuilder
+                    .forAddress(Epoll.domainSocketAddress(domainSocketPath(target)))
+                    .eventLoopGroup(getDomainSocketEventLoopGroup())
+                    .channelType(Epoll.domainSocketChannelType())
+                    .overrideAuthority(DOMAIN_SOCKET_AUTHORITY);
+        } else {
+            builder = NettyChannelBuilder
+                    .forTarget(target)
+                    .eventLoopGroup(getEventLoopGroup())
+                    .channelType(channelType)
+                    .nameResolverFactory(getNameResolverFactory());
+
+            if (properties.getLoadBalancingPolicy() != null)
+                builder.loadBalancerFactory(loadBalancerFactory(properties.getLoadBalancingPolicy()));
+
+            // Retries need a service config, which only name resolvers supply
+            if (serviceConfig != null) {
+                builder.enableRetry();
+
+                // This gRPC version silently disables retries along with census stats and tracing
+                InternalNettyChannelBuilder.setStatsEnabled(builder, false);
+                InternalNettyChannelBuilder.setTracingEnabled(builder, false);
+            }
+
+            // Hedging goes first, so the attempts counter sees each hedged attempt
+            if (retryAttempts != null)
+                builder.intercept(retryAttempts);
+            if (!properties.getHedging().isEmpty())
+                builder.intercept(getHedgingInterceptor());
+        }
+
+        builder.intercept(callCounter)
+                .usePlaintext();
+        if (executor != null)
+            builder.executor(executor);
+
+        configureConnection(builder);
+
+        return builder.build();
+    }
+
+    private void configureConnection(NettyChannelBuilder builder) {
+        if (properties.getFlowControlWindow() != null)
+            builder.flowControlWindow(properties.getFlowControlWindow());
+        if (properties.getMaxHeaderListSize() != null)
+            builder.maxHeaderListSize(properties.getMaxHeaderListSize());
+        if (properties.getKeepAliveTime() != null)
+            builder.keepAliveTime(properties.getKeepAliveTime().toNanos(), TimeUnit.NANOSECONDS);
+        if (properties.getKeepAliveTimeout() != null)
+            builder.keepAliveTimeout(properties.getKeepAliveTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        if (properties.getKeepAliveWithoutCalls() != null)
+            builder.keepAliveWithoutCalls(properties.getKeepAliveWithoutCalls());
+        if (properties.getIdleTimeout() != null)
+            builder.idleTimeout(properties.getIdleTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        if (properties.getRetryBufferSize() != null)
+            builder.retryBufferSize(properties.getRetryBufferSize());
+        if (properties.getPerRpcBufferLimit() != null)
+            builder.perRpcBufferLimit(properties.getPerRpcBufferLimit());
+    }
+
+    private synchronized NameResolver.Factory getNameResolverFactory() {
+        if (nameResolverFactory == null) {
+            NameResolver.Factory factory = new CompositeNameResolverFactory(
+                    Arrays.asList(new StaticNameResolverProvider(), new FileNameResolverProvider()));
+
+            // Refresh on the shared event loop rather than on extra threads
+            if (properties.getDnsRefreshInterval() != null)
+                factory = new PeriodicRefreshNameResolverFactory(factory, getEventLoopGroup(),
+                        properties.getDnsRefreshInterval().toNanos(), TimeUnit.NANOSECONDS);
+
+            if (serviceConfig != null)
+                factory = new ServiceConfigNameResolverFactory(factory, serviceConfig);
+
+            nameResolverFactory = factory;
+        }
+        return nameResolverFactory;
+    }
+
+    // Service config in the form of parsed JSON, where numbers are doubles
+    static Map<String, Object> serviceConfig(GrpcClientProperties properties) {
+        List<Object> methodConfigs = new ArrayList<>();
+
+        properties.getRetry().forEach((name, retry) -> {
+            Map<String, Object> policy = new LinkedHashMap<>();
+            policy.put("maxAttempts", (double) retry.getMaxAttempts());
+            policy.put("initialBackoff", duration(retry.getInitialBackoff()));
+            policy.put("maxBackoff", duration(retry.getMaxBackoff()));
+            policy.put("backoffMultiplier", retry.getBackoffMultiplier());
+            policy.put("retryableStatusCodes", statusCodes(retry.getRetryableStatusCodes()));
+            methodConfigs.add(methodConfig(name, "retryPolicy", policy));
+        });
+
+        return Collections.singletonMap("methodConfig", methodConfigs);
+    }
+
+    // Name is either service/method or service
+    private static Map<String, Object> methodConfig(String name, String policyKey, Map<String, Object> policy) {
+        Map<String, Object> methodName = new LinkedHashMap<>();
+        int slash = name.indexOf('/');
+        if (slash < 0) {
+            methodName.put("service", name);
+        } else {
+            methodName.put("service", name.substring(0, slash));
+            methodName.put("method", name.substring(slash + 1));
+        }
+
+        Map<String, Object> methodConfig = new LinkedHashMap<>();
+        methodConfig.put("name", Collections.singletonList(methodName));
+        methodConfig.put(policyKey, policy);
+        return methodConfig;
+    }
+
+    // Protobuf JSON duration, e.g. 0.1s
+    private static String duration(Duration duration) {
+        return BigDecimal.valueOf(duration.getSeconds())
+                .add(BigDecimal.valueOf(duration.getNano(), 9))
+                .stripTrailingZeros()
+                .toPlainString() + "s";
+    }
+
+    private static List<Object> statusCodes(List<Status.Code> codes) {
+        List<Object> names = new ArrayList<>(codes.size());
+        for (Status.Code code : codes)
+            names.add(code.name());
+        return names;
+    }
+
+    private synchronized HedgingInterceptor getHedgingInterceptor() {
+        if (hedgingInterceptor == null) {
+            Map<String, HedgingInterceptor.Policy> policies = new HashMap<>();
+            properties.getHedging().forEach((name, hedging) -> policies.put(name,
+                    new HedgingInterceptor.Policy(hedging.getMaxAttempts(), hedging.getHedgingDelay().toNanos(),
+                            TimeUnit.NANOSECONDS, hedging.getNonFatalStatusCodes())));
+
+            hedgingInterceptor = new HedgingInterceptor(policies, getEventLoopGroup());
+        }
+        return hedgingInterceptor;
+    }
+
+    private static LoadBalancer.Factory loadBalancerFactory(String policy) {
+        switch (policy) {
+            case "pick_first":
+                return PickFirstBalancerFactory.getInstance();
+            case "round_robin":
+                return RoundRobinLoadBalancerFactory.getInstance();
+            default:
+                throw new IllegalArgumentException("Unsupported load balancing policy '" + policy
+                        + "', supported policies are pick_first and round_robin");
+        }
+    }
+
+    private synchronized EventLoopGroup getEventLoopGroup() {
+        if (eventLoopGroup == null) {
+            GrpcClientProperties.Transport transport = properties.getTransport();
+            int threads = transport.getEventLoopThreads();
+
+            if (useEpoll(transport.getType())) {
+                eventLoopGroup = Epoll.eventLoopGroup(threads, threadFactory("epoll"));
+                channelType = Epoll.socketChannelType();
+            } else {
+                eventLoopGroup = new NioEventLoopGroup(threads, threadFactory("nio"));
+                channelType = NioSocketChannel.class;
+            }
+        }
+        return eventLoopGroup;
+    }
+
+    // Domain sockets require epoll, even if the shared event loop group is NIO
+    private synchronized EventLoopGroup getDomainSocketEventLoopGroup() {
+        EventLoopGroup sharedEventLoopGroup = getEventLoopGroup();
+        if (channelType != NioSocketChannel.class)
+            return sharedEventLoopGroup;
+
+        if (domainSocketEventLoopGroup == null) {
+            ensureEpollAvailable("Unix domain socket transport");
+            domainSocketEventLoopGroup = Epoll.eventLoopGroup(
+                    properties.getTransport().getEventLoopThreads(), threadFactory("epoll"));
+        }
+        return domainSocketEventLoopGroup;
+    }
+
+    private static boolean useEpoll(GrpcClientProperties.TransportType type) {
+        switch (type) {
+            case NIO:
+                return false;
+            case EPOLL:
+                ensureEpollAvailable("Epoll transport");
+                return true;
+            default:
+                return EPOLL_PRESENT && Epoll.isAvailable();
+        }
+    }
+
+    private static void ensureEpollAvailable(String transportName) {
+        if (!EPOLL_PRESENT)
+            throw new IllegalStateException(transportName + " requires netty-transport-native-epoll on the classpath");
+        if (!Epoll.isAvailable())
+            throw new IllegalStateException(transportName + " requires epoll, which is not available",
+                    Epoll.unavailabilityCause());
+    }
+
+    private static ThreadFactory threadFactory(String transportName) {
+        return new DefaultThreadFactory("grpc-client-" + transportName, true);
+    }
+
+    @Override
+    public synchronized void destroy() throws InterruptedException {
+        try {
+            drainChannels();
+        } finally {
+            if (eventLoopGroup != null)
+                eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+            if (domainSocketEventLoopGroup != null)
+                domainSocketEventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+            if (executor instanceof ExecutorService)
+                ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private void drainChannels() throws InterruptedException {
+
+        // Stop accepting new calls, let the outstanding ones complete while their channels still run
+        outstandingCalls.values().forEach(OutstandingCallsInterceptor::shutdown);
+        try {
+            if (!awaitOutstandingCalls(properties.getDrainTimeout().toNanos()))
+                logger.warn("Cancelling " + getOutstandingCalls() + " outstanding gRPC calls after drain timeout of "
+                        + properties.getDrainTimeout());
+        } finally {
+            channels.forEach(ManagedChannel::shutdownNow);
+        }
+
+        // The event loop must outlive the cancelled calls, as a call still waiting on name
+        // resolution may only now be handed to its transport
+        long deadline = System.nanoTime() + SHUTDOWN_NOW_TIMEOUT_NANOS;
+        for (ManagedChannel channel : channels) {
+            OutstandingCallsInterceptor callCounter = outstandingCalls.get(channel);
+            if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    || !callCounter.awaitNoOutstandingCalls(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                logger.warn("Failing " + callCounter.getOutstandingCalls() + " gRPC calls that didn't complete when "
+                        + "their channel was shut down");
+                callCounter.failOutstandingCalls(Status.UNAVAILABLE.withDescription("Channel shutdownNow invoked"));
+            }
+        }
+    }
+
+    private boolean awaitOutstandingCalls(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<OutstandingCallsInterceptor> draining = new ArrayList<>(outstandingCalls.values());
+        while (!draining.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+
+            int outstanding = getOutstandingCalls();
+            if (outstanding > 0)
+                logger.info("Draining " + outstanding + " outstanding gRPC calls");
+
+            long slice = Math.min(remaining, DRAIN_LOG_INTERVAL_NANOS);
+            if (draining.get(0).awaitNoOutstandingCalls(slice, TimeUnit.NANOSECONDS))
+                draining.remove(0);
+        }
+        return true;
+    }
+
+    // Isolates references to the optional epoll classes
+    private static final class Epoll {
+
+        static boolean isAvailable() {
+            return io.netty.channel.epoll.Epoll.isAvailable();
+        }
+
+        static Throwable unavailabilityCause() {
+            return io.netty.channel.epoll.Epoll.unavailabilityCause();
+        }
+
+        static EventLoopGroup eventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new io.netty.channel.epoll.EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        static Class<? extends io.netty.channel.Channel> socketChannelType() {
+            return io.netty.channel.epoll.EpollSocketChannel.class;
+        }
+
+        static Class<? extends io.netty.channel.Channel> domainSocketChannelType() {
+            return io.netty.channel.epoll.EpollDomainSocketChannel.class;
+        }
+
+        static SocketAddress domainSocketAddress(String path) {
+            return new io.netty.channel.unix.DomainSocketAddress(path);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package codes.sf.springboot.grpc.client.autoconfigure;
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthGrpc;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects the channels created by auto configuration when the
+ * ApplicationContext starts, so that the first calls don't have to pay for
+ * name resolution and connection setup.
+ *
+ * <p>Start-up waits until every channel is {@linkplain ConnectivityState#READY
+ * ready}, or until the configured timeout elapses. Optionally a
+ * <a href="https://github.com/grpc/grpc/blob/master/doc/health-checking.md">
+ * health check</a> call is then sent over each channel.
+ *
+ * @author Semyon Fishman
+ * @see GrpcClientProperties.Warmup
+ * @since 0.1.0
+ */
+public class GrpcChannelWarmup implements SmartLifecycle {
+
+    private static final Log logger = LogFactory.getLog(GrpcChannelWarmup.class);
+
+    private final GrpcChannelFactory channelFactory;
+    private final GrpcClientProperties.Warmup properties;
+
+    private volatile boolean running;
+
+    public GrpcChannelWarmup(GrpcChannelFactory channelFactory, GrpcClientProperties.Warmup properties) {
+        this.channelFactory = channelFactory;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        List<ManagedChannel> channels = channelFactory.getChannels();
+        long deadline = System.nanoTime() + properties.getTimeout().toNanos();
+
+        Map<ManagedChannel, CountDownLatch> readyLatches = new LinkedHashMap<>();
+        for (ManagedChannel channel : channels) {
+            CountDownLatch ready = new CountDownLatch(1);
+            awaitReady(channel, ready);
+            readyLatches.put(channel, ready);
+        }
+
+        for (Map.Entry<ManagedChannel, CountDownLatch> entry : readyLatches.entrySet()) {
+            ManagedChannel channel = entry.getKey();
+            if (!await(entry.getValue(), deadline)) {
+                timedOut("Channel to " + channel.authority() + " is not ready, state " + channel.getState(false));
+                continue;
+            }
+            if (properties.isHealthCheck())
+                healthCheck(channel, deadline);
+        }
+
+        running = true;
+    }
+
+    private static void awaitReady(ManagedChannel channel, CountDownLatch ready) {
+        ConnectivityState state = channel.getState(true);
+        if (state == ConnectivityState.READY)
+            ready.countDown();
+        else if (state != ConnectivityState.SHUTDOWN)
+            channel.notifyWhenStateChanged(state, () -> awaitReady(channel, ready));
+    }
+
+    private void healthCheck(ManagedChannel channel, long deadline) {
+        try {
+            HealthGrpc.newBlockingStub(channel)
+                    .withDeadlineAfter(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    .check(HealthCheckRequest.getDefaultInstance());
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.UNIMPLEMENTED)
+                logger.debug("Server at " + channel.authority() + " does not implement health checks");
+            else if (e.getStatus().getCode() == Status.Code.DEADLINE_EXCEEDED)
+                timedOut("Health check of " + channel.authority() + " timed out");
+            else
+                logger.warn("Health check of " + channel.authority() + " failed: " + e.getStatus());
+        }
+    }
+
+    private void timedOut(String message) {
+        message += " after warm-up timeout of " + properties.getTimeout();
+        if (properties.isFailOnTimeout())
+            throw new IllegalStateException(message);
+        logger.warn(message);
+    }
+
+    private static boolean await(CountDownLatch latch, long deadline) {
+        try {
+            return latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -2,12 +2,20 @@ package codes.sf.springboot.grpc.client.autoconfigure;
 
 import codes.sf.springboot.grpc.client.GrpcChannelSource;
 import codes.sf.springboot.grpc.client.GrpcStubPostProcessor;
+import codes.sf.springboot.grpc.client.channel.BatchingInterceptor;
+import codes.sf.springboot.grpc.client.channel.BlockingCallCheckInterceptor;
+import codes.sf.springboot.grpc.client.channel.CollapsingInterceptor;
+import codes.sf.springboot.grpc.client.channel.DefaultDeadlineInterceptor;
+import codes.sf.springboot.grpc.client.channel.GrpcChannelRegistry;
+import codes.sf.springboot.grpc.client.channel.StaticNameResolverProvider;
+import codes.sf.springboot.grpc.client.executor.GrpcFanOut;
 import codes.sf.springboot.grpc.client.stubpostprocess.GenericGrpcStubPostProcessor;
 import codes.sf.springboot.grpc.client.stubpostprocess.GenericGrpcStubPostProcessorAdapter;
+import codes.sf.springboot.grpc.client.stubpostprocess.GrpcStubPostProcessorPipeline;
 import io.grpc.CallCredentials;
 import io.grpc.Channel;
 import io.grpc.ClientInterceptor;
-import io.grpc.ManagedChannelBuilder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -15,13 +23,20 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.util.Assert;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.stream.Collectors.toList;
 
@@ -45,13 +60,22 @@ public class GrpcClientAutoConfiguration {
     public static final String GENERIC_GRPC_STUB_POST_PROCESSORS_BEAN_NAME =
             "GrpcClientAutoConfiguration_genericGrpcStubPostProcessors";
 
+    /**
+     * Environment property naming the in-process server of a gRPC server
+     * library running in the same application, such as
+     * <a href="https://github.com/LogNet/grpc-spring-boot-starter">LogNet/grpc-spring-boot-starter</a>.
+     */
+    public static final String IN_PROCESS_SERVER_NAME_PROPERTY = "grpc.inProcessServerName";
+
     private List<GrpcStubPostProcessor> postProcessors;
     private Channel channel;
 
     private final GrpcClientProperties properties;
+    private final Environment environment;
 
-    GrpcClientAutoConfiguration(GrpcClientProperties properties) {
+    GrpcClientAutoConfiguration(GrpcClientProperties properties, Environment environment) {
         this.properties = properties;
+        this.environment = environment;
     }
 
     @Autowired(required = false)
@@ -76,26 +100,64 @@ public class GrpcClientAutoConfiguration {
                 .collect(toList());
     }
 
+    @Bean
+    public GrpcStubPostProcessorPipeline grpcStubPostProcessorPipeline() {
+        return new GrpcStubPostProcessorPipeline(genericGrpcStubPostProcessors());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public GrpcChannelFactory grpcChannelFactory() {
+        return new GrpcChannelFactory(properties);
+    }
+
     @Bean
     @ConditionalOnMissingBean(GrpcChannelSource.class)
-    public GrpcChannelSource channelSource() {
+    public GrpcChannelSource channelSource(GrpcChannelFactory channelFactory) {
 
-        Channel channel;
+        Channel defaultChannel;
 
         if (this.channel != null)
-            channel = this.channel;
+            defaultChannel = this.channel;
         else {
             String target = properties.getTarget();
             if (target == null || target.isEmpty())
-                target = GrpcClientProperties.DEFAULT_TARGET;
+                target = defaultTarget();
 
-            channel = ManagedChannelBuilder
-                    .forTarget(target)
-                    .usePlaintext()
-                    .build();
+            defaultChannel = channelFactory.createChannel(target);
         }
 
-        return GrpcChannelSource.of(channel);
+        GrpcChannelRegistry registry = new GrpcChannelRegistry(defaultChannel);
+        properties.getChannels().forEach((name, namedChannel) -> {
+            String target = namedChannel.getTarget();
+            if ((target == null || target.isEmpty()) && !namedChannel.getAddresses().isEmpty())
+                target = StaticNameResolverProvider.target(namedChannel.getAddresses());
+
+            Assert.hasText(target, "Property " + GrpcClientProperties.PREFIX + ".channels." + name
+                    + ".target or .addresses must be set");
+            registry.register(name, channelFactory.createChannel(target), namedChannel.getServices());
+        });
+
+        return registry;
+    }
+
+    private String defaultTarget() {
+        if (!properties.getAddresses().isEmpty())
+            return StaticNameResolverProvider.target(properties.getAddresses());
+
+        String inProcessServerName = environment.getProperty(IN_PROCESS_SERVER_NAME_PROPERTY);
+        if (inProcessServerName != null && !inProcessServerName.isEmpty())
+            return GrpcChannelFactory.IN_PROCESS_TARGET_PREFIX + inProcessServerName;
+
+        return GrpcClientProperties.DEFAULT_TARGET;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = GrpcClientProperties.PREFIX, name = "warmup.enabled")
+    public GrpcChannelWarmup grpcChannelWarmup(GrpcChannelFactory channelFactory,
+                                               GrpcChannelSource channelSource) {
+        // channelSource is injected so that its channels exist before warm-up
+        return new GrpcChannelWarmup(channelFactory, properties.getWarmup());
     }
 
     @Bean
@@ -105,20 +167,64 @@ public class GrpcClientAutoConfiguration {
         return stub -> stub.withExecutor(executor);
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = GrpcClientProperties.PREFIX, name = "executor")
+    public GrpcStubPostProcessor executorGrpcStubPostProcessor(GrpcChannelFactory channelFactory) {
+        Executor executor = channelFactory.getExecutor();
+        return stub -> (executor != null) ? stub.withExecutor(executor) : stub;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = GrpcClientProperties.PREFIX, name = "executor", havingValue = "virtual")
+    public GrpcFanOut grpcFanOut(GrpcChannelFactory channelFactory) {
+        return new GrpcFanOut(channelFactory.getExecutor());
+    }
+
     @Bean
     @ConditionalOnProperty(prefix = GrpcClientProperties.PREFIX, name = "compression")
     public GrpcStubPostProcessor compressionGrpcStubPostProcessor() {
         return stub -> stub.withCompression(properties.getCompression());
     }
 
+    /**
+     * Applies the interceptor beans and the configured interceptors with a
+     * single stub copy. From the outermost, the first to see a call:
+     * default deadlines, the blocking call check, request collapsing,
+     * batching, then the interceptor beans, in reverse of their order. So
+     * the blocking call check still sees the executor of the caller, and
+     * the interceptor beans see the calls actually sent.
+     */
     @Bean
-    @ConditionalOnBean(ClientInterceptor.class)
-    public GrpcStubPostProcessor interceptorsGrpcStubPostProcessor(List<ClientInterceptor> interceptors) {
-        return stub -> {
-            for (ClientInterceptor interceptor : interceptors)
-                stub = stub.withInterceptors(interceptor);
-            return stub;
-        };
+    @Conditional(OnInterceptorsCondition.class)
+    public GrpcStubPostProcessor interceptorsGrpcStubPostProcessor(ObjectProvider<List<ClientInterceptor>> interceptorBeans,
+                                                                   GrpcChannelFactory channelFactory) {
+
+        // The last interceptor of a withInterceptors() call sees calls first
+        List<ClientInterceptor> interceptors = new ArrayList<>(interceptorBeans.getIfAvailable(Collections::emptyList));
+
+        if (!properties.getBatching().isEmpty()) {
+            Map<String, BatchingInterceptor.Policy> policies = new HashMap<>();
+            properties.getBatching().forEach((name, batching) -> policies.put(name,
+                    new BatchingInterceptor.Policy(batching.getBatchMethod(), batching.getMaxSize(),
+                            batching.getMaxDelay().toNanos(), TimeUnit.NANOSECONDS)));
+            interceptors.add(new BatchingInterceptor(policies, channelFactory.getScheduler()));
+        }
+
+        if (!properties.getCollapsing().isEmpty())
+            interceptors.add(new CollapsingInterceptor(properties.getCollapsing(), channelFactory.getScheduler()));
+
+        GrpcClientProperties.BlockingCallCheck blockingCallCheck = properties.getBlockingCallCheck();
+        if ((blockingCallCheck != null) ? blockingCallCheck != GrpcClientProperties.BlockingCallCheck.OFF
+                : properties.getExecutor() == GrpcClientProperties.ExecutorType.DIRECT)
+            interceptors.add(new BlockingCallCheckInterceptor(
+                    blockingCallCheck == GrpcClientProperties.BlockingCallCheck.FAIL));
+
+        if (properties.getDeadline() != null || !properties.getDeadlines().isEmpty())
+            interceptors.add(new DefaultDeadlineInterceptor(properties.getDeadline(), properties.getDeadlines()));
+
+        ClientInterceptor[] interceptorArray = interceptors.toArray(new ClientInterceptor[0]);
+        return stub -> stub.withInterceptors(interceptorArray);
     }
 
     @Bean
@@ -1,7 +1,15 @@
 package codes.sf.springboot.grpc.client.autoconfigure;
 
+import io.grpc.Status;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * gRPC client properties.
  *
@@ -23,21 +31,166 @@ public class GrpcClientProperties {
     private String[] scanPackages;
 
     /**
-     * Sets target address for gRPC stubs' channel.
+     * Sets whether to ignore the build-time gRPC stub index, and read every
+     * class file under the scanned packages instead.
+     */
+    private boolean ignoreStubIndex;
+
+    /**
+     * Sets whether to register the stubs listed in the build-time gRPC stub
+     * index without scanning the classpath, e.g. in GraalVM native images.
+     */
+    private boolean stubIndexOnly;
+
+    /**
+     * Sets the number of base packages to scan for gRPC stubs in parallel.
+     * By default packages are scanned one after another.
+     */
+    private int scanParallelism = 1;
+
+    /**
+     * Sets whether gRPC stubs are registered for lazy initialization. Lazy
+     * stubs are only created when first requested, and resolve their channel
+     * on their first call.
+     */
+    private boolean lazyStubs;
+
+    /**
+     * Sets whether to log a summary of gRPC stub startup times, listing the
+     * slowest stubs, at info level. The summary is otherwise logged at debug
+     * level.
+     */
+    private boolean logStartupSummary;
+
+    /**
+     * Sets target address for gRPC stubs' channel. Use
+     * {@code unix:///path} to connect over a Unix domain socket, or
+     * {@code in-process:<name>} to connect to an in-process server.
      */
     private String target;
 
+    /**
+     * Sets a static list of server addresses, in host:port form, for gRPC
+     * stubs' channel. Used when target is not set.
+     */
+    private List<String> addresses = new ArrayList<>();
+
+    /**
+     * Sets the load balancing policy for channels created by auto
+     * configuration, either pick_first (the default) or round_robin.
+     */
+    private String loadBalancingPolicy;
+
+    /**
+     * Sets the interval at which channels created by auto configuration
+     * resolve their target's addresses again. By default addresses are
+     * only resolved again after a connection fails.
+     */
+    private Duration dnsRefreshInterval;
+
+    /**
+     * Named channels, each with its own target, and the stub classes or
+     * gRPC service names that should use them. Stubs that don't map to a
+     * named channel use the channel configured by {@code target}.
+     */
+    private Map<String, NamedChannel> channels = new LinkedHashMap<>();
+
+    /**
+     * Connection pool settings for channels created by auto configuration.
+     */
+    private Pool pool = new Pool();
+
+    /**
+     * Netty transport settings for channels created by auto configuration.
+     */
+    private Transport transport = new Transport();
+
+    /**
+     * Start-up connection warm-up settings.
+     */
+    private Warmup warmup = new Warmup();
+
     /**
      * Configures the gRPC stubs to use the executor found in the
      * ApplicationContext, instead of the default one.
      */
     private boolean springexecutor = false;
 
+    /**
+     * Sets the executor that runs the callbacks of calls on channels
+     * created by auto configuration and of gRPC stubs. VIRTUAL runs every
+     * callback on a new virtual thread, and requires Java 21 or later.
+     * DIRECT runs callbacks on the thread that completes them, usually a
+     * Netty event loop thread, so callbacks must never block.
+     */
+    private ExecutorType executor = ExecutorType.DEFAULT;
+
+    /**
+     * Sets how gRPC stubs handle blocking calls made on Netty event loop
+     * threads: OFF ignores them, WARN logs them, and FAIL fails them.
+     * Defaults to WARN when executor is DIRECT, and OFF otherwise.
+     */
+    private BlockingCallCheck blockingCallCheck;
+
     /**
      * Sets the compressor name to use for gRPC calls.
      */
     private String compression;
 
+    /**
+     * Sets the default deadline of gRPC calls that have no deadline of
+     * their own, and no deadline in {@link #deadlines}.
+     */
+    private Duration deadline;
+
+    /**
+     * Sets the default deadlines of gRPC calls that have no deadline of
+     * their own, by full method name, e.g. {@code helloworld.Greeter/SayHello},
+     * or by service name, e.g. {@code helloworld.Greeter}. Method deadlines
+     * take precedence over service deadlines.
+     */
+    private Map<String, Duration> deadlines = new LinkedHashMap<>();
+
+    /**
+     * Sets the retry policies of gRPC calls on channels created by auto
+     * configuration, by full method name or by service name. Method
+     * policies take precedence over service policies.
+     */
+    private Map<String, Retry> retry = new LinkedHashMap<>();
+
+    /**
+     * Sets the hedging policies of gRPC calls on channels created by auto
+     * configuration, by full method name or by service name. A method or
+     * service can't have both a retry and a hedging policy.
+     */
+    private Map<String, Hedging> hedging = new LinkedHashMap<>();
+
+    /**
+     * Sets the batching policies of unary gRPC methods, by full method
+     * name. Concurrent calls of a method with a batching policy are sent
+     * together, as a single call of its batch method.
+     */
+    private Map<String, Batching> batching = new LinkedHashMap<>();
+
+    /**
+     * Sets the unary gRPC methods to collapse calls of, by full method name
+     * or by service name. Identical calls of these methods that are in
+     * flight at the same time are sent as a single call.
+     */
+    private List<String> collapsing = new ArrayList<>();
+
+    /**
+     * Sets the maximum number of bytes buffered for retries, across all
+     * calls of a channel.
+     */
+    private Long retryBufferSize;
+
+    /**
+     * Sets the maximum number of bytes buffered for retries of a single
+     * call.
+     */
+    private Long perRpcBufferLimit;
+
     /**
      * Limits the maximum acceptable message size from remote peers.
      */
@@ -48,6 +201,48 @@ public class GrpcClientProperties {
      */
     private Integer maxOutboundMessageSize;
 
+    /**
+     * Sets the HTTP/2 flow control window in bytes for channels created
+     * by auto configuration. Defaults to 1 MiB.
+     */
+    private Integer flowControlWindow;
+
+    /**
+     * Sets the time without read activity before sending a keepalive ping.
+     * Keepalive is disabled when not set.
+     */
+    private Duration keepAliveTime;
+
+    /**
+     * Sets the time waiting for read activity after sending a keepalive
+     * ping, before the connection is considered dead.
+     */
+    private Duration keepAliveTimeout;
+
+    /**
+     * Sets whether keepalive pings are sent even when there are no
+     * outstanding calls.
+     */
+    private Boolean keepAliveWithoutCalls;
+
+    /**
+     * Sets the time without outstanding calls after which the channel
+     * enters idle mode and closes its connections.
+     */
+    private Duration idleTimeout;
+
+    /**
+     * Limits the maximum size in bytes of the response header list.
+     */
+    private Integer maxHeaderListSize;
+
+    /**
+     * Maximum time to wait for outstanding calls to complete when the
+     * ApplicationContext is closed, before the channels created by auto
+     * configuration are forcefully shut down.
+     */
+    private Duration drainTimeout = Duration.ofSeconds(10);
+
     public String[] getScanPackages() {
         return scanPackages;
     }
@@ -56,6 +251,46 @@ public class GrpcClientProperties {
         this.scanPackages = scanPackages;
     }
 
+    public boolean isIgnoreStubIndex() {
+        return ignoreStubIndex;
+    }
+
+    public void setIgnoreStubIndex(boolean ignoreStubIndex) {
+        this.ignoreStubIndex = ignoreStubIndex;
+    }
+
+    public boolean isStubIndexOnly() {
+        return stubIndexOnly;
+    }
+
+    public void setStubIndexOnly(boolean stubIndexOnly) {
+        this.stubIndexOnly = stubIndexOnly;
+    }
+
+    public int getScanParallelism() {
+        return scanParallelism;
+    }
+
+    public void setScanParallelism(int scanParallelism) {
+        this.scanParallelism = scanParallelism;
+    }
+
+    public boolean isLazyStubs() {
+        return lazyStubs;
+    }
+
+    public void setLazyStubs(boolean lazyStubs) {
+        this.lazyStubs = lazyStubs;
+    }
+
+    public boolean isLogStartupSummary() {
+        return logStartupSummary;
+    }
+
+    public void setLogStartupSummary(boolean logStartupSummary) {
+        this.logStartupSummary = logStartupSummary;
+    }
+
     public String getTarget() {
         return target;
     }
@@ -64,6 +299,62 @@ public class GrpcClientProperties {
         this.target = target;
     }
 
+    public List<String> getAddresses() {
+        return addresses;
+    }
+
+    public void setAddresses(List<String> addresses) {
+        this.addresses = addresses;
+    }
+
+    public String getLoadBalancingPolicy() {
+        return loadBalancingPolicy;
+    }
+
+    public void setLoadBalancingPolicy(String loadBalancingPolicy) {
+        this.loadBalancingPolicy = loadBalancingPolicy;
+    }
+
+    public Duration getDnsRefreshInterval() {
+        return dnsRefreshInterval;
+    }
+
+    public void setDnsRefreshInterval(Duration dnsRefreshInterval) {
+        this.dnsRefreshInterval = dnsRefreshInterval;
+    }
+
+    public Map<String, NamedChannel> getChannels() {
+        return channels;
+    }
+
+    public void setChannels(Map<String, NamedChannel> channels) {
+        this.channels = channels;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public void setPool(Pool pool) {
+        this.pool = pool;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public Warmup getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Warmup warmup) {
+        this.warmup = warmup;
+    }
+
     public boolean isSpringexecutor() {
         return springexecutor;
     }
@@ -72,6 +363,22 @@ public class GrpcClientProperties {
         this.springexecutor = springexecutor;
     }
 
+    public ExecutorType getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ExecutorType executor) {
+        this.executor = executor;
+    }
+
+    public BlockingCallCheck getBlockingCallCheck() {
+        return blockingCallCheck;
+    }
+
+    public void setBlockingCallCheck(BlockingCallCheck blockingCallCheck) {
+        this.blockingCallCheck = blockingCallCheck;
+    }
+
     public String getCompression() {
         return compression;
     }
@@ -80,6 +387,70 @@ public class GrpcClientProperties {
         this.compression = compression;
     }
 
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(Duration deadline) {
+        this.deadline = deadline;
+    }
+
+    public Map<String, Duration> getDeadlines() {
+        return deadlines;
+    }
+
+    public void setDeadlines(Map<String, Duration> deadlines) {
+        this.deadlines = deadlines;
+    }
+
+    public Map<String, Retry> getRetry() {
+        return retry;
+    }
+
+    public void setRetry(Map<String, Retry> retry) {
+        this.retry = retry;
+    }
+
+    public Map<String, Hedging> getHedging() {
+        return hedging;
+    }
+
+    public void setHedging(Map<String, Hedging> hedging) {
+        this.hedging = hedging;
+    }
+
+    public Map<String, Batching> getBatching() {
+        return batching;
+    }
+
+    public void setBatching(Map<String, Batching> batching) {
+        this.batching = batching;
+    }
+
+    public List<String> getCollapsing() {
+        return collapsing;
+    }
+
+    public void setCollapsing(List<String> collapsing) {
+        this.collapsing = collapsing;
+    }
+
+    public Long getRetryBufferSize() {
+        return retryBufferSize;
+    }
+
+    public void setRetryBufferSize(Long retryBufferSize) {
+        this.retryBufferSize = retryBufferSize;
+    }
+
+    public Long getPerRpcBufferLimit() {
+        return perRpcBufferLimit;
+    }
+
+    public void setPerRpcBufferLimit(Long perRpcBufferLimit) {
+        this.perRpcBufferLimit = perRpcBufferLimit;
+    }
+
     public Integer getMaxInboundMessageSize() {
         return maxInboundMessageSize;
     }
@@ -95,4 +466,495 @@ public class GrpcClientProperties {
     public void setMaxOutboundMessageSize(Integer maxOutboundMessageSize) {
         this.maxOutboundMessageSize = maxOutboundMessageSize;
     }
+
+    public Integer getFlowControlWindow() {
+        return flowControlWindow;
+    }
+
+    public void setFlowControlWindow(Integer flowControlWindow) {
+        this.flowControlWindow = flowControlWindow;
+    }
+
+    public Duration getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    public void setKeepAliveTime(Duration keepAliveTime) {
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    public Duration getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(Duration keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public Boolean getKeepAliveWithoutCalls() {
+        return keepAliveWithoutCalls;
+    }
+
+    public void setKeepAliveWithoutCalls(Boolean keepAliveWithoutCalls) {
+        this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Integer getMaxHeaderListSize() {
+        return maxHeaderListSize;
+    }
+
+    public void setMaxHeaderListSize(Integer maxHeaderListSize) {
+        this.maxHeaderListSize = maxHeaderListSize;
+    }
+
+    public Duration getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    public void setDrainTimeout(Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * Named channel properties.
+     */
+    public static class NamedChannel {
+
+        /**
+         * Sets target address for this channel; supports the same schemes
+         * as the default target.
+         */
+        private String target;
+
+        /**
+         * Sets a static list of server addresses, in host:port form, for
+         * this channel. Used when target is not set.
+         */
+        private List<String> addresses = new ArrayList<>();
+
+        /**
+         * Stub class names, generated class names, or gRPC service names
+         * of the stubs that should use this channel.
+         */
+        private List<String> services = new ArrayList<>();
+
+        public String getTarget() {
+            return target;
+        }
+
+        public void setTarget(String target) {
+            this.target = target;
+        }
+
+        public List<String> getAddresses() {
+            return addresses;
+        }
+
+        public void setAddresses(List<String> addresses) {
+            this.addresses = addresses;
+        }
+
+        public List<String> getServices() {
+            return services;
+        }
+
+        public void setServices(List<String> services) {
+            this.services = services;
+        }
+    }
+
+    /**
+     * Connection pool properties.
+     */
+    public static class Pool {
+
+        /**
+         * Minimum number of connections per channel.
+         */
+        private int minSize = 1;
+
+        /**
+         * Maximum number of connections per channel. Pooling is enabled
+         * when this is greater than 1.
+         */
+        private int maxSize = 1;
+
+        /**
+         * Number of outstanding calls on every connection at which a new
+         * connection is added. Should be below the server's HTTP/2
+         * MAX_CONCURRENT_STREAMS setting.
+         */
+        private int scaleUpThreshold = 80;
+
+        /**
+         * Average number of outstanding calls per connection at or below
+         * which a connection is removed.
+         */
+        private int scaleDownThreshold = 20;
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public void setMinSize(int minSize) {
+            this.minSize = minSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getScaleUpThreshold() {
+            return scaleUpThreshold;
+        }
+
+        public void setScaleUpThreshold(int scaleUpThreshold) {
+            this.scaleUpThreshold = scaleUpThreshold;
+        }
+
+        public int getScaleDownThreshold() {
+            return scaleDownThreshold;
+        }
+
+        public void setScaleDownThreshold(int scaleDownThreshold) {
+            this.scaleDownThreshold = scaleDownThreshold;
+        }
+    }
+
+    /**
+     * Retry policy properties.
+     */
+    public static class Retry {
+
+        /**
+         * Maximum number of attempts, including the original call.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Backoff before the first retry.
+         */
+        private Duration initialBackoff = Duration.ofMillis(100);
+
+        /**
+         * Maximum backoff between retries.
+         */
+        private Duration maxBackoff = Duration.ofSeconds(1);
+
+        /**
+         * Factor the backoff grows by after every retry.
+         */
+        private double backoffMultiplier = 2;
+
+        /**
+         * Status codes that are retried.
+         */
+        private List<Status.Code> retryableStatusCodes = new ArrayList<>(Collections.singletonList(Status.Code.UNAVAILABLE));
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public double getBackoffMultiplier() {
+            return backoffMultiplier;
+        }
+
+        public void setBackoffMultiplier(double backoffMultiplier) {
+            this.backoffMultiplier = backoffMultiplier;
+        }
+
+        public List<Status.Code> getRetryableStatusCodes() {
+            return retryableStatusCodes;
+        }
+
+        public void setRetryableStatusCodes(List<Status.Code> retryableStatusCodes) {
+            this.retryableStatusCodes = retryableStatusCodes;
+        }
+    }
+
+    /**
+     * Hedging policy properties.
+     */
+    public static class Hedging {
+
+        /**
+         * Maximum number of attempts sent, including the original call. At
+         * least 2, and values above 5 are treated as 5.
+         */
+        private int maxAttempts = 2;
+
+        /**
+         * Delay before sending each further attempt, while the previous
+         * attempts haven't completed. Typically around the method's 95th
+         * percentile latency.
+         */
+        private Duration hedgingDelay = Duration.ofMillis(100);
+
+        /**
+         * Status codes that send the next attempt right away, rather than fail
+         * the call.
+         */
+        private List<Status.Code> nonFatalStatusCodes = new ArrayList<>();
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getHedgingDelay() {
+            return hedgingDelay;
+        }
+
+        public void setHedgingDelay(Duration hedgingDelay) {
+            this.hedgingDelay = hedgingDelay;
+        }
+
+        public List<Status.Code> getNonFatalStatusCodes() {
+            return nonFatalStatusCodes;
+        }
+
+        public void setNonFatalStatusCodes(List<Status.Code> nonFatalStatusCodes) {
+            this.nonFatalStatusCodes = nonFatalStatusCodes;
+        }
+    }
+
+    /**
+     * Batching policy properties.
+     */
+    public static class Batching {
+
+        /**
+         * Full name of the batch method, e.g. {@code helloworld.Greeter/SayHelloBatch}.
+         * Its request must have a repeated field of the unary method's
+         * request type, and its response a repeated field of the unary
+         * method's response type, with a response per request, in order.
+         */
+        private String batchMethod;
+
+        /**
+         * Maximum number of calls sent in a single batch.
+         */
+        private int maxSize = 100;
+
+        /**
+         * Maximum time a call waits for other calls to batch with.
+         */
+        private Duration maxDelay = Duration.ofMillis(5);
+
+        public String getBatchMethod() {
+            return batchMethod;
+        }
+
+        public void setBatchMethod(String batchMethod) {
+            this.batchMethod = batchMethod;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+    }
+
+    /**
+     * Netty transport properties.
+     */
+    public static class Transport {
+
+        /**
+         * Netty transport to use. AUTO selects the native epoll transport
+         * when it's available and falls back on NIO otherwise.
+         */
+        private TransportType type = TransportType.AUTO;
+
+        /**
+         * Number of threads in the event loop group shared by all channels;
+         * 0 uses Netty's default of twice the number of available processors.
+         */
+        private int eventLoopThreads = 0;
+
+        public TransportType getType() {
+            return type;
+        }
+
+        public void setType(TransportType type) {
+            this.type = type;
+        }
+
+        public int getEventLoopThreads() {
+            return eventLoopThreads;
+        }
+
+        public void setEventLoopThreads(int eventLoopThreads) {
+            this.eventLoopThreads = eventLoopThreads;
+        }
+    }
+
+    /**
+     * Netty transport types.
+     */
+    public enum TransportType {
+
+        /**
+         * Native epoll transport if available, NIO otherwise.
+         */
+        AUTO,
+
+        /**
+         * Native epoll transport; requires Linux and netty-transport-native-epoll.
+         */
+        EPOLL,
+
+        /**
+         * Java NIO transport.
+         */
+        NIO
+    }
+
+    /**
+     * Call executor types.
+     */
+    public enum ExecutorType {
+
+        /**
+         * gRPC's default executor, a shared cached thread pool.
+         */
+        DEFAULT,
+
+        /**
+         * A new virtual thread per callback; requires Java 21 or later.
+         */
+        VIRTUAL,
+
+        /**
+         * The thread that completes the callback, without a thread hop.
+         */
+        DIRECT
+    }
+
+    /**
+     * Ways of handling blocking calls made on event loop threads.
+     */
+    public enum BlockingCallCheck {
+
+        /**
+         * Blocking calls aren't checked.
+         */
+        OFF,
+
+        /**
+         * The first blocking call of each method is logged as a warning.
+         */
+        WARN,
+
+        /**
+         * Blocking calls fail with an IllegalStateException.
+         */
+        FAIL
+    }
+
+    /**
+     * Warm-up properties.
+     */
+    public static class Warmup {
+
+        /**
+         * Connects channels created by auto configuration when the
+         * ApplicationContext starts, instead of on the first call.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum time to wait for all channels to become ready.
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        /**
+         * Sends a health check call over each channel once it's ready.
+         */
+        private boolean healthCheck = false;
+
+        /**
+         * Fails start-up if the channels are not ready within the timeout,
+         * instead of logging a warning.
+         */
+        private boolean failOnTimeout = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public boolean isHealthCheck() {
+            return healthCheck;
+        }
+
+        public void setHealthCheck(boolean healthCheck) {
+            this.healthCheck = healthCheck;
+        }
+
+        public boolean isFailOnTimeout() {
+            return failOnTimeout;
+        }
+
+        public void setFailOnTimeout(boolean failOnTimeout) {
+            this.failOnTimeout = failOnTimeout;
+        }
+    }
 }
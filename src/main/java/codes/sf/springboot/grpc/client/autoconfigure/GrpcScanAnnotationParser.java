@@ -70,6 +70,10 @@ class GrpcScanAnnotationParser {
         // Resource Pattern
         scanner.setResourcePattern(annotation.getString("resourcePattern"));
 
+        // Lazy Init
+        if (annotation.getBoolean("lazyInit"))
+            scanner.getBeanDefinitionDefaults().setLazyInit(true);
+
         Set<String> basePackages = new LinkedHashSet<>();
         String[] basePackagesArray = annotation.getStringArray("basePackages");
         for (String pkg : basePackagesArray) {
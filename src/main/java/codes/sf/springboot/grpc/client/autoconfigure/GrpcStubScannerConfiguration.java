@@ -1,6 +1,8 @@
 package codes.sf.springboot.grpc.client.autoconfigure;
 
 import codes.sf.springboot.grpc.client.GrpcStubScan;
+import codes.sf.springboot.grpc.client.context.GrpcStartupRecorder;
+import codes.sf.springboot.grpc.client.context.GrpcStubIndex;
 import codes.sf.springboot.grpc.client.context.GrpcStubScanner;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
@@ -10,6 +12,8 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 
+import java.util.Collections;
+
 @Configuration
 class GrpcStubScannerConfiguration implements EnvironmentAware {
 
@@ -26,12 +30,28 @@ class GrpcStubScannerConfiguration implements EnvironmentAware {
 
             BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
 
+            // Registered as a singleton, stub factory beans pick it up by type
+            GrpcStartupRecorder startupRecorder = new GrpcStartupRecorder(
+                    environment.getProperty(GrpcClientProperties.PREFIX + ".logStartupSummary", Boolean.class, false));
+            beanFactory.registerSingleton(GrpcStartupRecorder.BEAN_NAME, startupRecorder);
+
             GrpcStubScanner scanner = new GrpcStubScanner(registry);
+            scanner.setStartupRecorder(startupRecorder);
+            if (!environment.getProperty(GrpcClientProperties.PREFIX + ".ignoreStubIndex", Boolean.class, false)) {
+                scanner.setStubIndex(GrpcStubIndex.load(scanner.getResourceLoader().getClassLoader()));
+                scanner.setIndexOnly(environment.getProperty(GrpcClientProperties.PREFIX + ".stubIndexOnly", Boolean.class, false));
+            }
+            if (environment.getProperty(GrpcClientProperties.PREFIX + ".lazyStubs", Boolean.class, false))
+                scanner.getBeanDefinitionDefaults().setLazyInit(true);
+            scanner.setScanParallelism(environment.getProperty(GrpcClientProperties.PREFIX + ".scanParallelism", Integer.class, 1));
             GrpcScanAnnotationParser annotationParser = new GrpcScanAnnotationParser(environment, registry, scanner);
 
+            long start = System.nanoTime();
             String[] scanPackages = annotationParser.parse(GrpcStubScan.class);
             if (scanPackages == null) scanPackages = getEnvironmentProperty();
             if (scanPackages == null) scanPackages = annotationParser.parse(ComponentScan.class);
+            startupRecorder.record(new GrpcStartupRecorder.Event(GrpcStartupRecorder.ANNOTATION_PARSING,
+                    String.join(",", scanPackages), System.nanoTime() - start, Collections.emptyMap()));
 
             if (scanPackages.length != 0)
                 scanner.scan(scanPackages);
@@ -0,0 +1,28 @@
+package codes.sf.springboot.grpc.client.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Condition that matches when a batching policy is configured for any
+ * method.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+class OnBatchingCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Binder binder = Binder.get(context.getEnvironment());
+
+        if (binder.bind(GrpcClientProperties.PREFIX + ".batching",
+                Bindable.mapOf(String.class, GrpcClientProperties.Batching.class)).isBound())
+            return ConditionOutcome.match("Batching policies configured");
+        return ConditionOutcome.noMatch("No batching policies configured");
+    }
+}
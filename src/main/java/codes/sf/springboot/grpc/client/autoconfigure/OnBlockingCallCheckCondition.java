@@ -0,0 +1,36 @@
+package codes.sf.springboot.grpc.client.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Condition that matches when blocking calls on event loop threads should
+ * be checked, either explicitly or because callbacks run on the event loop.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+class OnBlockingCallCheckCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Binder binder = Binder.get(context.getEnvironment());
+
+        GrpcClientProperties.BlockingCallCheck check = binder.bind(GrpcClientProperties.PREFIX + ".blocking-call-check",
+                Bindable.of(GrpcClientProperties.BlockingCallCheck.class)).orElse(null);
+        if (check != null)
+            return (check != GrpcClientProperties.BlockingCallCheck.OFF)
+                    ? ConditionOutcome.match("Blocking call check set to " + check)
+                    : ConditionOutcome.noMatch("Blocking call check turned off");
+
+        GrpcClientProperties.ExecutorType executor = binder.bind(GrpcClientProperties.PREFIX + ".executor",
+                Bindable.of(GrpcClientProperties.ExecutorType.class)).orElse(null);
+        if (executor == GrpcClientProperties.ExecutorType.DIRECT)
+            return ConditionOutcome.match("Direct executor configured");
+        return ConditionOutcome.noMatch("No blocking call check configured");
+    }
+}
@@ -0,0 +1,31 @@
+package codes.sf.springboot.grpc.client.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.List;
+
+/**
+ * Condition that matches when calls of any method or service are
+ * collapsed.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+class OnCollapsingCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Binder binder = Binder.get(context.getEnvironment());
+
+        List<String> collapsing = binder.bind(GrpcClientProperties.PREFIX + ".collapsing",
+                Bindable.listOf(String.class)).orElse(null);
+        if (collapsing != null && !collapsing.isEmpty())
+            return ConditionOutcome.match("Collapsed methods configured");
+        return ConditionOutcome.noMatch("No collapsed methods configured");
+    }
+}
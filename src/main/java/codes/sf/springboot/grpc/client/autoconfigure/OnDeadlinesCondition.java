@@ -0,0 +1,29 @@
+package codes.sf.springboot.grpc.client.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Condition that matches when a default deadline is configured, globally
+ * or for any service or method.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+class OnDeadlinesCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Binder binder = Binder.get(context.getEnvironment());
+
+        if (binder.bind(GrpcClientProperties.PREFIX + ".deadline", Bindable.of(String.class)).isBound())
+            return ConditionOutcome.match("Default deadline configured");
+        if (binder.bind(GrpcClientProperties.PREFIX + ".deadlines", Bindable.mapOf(String.class, String.class)).isBound())
+            return ConditionOutcome.match("Service or method deadlines configured");
+        return ConditionOutcome.noMatch("No deadlines configured");
+    }
+}
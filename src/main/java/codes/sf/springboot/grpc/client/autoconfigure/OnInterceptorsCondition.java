@@ -0,0 +1,40 @@
+package codes.sf.springboot.grpc.client.autoconfigure;
+
+import io.grpc.ClientInterceptor;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.context.annotation.Conditional;
+
+/**
+ * Condition that matches when stubs get any client interceptor, either an
+ * interceptor bean or one enabled by the client properties.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+class OnInterceptorsCondition extends AnyNestedCondition {
+
+    OnInterceptorsCondition() {
+        super(ConfigurationPhase.REGISTER_BEAN);
+    }
+
+    @ConditionalOnBean(ClientInterceptor.class)
+    static class OnInterceptorBeans {
+    }
+
+    @Conditional(OnDeadlinesCondition.class)
+    static class OnDeadlines {
+    }
+
+    @Conditional(OnBlockingCallCheckCondition.class)
+    static class OnBlockingCallCheck {
+    }
+
+    @Conditional(OnCollapsingCondition.class)
+    static class OnCollapsing {
+    }
+
+    @Conditional(OnBatchingCondition.class)
+    static class OnBatching {
+    }
+}
@@ -0,0 +1,557 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import io.grpc.CallCredentials;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoMethodDescriptorSupplier;
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ClientInterceptor} that batches concurrent calls of a unary method
+ * into a single call of a batch method.
+ *
+ * <p>Calls are collected until the batch reaches its maximum size, or the
+ * first call of the batch has waited for the maximum delay, and then sent
+ * together. The batch method's request must have a repeated field of the
+ * unary method's request type, which is set to the batched requests, and
+ * its response a repeated field of the unary method's response type,
+ * holding a response per request, in the same order. Both fields are found
+ * from the Protobuf descriptors of the generated code.
+ *
+ * <p>The batch call uses the call options of the first call of the batch,
+ * with the latest deadline of all its calls, and none of their headers. It's
+ * sent outside of the calls' {@link Context}s. Each call still ends at its
+ * own deadline, or when its context is cancelled, and cancelling a call
+ * removes it from its batch; a batch whose calls are all cancelled is
+ * cancelled. A batch that fails, fails all its calls.
+ *
+ * <p>Policies are configured by full method name, and looked up once per
+ * {@link MethodDescriptor}. Calls are batched per method and per channel,
+ * and only with calls of the same call credentials, authority and
+ * compressor, as the batch is sent with those of its first call.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class BatchingInterceptor implements ClientInterceptor {
+
+    private static final Object NO_POLICY = new Object();
+
+    // Full unary method name -> policy
+    private final Map<String, Policy> policies;
+    private final ScheduledExecutorService scheduler;
+
+    // Method descriptor -> batch method descriptor, or NO_POLICY
+    private final ConcurrentMap<MethodDescriptor<?, ?>, Object> batchMethods = new ConcurrentHashMap<>();
+    private final ConcurrentMap<BatcherKey, Batcher<?, ?>> batchers = new ConcurrentHashMap<>();
+
+    /**
+     * Create new batching interceptor.
+     *
+     * @param policies  batching policies by full unary method name
+     * @param scheduler the scheduler to send delayed batches, and to end
+     *                  calls at their deadlines on
+     */
+    public BatchingInterceptor(Map<String, Policy> policies, ScheduledExecutorService scheduler) {
+        this.policies = new HashMap<>(policies);
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+
+        Object batchMethod = batchMethods.get(method);
+        if (batchMethod == null) {
+            batchMethod = resolveBatchMethod(method);
+            batchMethods.putIfAbsent(method, batchMethod);
+        }
+
+        if (batchMethod == NO_POLICY)
+            return next.newCall(method, callOptions);
+
+        BatcherKey key = new BatcherKey(method, next, callOptions);
+        Batcher<ReqT, RespT> batcher = (Batcher<ReqT, RespT>) batchers.get(key);
+        if (batcher == null) {
+            Policy policy = policies.get(method.getFullMethodName());
+            batcher = new Batcher<>(key, (MethodDescriptor<List<ReqT>, List<RespT>>) batchMethod, next, policy);
+            Batcher<ReqT, RespT> existing = (Batcher<ReqT, RespT>) batchers.putIfAbsent(key, batcher);
+            if (existing != null)
+                batcher = existing;
+        }
+        return new BatchedCall<>(batcher, callOptions);
+    }
+
+    private Object resolveBatchMethod(MethodDescriptor<?, ?> method) {
+        Policy policy = policies.get(method.getFullMethodName());
+        if (policy == null || method.getType() != MethodDescriptor.MethodType.UNARY)
+            return NO_POLICY;
+
+        if (!(method.getSchemaDescriptor() instanceof ProtoMethodDescriptorSupplier)
+                || !(method.getRequestMarshaller() instanceof MethodDescriptor.PrototypeMarshaller)
+                || !(method.getResponseMarshaller() instanceof MethodDescriptor.PrototypeMarshaller))
+            throw new IllegalArgumentException("gRPC method " + method.getFullMethodName()
+                    + " can't be batched, it has no Protobuf descriptors");
+
+        Descriptors.MethodDescriptor unaryMethod
+                = ((ProtoMethodDescriptorSupplier) method.getSchemaDescriptor()).getMethodDescriptor();
+        Descriptors.MethodDescriptor batchMethod = findMethod(unaryMethod.getFile(), policy.batchMethod);
+        if (batchMethod == null)
+            throw new IllegalArgumentException("Batch method " + policy.batchMethod + " of gRPC method "
+                    + method.getFullMethodName() + " not found");
+
+        int requestField = repeatedField(batchMethod.getInputType(), unaryMethod.getInputType());
+        int responseField = repeatedField(batchMethod.getOutputType(), unaryMethod.getOutputType());
+
+        return MethodDescriptor.<List<MessageLite>, List<MessageLite>>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(policy.batchMethod)
+                .setRequestMarshaller(new RepeatedFieldMarshaller<>(requestField,
+                        parser((MethodDescriptor.PrototypeMarshaller<?>) method.getRequestMarshaller())))
+                .setResponseMarshaller(new RepeatedFieldMarshaller<>(responseField,
+                        parser((MethodDescriptor.PrototypeMarshaller<?>) method.getResponseMarshaller())))
+                .build();
+    }
+
+    // Looks in the unary method's file and the files it imports
+    private static Descriptors.MethodDescriptor findMethod(Descriptors.FileDescriptor file, String fullMethodName) {
+        String serviceName = MethodDescriptor.extractFullServiceName(fullMethodName);
+        if (serviceName == null)
+            return null;
+        String methodName = fullMethodName.substring(serviceName.length() + 1);
+
+        Deque<Descriptors.FileDescriptor> files = new ArrayDeque<>();
+        Set<Descriptors.FileDescriptor> seen = new HashSet<>();
+        files.add(file);
+        while (!files.isEmpty()) {
+            Descriptors.FileDescriptor candidate = files.poll();
+            if (!seen.add(candidate))
+                continue;
+            for (Descriptors.ServiceDescriptor service : candidate.getServices()) {
+                if (service.getFullName().equals(serviceName))
+                    return service.findMethodByName(methodName);
+            }
+            files.addAll(candidate.getDependencies());
+        }
+        return null;
+    }
+
+    private static int repeatedField(Descriptors.Descriptor batchType, Descriptors.Descriptor elementType) {
+        Integer fieldNumber = null;
+        for (Descriptors.FieldDescriptor field : batchType.getFields()) {
+            if (!field.isRepeated() || field.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE
+                    || field.getMessageType() != elementType)
+                continue;
+            if (fieldNumber != null)
+                throw new IllegalArgumentException("Batch message " + batchType.getFullName()
+                        + " has more than one repeated " + elementType.getFullName() + " field");
+            fieldNumber = field.getNumber();
+        }
+        if (fieldNumber == null)
+            throw new IllegalArgumentException("Batch message " + batchType.getFullName()
+                    + " has no repeated " + elementType.getFullName() + " field");
+        return fieldNumber;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Parser<MessageLite> parser(MethodDescriptor.PrototypeMarshaller<?> marshaller) {
+        return (Parser<MessageLite>) ((MessageLite) marshaller.getMessagePrototype()).getParserForType();
+    }
+
+    /**
+     * Batching policy of a unary method.
+     */
+    public static final class Policy {
+
+        private final String batchMethod;
+        private final int maxSize;
+        private final long maxDelayNanos;
+
+        /**
+         * Create new batching policy.
+         *
+         * @param batchMethod full name of the batch method
+         * @param maxSize     maximum number of calls in a batch
+         * @param maxDelay    maximum time a call waits for other calls
+         * @param unit        time unit of the maximum delay
+         */
+        public Policy(String batchMethod, int maxSize, long maxDelay, TimeUnit unit) {
+            Assert.hasText(batchMethod, "Batch method must be set");
+            Assert.isTrue(maxSize > 0, "Maximum batch size must be positive");
+            Assert.isTrue(maxDelay >= 0, "Maximum batching delay must not be negative");
+            this.batchMethod = batchMethod;
+            this.maxSize = maxSize;
+            this.maxDelayNanos = unit.toNanos(maxDelay);
+        }
+    }
+
+    private static final class BatcherKey {
+
+        private final MethodDescriptor<?, ?> method;
+        private final Channel channel;
+        private final CallCredentials credentials;
+        private final String authority;
+        private final String compressor;
+
+        private BatcherKey(MethodDescriptor<?, ?> method, Channel channel, CallOptions callOptions) {
+            this.method = method;
+            this.channel = channel;
+            this.credentials = callOptions.getCredentials();
+            this.authority = callOptions.getAuthority();
+            this.compressor = callOptions.getCompressor();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BatcherKey))
+                return false;
+            BatcherKey other = (BatcherKey) o;
+            return method == other.method && channel == other.channel && credentials == other.credentials
+                    && Objects.equals(authority, other.authority) && Objects.equals(compressor, other.compressor);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(method) + System.identityHashCode(channel))
+                    + Objects.hash(System.identityHashCode(credentials), authority, compressor);
+        }
+    }
+
+    /**
+     * Collects the calls of a method on a channel, with the same call
+     * credentials, authority and compressor, into batches.
+     */
+    private final class Batcher<ReqT, RespT> {
+
+        private final BatcherKey key;
+        private final MethodDescriptor<List<ReqT>, List<RespT>> batchMethod;
+        private final Channel next;
+        private final Policy policy;
+
+        // Guarded by this
+        private List<BatchedCall<ReqT, RespT>> pending = new ArrayList<>();
+        private ScheduledFuture<?> flushTimer;
+
+        private Batcher(BatcherKey key, MethodDescriptor<List<ReqT>, List<RespT>> batchMethod, Channel next,
+                        Policy policy) {
+            this.key = key;
+            this.batchMethod = batchMethod;
+            this.next = next;
+            this.policy = policy;
+        }
+
+        private void add(BatchedCall<ReqT, RespT> call) {
+            Batch<ReqT, RespT> batch = null;
+            synchronized (this) {
+                pending.add(call);
+                if (pending.size() >= policy.maxSize)
+                    batch = takeBatch();
+                else if (pending.size() == 1)
+                    flushTimer = scheduler.schedule(this::flush, policy.maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+            if (batch != null)
+                send(batch);
+        }
+
+        private synchronized void remove(BatchedCall<ReqT, RespT> call) {
+            if (pending.remove(call) && pending.isEmpty()) {
+                cancelFlushTimer();
+                batchers.remove(key, this);
+            }
+        }
+
+        private void flush() {
+            Batch<ReqT, RespT> batch;
+            synchronized (this) {
+                if (pending.isEmpty())
+                    return;
+                batch = takeBatch();
+            }
+            send(batch);
+        }
+
+        // Guarded by this, so a call is either pending or in its batch
+        private Batch<ReqT, RespT> takeBatch() {
+            cancelFlushTimer();
+            Batch<ReqT, RespT> batch = new Batch<>(pending);
+            pending = new ArrayList<>();
+
+            // Per-call credentials would otherwise keep a batcher each; calls still adding to it start a new batch
+            batchers.remove(key, this);
+            for (BatchedCall<ReqT, RespT> call : batch.calls) {
+                if (!call.batched(batch))
+                    batch.callEnded();
+            }
+            return batch;
+        }
+
+        // Guarded by this
+        private void cancelFlushTimer() {
+            if (flushTimer != null) {
+                flushTimer.cancel(false);
+                flushTimer = null;
+            }
+        }
+
+        private void send(Batch<ReqT, RespT> batch) {
+            List<BatchedCall<ReqT, RespT>> calls = batch.calls;
+            List<ReqT> requests = new ArrayList<>(calls.size());
+            Deadline deadline = calls.get(0).callOptions.getDeadline();
+            for (BatchedCall<ReqT, RespT> call : calls) {
+                requests.add(call.request);
+                Deadline callDeadline = call.callOptions.getDeadline();
+                if (deadline != null && (callDeadline == null || deadline.isBefore(callDeadline)))
+                    deadline = callDeadline;
+            }
+
+            // The first call's executor may only run while its caller waits, e.g. for blocking stubs
+            CallOptions batchOptions = calls.get(0).callOptions.withExecutor(null).withDeadline(deadline);
+
+            // Not sent in the Context of the call that happened to fill the batch
+            ClientCall<List<ReqT>, List<RespT>> call = null;
+            Context previous = Context.ROOT.attach();
+            try {
+                call = next.newCall(batchMethod, batchOptions);
+                call.start(batch, new Metadata());
+                call.request(1);
+                call.sendMessage(requests);
+                call.halfClose();
+                batch.started(call);
+            } catch (RuntimeException e) {
+                batch.close(Status.fromThrowable(e), null, new Metadata());
+                if (call != null)
+                    call.cancel(null, e);
+            } finally {
+                Context.ROOT.detach(previous);
+            }
+        }
+    }
+
+    /**
+     * A batch call, completing the calls it was sent for.
+     */
+    private static final class Batch<ReqT, RespT> extends ClientCall.Listener<List<RespT>> {
+
+        private final List<BatchedCall<ReqT, RespT>> calls;
+        private final AtomicInteger outstanding;
+        private volatile ClientCall<List<ReqT>, List<RespT>> call;
+        private List<RespT> responses;
+
+        private Batch(List<BatchedCall<ReqT, RespT>> calls) {
+            this.calls = calls;
+            this.outstanding = new AtomicInteger(calls.size());
+        }
+
+        // Of a call removed from the batch
+        private void callEnded() {
+            ClientCall<List<ReqT>, List<RespT>> started;
+            if (outstanding.decrementAndGet() == 0 && (started = call) != null)
+                started.cancel("All batched calls cancelled", null);
+        }
+
+        // Calls may have ended while the batch call was started
+        private void started(ClientCall<List<ReqT>, List<RespT>> call) {
+            this.call = call;
+            if (outstanding.get() == 0)
+                call.cancel("All batched calls cancelled", null);
+        }
+
+        @Override
+        public void onMessage(List<RespT> message) {
+            responses = message;
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            if (status.isOk() && (responses == null || responses.size() != calls.size())) {
+                status = Status.INTERNAL.withDescription("Batch method returned "
+                        + ((responses != null) ? responses.size() : 0) + " responses for " + calls.size() + " requests");
+            }
+            close(status, status.isOk() ? responses : null, trailers);
+        }
+
+        private void close(Status status, List<RespT> responses, Metadata trailers) {
+            for (int i = 0; i < calls.size(); i++) {
+                Metadata callTrailers = new Metadata();
+                callTrailers.merge(trailers);
+                calls.get(i).close(status, (responses != null) ? responses.get(i) : null, callTrailers);
+            }
+        }
+    }
+
+    /**
+     * A unary call waiting to be sent in a batch, or waiting for its batch.
+     */
+    private final class BatchedCall<ReqT, RespT> extends ClientCall<ReqT, RespT>
+            implements Context.CancellationListener {
+
+        private final Batcher<ReqT, RespT> batcher;
+        private final CallOptions callOptions;
+        private final Executor executor;
+
+        private Listener<RespT> listener;
+        private Context context;
+        private ReqT request;
+
+        // Guarded by this
+        private Batch<ReqT, RespT> batch;
+        private boolean closed;
+        private ScheduledFuture<?> deadlineTimer;
+
+        private BatchedCall(Batcher<ReqT, RespT> batcher, CallOptions callOptions) {
+            this.batcher = batcher;
+            this.callOptions = callOptions;
+            this.executor = (callOptions.getExecutor() != null)
+                    ? callOptions.getExecutor() : MoreExecutors.directExecutor();
+        }
+
+        @Override
+        public void start(Listener<RespT> listener, Metadata headers) {
+            this.listener = listener;
+
+            // Cancelled with the caller's context, including at the context's deadline
+            context = Context.current();
+            context.addListener(this, MoreExecutors.directExecutor());
+
+            Deadline deadline = callOptions.getDeadline();
+            if (deadline != null) {
+                Runnable expire = () -> end(Status.DEADLINE_EXCEEDED.withDescription("Deadline exceeded after "
+                        + "waiting for batch"));
+                synchronized (this) {
+                    if (!closed)
+                        deadlineTimer = scheduler.schedule(expire,
+                                deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        @Override
+        public void request(int numMessages) {
+            // The response is delivered when the batch completes
+        }
+
+        @Override
+        public void sendMessage(ReqT message) {
+            request = message;
+        }
+
+        @Override
+        public void halfClose() {
+            synchronized (this) {
+                if (closed)
+                    return;
+            }
+            batcher.add(this);
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+            Status status = Status.CANCELLED;
+            if (message != null)
+                status = status.withDescription(message);
+            end(status.withCause(cause));
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void cancelled(Context context) {
+            end(Contexts.statusFromCancelled(context));
+        }
+
+        // Returns whether the call is still open, otherwise its batch counts it as ended
+        private synchronized boolean batched(Batch<ReqT, RespT> batch) {
+            this.batch = batch;
+            return !closed;
+        }
+
+        // Ends the call before its batch completes
+        private void end(Status status) {
+            boolean pending;
+            synchronized (this) {
+                if (closed)
+                    return;
+                pending = (batch == null);
+            }
+
+            // Not under this call's lock, the batcher locks calls as it takes them into a batch
+            if (pending)
+                batcher.remove(this);
+
+            // Read again, the call may have been taken into a batch instead of removed
+            Batch<ReqT, RespT> ended;
+            synchronized (this) {
+                if (!markClosed())
+                    return;
+                ended = batch;
+            }
+            deliver(status, null, new Metadata());
+            if (ended != null)
+                ended.callEnded();
+        }
+
+        private void close(Status status, RespT response, Metadata trailers) {
+            synchronized (this) {
+                if (!markClosed())
+                    return;
+            }
+            deliver(status, response, trailers);
+        }
+
+        // Guarded by this
+        private boolean markClosed() {
+            if (closed)
+                return false;
+            closed = true;
+            if (deadlineTimer != null)
+                deadlineTimer.cancel(false);
+            return true;
+        }
+
+        private void deliver(Status status, RespT response, Metadata trailers) {
+            if (context != null)
+                context.removeListener(this);
+
+            executor.execute(() -> {
+                if (response != null) {
+                    listener.onHeaders(new Metadata());
+                    listener.onMessage(response);
+                }
+                listener.onClose(status, trailers);
+            });
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ClientInterceptor} that detects blocking stub calls made on Netty
+ * event loop threads.
+ *
+ * <p>A blocking call on an event loop thread stops the thread from doing
+ * I/O for all of its connections until the call completes, and deadlocks
+ * if the call's own response is read by that thread. That's easy to do by
+ * accident when callbacks run on the event loop, with a direct executor.
+ *
+ * <p>Blocking calls are recognized by the executor that gRPC's blocking
+ * stubs run them with. Each one is counted, and the first one of each
+ * method is logged with its stack trace, or, if so configured, the call
+ * fails with an {@link IllegalStateException}. Blocking on a future, e.g.
+ * of a future stub, can't be detected.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class BlockingCallCheckInterceptor implements ClientInterceptor {
+
+    private static final Log logger = LogFactory.getLog(BlockingCallCheckInterceptor.class);
+
+    // Executor of blocking stubs, which the calling thread waits on
+    private static final String BLOCKING_EXECUTOR_CLASS_NAME = "io.grpc.stub.ClientCalls$ThreadlessExecutor";
+
+    private final boolean failCalls;
+    private final LongAdder blockingCalls = new LongAdder();
+    private final Set<String> loggedMethods = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create new blocking call check interceptor.
+     *
+     * @param failCalls whether to fail blocking calls on event loop
+     *                  threads, rather than only report them
+     */
+    public BlockingCallCheckInterceptor(boolean failCalls) {
+        this.failCalls = failCalls;
+    }
+
+    /**
+     * @return the number of blocking calls made on event loop threads
+     */
+    public long getBlockingCalls() {
+        return blockingCalls.sum();
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+
+        // Cheap check first, most calls aren't made on the event loop
+        if (Thread.currentThread() instanceof FastThreadLocalThread && isBlocking(callOptions))
+            report(method);
+
+        return next.newCall(method, callOptions);
+    }
+
+    private static boolean isBlocking(CallOptions callOptions) {
+        Executor executor = callOptions.getExecutor();
+        return executor != null && executor.getClass().getName().equals(BLOCKING_EXECUTOR_CLASS_NAME);
+    }
+
+    private void report(MethodDescriptor<?, ?> method) {
+        blockingCalls.increment();
+
+        String message = "Blocking gRPC call to " + method.getFullMethodName() + " on event loop thread "
+                + Thread.currentThread().getName();
+        if (failCalls)
+            throw new IllegalStateException(message);
+
+        if (loggedMethods.add(method.getFullMethodName()))
+            logger.warn(message + ", which blocks its I/O until the call completes", new IllegalStateException(message));
+    }
+}
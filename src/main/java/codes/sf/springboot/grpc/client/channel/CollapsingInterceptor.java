@@ -0,0 +1,393 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import io.grpc.CallCredentials;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientInterceptor} that collapses identical in-flight calls of a
+ * unary method into a single call.
+ *
+ * <p>Calls are identical when they're of the same method on the same
+ * channel, with the same call credentials and authority, and their requests
+ * serialize to the same bytes. A call that is
+ * identical to a call still in flight isn't sent, but waits for that call's
+ * response instead. Completed calls aren't cached, so the next identical
+ * call is sent again.
+ *
+ * <p>The shared call uses the headers and call options of the first call,
+ * without a deadline, and outside of the first call's {@link Context}.
+ * Each call still ends at its own deadline, or when its context is
+ * cancelled, and cancelling a call only ends that call; the shared call is
+ * cancelled once all its calls have ended. Calls with other per-call
+ * credentials are never collapsed, so a response is never fetched with
+ * another caller's authorization; headers however aren't compared, so
+ * collapsing is only suitable for methods whose response doesn't depend on
+ * the call's headers.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class CollapsingInterceptor implements ClientInterceptor {
+
+    // Full method names and service names
+    private final Set<String> names;
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<FlightKey, Flight<?, ?>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Create new collapsing interceptor.
+     *
+     * @param names     full names of the unary methods to collapse calls
+     *                  of, or names of services to collapse all unary calls
+     *                  of
+     * @param scheduler the scheduler to end calls at their deadlines on
+     */
+    public CollapsingInterceptor(Collection<String> names, ScheduledExecutorService scheduler) {
+        this.names = new HashSet<>(names);
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+
+        if (method.getType() != MethodDescriptor.MethodType.UNARY || !isCollapsed(method))
+            return next.newCall(method, callOptions);
+
+        return new CollapsedCall<>(method, callOptions, next);
+    }
+
+    private boolean isCollapsed(MethodDescriptor<?, ?> method) {
+        return names.contains(method.getFullMethodName())
+                || names.contains(MethodDescriptor.extractFullServiceName(method.getFullMethodName()));
+    }
+
+    private static final class FlightKey {
+
+        private final MethodDescriptor<?, ?> method;
+        private final Channel channel;
+        private final CallCredentials credentials;
+        private final String authority;
+        private final ByteString request;
+
+        private FlightKey(MethodDescriptor<?, ?> method, Channel channel, CallOptions callOptions, ByteString request) {
+            this.method = method;
+            this.channel = channel;
+            this.credentials = callOptions.getCredentials();
+            this.authority = callOptions.getAuthority();
+            this.request = request;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FlightKey))
+                return false;
+            FlightKey other = (FlightKey) o;
+            return method == other.method && channel == other.channel && credentials == other.credentials
+                    && Objects.equals(authority, other.authority) && request.equals(other.request);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(method) + System.identityHashCode(channel))
+                    + Objects.hash(System.identityHashCode(credentials), authority, request);
+        }
+    }
+
+    /**
+     * A call in flight, completing the calls collapsed into it.
+     */
+    private final class Flight<ReqT, RespT> extends ClientCall.Listener<RespT> {
+
+        private final FlightKey key;
+        private Metadata headers;
+        private RespT response;
+
+        // Guarded by this
+        private final List<CollapsedCall<ReqT, RespT>> calls = new ArrayList<>();
+        private ClientCall<ReqT, RespT> call;
+        private boolean done;
+
+        private Flight(FlightKey key) {
+            this.key = key;
+        }
+
+        private synchronized boolean join(CollapsedCall<ReqT, RespT> call) {
+            if (done)
+                return false;
+            calls.add(call);
+            return true;
+        }
+
+        private void leave(CollapsedCall<ReqT, RespT> collapsedCall) {
+            ClientCall<ReqT, RespT> cancelled;
+            synchronized (this) {
+                if (done || !calls.remove(collapsedCall) || !calls.isEmpty())
+                    return;
+                done = true;
+                flights.remove(key, this);
+                cancelled = call;
+            }
+            if (cancelled != null)
+                cancelled.cancel("All collapsed calls cancelled", null);
+        }
+
+        // Held locked, as a call can't be cancelled before it's started
+        private synchronized void start(CollapsedCall<ReqT, RespT> first, ReqT request) {
+            if (done)
+                return;
+
+            // The first call's executor may only run while its caller waits, e.g. for blocking stubs
+            CallOptions flightOptions = first.callOptions.withExecutor(null).withDeadline(null);
+
+            Context previous = Context.ROOT.attach();
+            try {
+                call = first.next.newCall(first.method, flightOptions);
+                call.start(this, first.headers);
+                call.request(1);
+                call.sendMessage(request);
+                call.halfClose();
+            } catch (RuntimeException e) {
+                onClose(Status.fromThrowable(e), new Metadata());
+                if (call != null)
+                    call.cancel(null, e);
+            } finally {
+                Context.ROOT.detach(previous);
+            }
+        }
+
+        @Override
+        public void onHeaders(Metadata headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public void onMessage(RespT message) {
+            response = message;
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            List<CollapsedCall<ReqT, RespT>> completed;
+            synchronized (this) {
+                done = true;
+                flights.remove(key, this);
+                completed = new ArrayList<>(calls);
+                calls.clear();
+            }
+
+            for (CollapsedCall<ReqT, RespT> collapsedCall : completed)
+                collapsedCall.close(status, copy(headers), response, copy(trailers));
+        }
+
+        private Metadata copy(Metadata metadata) {
+            if (metadata == null)
+                return null;
+            Metadata copy = new Metadata();
+            copy.merge(metadata);
+            return copy;
+        }
+    }
+
+    /**
+     * A unary call sent as, or waiting for, a call in flight.
+     */
+    private final class CollapsedCall<ReqT, RespT> extends ClientCall<ReqT, RespT>
+            implements Context.CancellationListener {
+
+        private final MethodDescriptor<ReqT, RespT> method;
+        private final CallOptions callOptions;
+        private final Channel next;
+        private final Executor executor;
+
+        private Listener<RespT> listener;
+        private Metadata headers;
+        private Context context;
+        private ReqT request;
+
+        // Guarded by this
+        private Flight<ReqT, RespT> flight;
+        private boolean closed;
+        private ScheduledFuture<?> deadlineTimer;
+
+        private CollapsedCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+            this.method = method;
+            this.callOptions = callOptions;
+            this.next = next;
+            this.executor = (callOptions.getExecutor() != null)
+                    ? callOptions.getExecutor() : MoreExecutors.directExecutor();
+        }
+
+        @Override
+        public void start(Listener<RespT> listener, Metadata headers) {
+            this.listener = listener;
+            this.headers = headers;
+
+            // Cancelled with the caller's context, including at the context's deadline
+            context = Context.current();
+            context.addListener(this, MoreExecutors.directExecutor());
+
+            Deadline deadline = callOptions.getDeadline();
+            if (deadline != null) {
+                Runnable expire = () -> end(Status.DEADLINE_EXCEEDED.withDescription("Deadline exceeded after "
+                        + "waiting for collapsed call"));
+                synchronized (this) {
+                    if (!closed)
+                        deadlineTimer = scheduler.schedule(expire,
+                                deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        @Override
+        public void request(int numMessages) {
+            // The response is delivered when the call in flight completes
+        }
+
+        @Override
+        public void sendMessage(ReqT message) {
+            request = message;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void halfClose() {
+            synchronized (this) {
+                if (closed)
+                    return;
+            }
+
+            FlightKey key;
+            try (InputStream stream = method.streamRequest(request)) {
+                key = new FlightKey(method, next, callOptions, ByteString.readFrom(stream));
+            } catch (IOException | RuntimeException e) {
+                end(Status.INTERNAL.withDescription("Unable to serialize request").withCause(e));
+                return;
+            }
+
+            while (true) {
+                Flight<ReqT, RespT> joined = (Flight<ReqT, RespT>) flights.get(key);
+                boolean first = false;
+                if (joined == null) {
+                    Flight<ReqT, RespT> created = new Flight<>(key);
+                    joined = (Flight<ReqT, RespT>) flights.putIfAbsent(key, created);
+                    if (joined == null) {
+                        joined = created;
+                        first = true;
+                    }
+                }
+
+                if (!joined.join(this)) {
+                    // Completed or cancelled since
+                    flights.remove(key, joined);
+                    continue;
+                }
+
+                // Others may have joined already, so the flight starts even if this call has ended since
+                boolean stillJoined = joined(joined);
+                if (first)
+                    joined.start(this, request);
+                if (!stillJoined)
+                    joined.leave(this);
+                return;
+            }
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+            Status status = Status.CANCELLED;
+            if (message != null)
+                status = status.withDescription(message);
+            end(status.withCause(cause));
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void cancelled(Context context) {
+            end(Contexts.statusFromCancelled(context));
+        }
+
+        private synchronized boolean joined(Flight<ReqT, RespT> flight) {
+            if (closed)
+                return false;
+            this.flight = flight;
+            return true;
+        }
+
+        // Ends the call before its call in flight completes
+        private void end(Status status) {
+            Flight<ReqT, RespT> joined;
+            synchronized (this) {
+                if (!markClosed())
+                    return;
+                joined = flight;
+            }
+
+            deliver(status, null, null, new Metadata());
+            if (joined != null)
+                joined.leave(this);
+        }
+
+        private void close(Status status, Metadata headers, RespT response, Metadata trailers) {
+            synchronized (this) {
+                if (!markClosed())
+                    return;
+            }
+            deliver(status, headers, response, trailers);
+        }
+
+        // Guarded by this
+        private boolean markClosed() {
+            if (closed)
+                return false;
+            closed = true;
+            if (deadlineTimer != null)
+                deadlineTimer.cancel(false);
+            return true;
+        }
+
+        private void deliver(Status status, Metadata headers, RespT response, Metadata trailers) {
+            if (context != null)
+                context.removeListener(this);
+
+            executor.execute(() -> {
+                if (headers != null)
+                    listener.onHeaders(headers);
+                if (response != null)
+                    listener.onMessage(response);
+                listener.onClose(status, trailers);
+            });
+        }
+    }
+}
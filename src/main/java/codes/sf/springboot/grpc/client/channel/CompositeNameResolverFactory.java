@@ -0,0 +1,42 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.Attributes;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link NameResolver.Factory} that tries a list of factories in order, and
+ * falls back on the {@linkplain NameResolverProvider#asFactory() providers
+ * registered with gRPC}, such as DNS.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class CompositeNameResolverFactory extends NameResolver.Factory {
+
+    private final List<NameResolver.Factory> factories;
+    private final NameResolver.Factory fallback = NameResolverProvider.asFactory();
+
+    public CompositeNameResolverFactory(List<? extends NameResolver.Factory> factories) {
+        this.factories = new ArrayList<>(factories);
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, Attributes params) {
+        for (NameResolver.Factory factory : factories) {
+            NameResolver resolver = factory.newNameResolver(targetUri, params);
+            if (resolver != null)
+                return resolver;
+        }
+        return fallback.newNameResolver(targetUri, params);
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return fallback.getDefaultScheme();
+    }
+}
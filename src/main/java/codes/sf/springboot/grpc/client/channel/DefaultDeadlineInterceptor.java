@@ -0,0 +1,87 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientInterceptor} that sets a default deadline on calls that
+ * have none, neither from their stub nor from their
+ * {@link io.grpc.CallOptions}.
+ *
+ * <p>Deadlines are configured by full method name, e.g.
+ * {@code helloworld.Greeter/SayHello}, by service name, e.g.
+ * {@code helloworld.Greeter}, and globally, in that order of precedence.
+ * Each method's deadline is looked up once, and then cached by its
+ * {@link MethodDescriptor}, so calls don't build method names or allocate
+ * to find their deadline.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class DefaultDeadlineInterceptor implements ClientInterceptor {
+
+    private static final Long NO_DEADLINE = -1L;
+
+    // Method or service name -> deadline in nanoseconds
+    private final Map<String, Long> deadlines = new HashMap<>();
+    private final Long defaultDeadline;
+
+    // Method descriptors are constants of the generated code
+    private final ConcurrentMap<MethodDescriptor<?, ?>, Long> methodDeadlines = new ConcurrentHashMap<>();
+
+    /**
+     * Create new default deadline interceptor.
+     *
+     * @param defaultDeadline the deadline of methods without a method or
+     *                        service deadline, or {@code null} for none
+     * @param deadlines       deadlines by full method name or service name
+     */
+    public DefaultDeadlineInterceptor(Duration defaultDeadline, Map<String, Duration> deadlines) {
+        this.defaultDeadline = (defaultDeadline != null) ? toNanos(defaultDeadline, "default") : NO_DEADLINE;
+        deadlines.forEach((name, deadline) -> this.deadlines.put(name, toNanos(deadline, name)));
+    }
+
+    private static Long toNanos(Duration deadline, String name) {
+        Assert.isTrue(!deadline.isNegative() && !deadline.isZero(), "Deadline of " + name + " must be positive");
+        return deadline.toNanos();
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+
+        // Deadlines set on the stub or call take precedence
+        if (callOptions.getDeadline() == null) {
+            Long deadline = methodDeadlines.get(method);
+            if (deadline == null) {
+                deadline = resolveDeadline(method);
+                methodDeadlines.putIfAbsent(method, deadline);
+            }
+            if (deadline > 0)
+                callOptions = callOptions.withDeadlineAfter(deadline, TimeUnit.NANOSECONDS);
+        }
+
+        return next.newCall(method, callOptions);
+    }
+
+    private Long resolveDeadline(MethodDescriptor<?, ?> method) {
+        Long deadline = deadlines.get(method.getFullMethodName());
+        if (deadline == null) {
+            String serviceName = MethodDescriptor.extractFullServiceName(method.getFullMethodName());
+            if (serviceName != null)
+                deadline = deadlines.get(serviceName);
+        }
+        return (deadline != null) ? deadline : defaultDeadline;
+    }
+}
@@ -0,0 +1,291 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.Status;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.SharedResourceHolder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * {@link NameResolverProvider} reading server addresses from a file.
+ *
+ * <p>Targets have the form {@code file:///path/to/endpoints}. The file lists
+ * one {@code host:port} address per line; blank lines and lines starting
+ * with {@code #} are ignored. The file is watched for changes, and the
+ * channel is updated with the new addresses as soon as the file changes.
+ * Connections to addresses present both before and after the change are
+ * kept open. Invalid lines are skipped, and an update without any valid
+ * address is logged and ignored, keeping the previous addresses.
+ *
+ * <p>To avoid reading half-written files, write the new content to a
+ * temporary file in the same directory and move it over the watched file.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class FileNameResolverProvider extends NameResolverProvider {
+
+    public static final String SCHEME = "file";
+
+    private static final Log logger = LogFactory.getLog(FileNameResolverProvider.class);
+
+    @Override
+    protected boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    protected int priority() {
+        return 5;
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, Attributes params) {
+        if (!SCHEME.equals(targetUri.getScheme()))
+            return null;
+
+        Assert.hasText(targetUri.getPath(), "Target '" + targetUri + "' must be of the form file:///path");
+
+        Path file = Paths.get(targetUri.getPath()).toAbsolutePath();
+        Integer defaultPort = params.get(PARAMS_DEFAULT_PORT);
+        String authority = (targetUri.getAuthority() != null) ? targetUri.getAuthority() : file.getFileName().toString();
+
+        return new FileNameResolver(authority, file, defaultPort);
+    }
+
+    /**
+     * The file is read and its hosts looked up on the shared gRPC executor,
+     * like {@code StaticNameResolver} does. Invalid lines and hosts that don't
+     * resolve are skipped; an update without any valid address keeps the last
+     * good addresses, as reporting an error would make the channel drop its
+     * connections.
+     */
+    private static final class FileNameResolver extends NameResolver {
+
+        private final String authority;
+        private final Path file;
+        private final Integer defaultPort;
+
+        // Guarded by this
+        private Listener listener;
+        private ExecutorService executor;
+        private WatchService watchService;
+        private boolean resolving;
+        private boolean pending;
+        private boolean forced;
+
+        // Confined to the resolution running on the executor
+        private List<String> lines;
+        private boolean resolved;
+
+        private FileNameResolver(String authority, Path file, Integer defaultPort) {
+            this.authority = authority;
+            this.file = file;
+            this.defaultPort = defaultPort;
+        }
+
+        @Override
+        public String getServiceAuthority() {
+            return authority;
+        }
+
+        @Override
+        public synchronized void start(Listener listener) {
+            Assert.state(this.listener == null, "Already started");
+            this.listener = listener;
+            this.executor = SharedResourceHolder.get(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
+
+            // Watch the directory, the file itself may be replaced rather than modified
+            try {
+                watchService = file.getFileSystem().newWatchService();
+                file.getParent().register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+                WatchService watched = watchService;
+                Thread watcher = new Thread(() -> watch(watched), "grpc-client-file-resolver-" + file.getFileName());
+                watcher.setDaemon(true);
+                watcher.start();
+            } catch (IOException e) {
+                logger.warn("Unable to watch " + file + ", changes won't be picked up", e);
+            }
+
+            resolve(true);
+        }
+
+        @Override
+        public synchronized void refresh() {
+            if (listener != null)
+                resolve(true);
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            listener = null;
+            if (executor != null)
+                executor = SharedResourceHolder.release(GrpcUtil.SHARED_CHANNEL_EXECUTOR, executor);
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    logger.debug("Failed to close watch service for " + file, e);
+                }
+            }
+        }
+
+        private void watch(WatchService watchService) {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents())
+                        changed |= file.getFileName().equals(event.context());
+                    key.reset();
+
+                    if (changed) {
+                        // Keep watching whatever happens to this update
+                        try {
+                            synchronized (this) {
+                                if (listener != null)
+                                    resolve(false);
+                            }
+                        } catch (RuntimeException e) {
+                            logger.warn("Failed to update addresses from " + file, e);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ClosedWatchServiceException e) {
+                // Resolver shut down
+            }
+        }
+
+        // Guarded by this
+        private void resolve(boolean force) {
+            forced |= force;
+            if (resolving) {
+                // Read the file again once the running resolution is done
+                pending = true;
+                return;
+            }
+            resolving = true;
+            executor.execute(this::lookUp);
+        }
+
+        private void lookUp() {
+            try {
+                boolean force;
+                synchronized (this) {
+                    force = forced;
+                    forced = false;
+                    pending = false;
+                }
+                update(force);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to update addresses from " + file, e);
+            } finally {
+                synchronized (this) {
+                    resolving = false;
+                    if (pending && listener != null)
+                        resolve(false);
+                }
+            }
+        }
+
+        private void update(boolean force) {
+            List<String> read;
+            try {
+                read = readAddresses();
+            } catch (IOException e) {
+                reject(Status.UNAVAILABLE.withDescription("Unable to read " + file).withCause(e));
+                return;
+            }
+
+            // Editors and agents often write a file in several steps
+            if (!force && read.equals(lines))
+                return;
+            lines = read;
+
+            List<EquivalentAddressGroup> groups = new ArrayList<>(read.size());
+            for (String address : read) {
+                InetSocketAddress socketAddress;
+                try {
+                    socketAddress = StaticNameResolverProvider.toSocketAddress(address, defaultPort);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Skipping invalid address '" + address + "' in " + file + ": " + e.getMessage());
+                    continue;
+                }
+                if (socketAddress.isUnresolved()) {
+                    logger.warn("Skipping address '" + address + "' in " + file + ", unable to resolve host");
+                    continue;
+                }
+                groups.add(new EquivalentAddressGroup(socketAddress));
+            }
+
+            if (groups.isEmpty()) {
+                reject(Status.UNAVAILABLE.withDescription("No valid addresses in " + file));
+                return;
+            }
+
+            Listener current = currentListener();
+            if (current == null)
+                return;
+            resolved = true;
+            if (logger.isDebugEnabled())
+                logger.debug("Resolved " + file + " to " + groups);
+            current.onAddresses(groups, Attributes.EMPTY);
+        }
+
+        // Only fails the channel until the file had valid addresses once
+        private void reject(Status error) {
+            if (resolved) {
+                logger.warn(error.getDescription() + ", keeping the last valid addresses", error.getCause());
+                return;
+            }
+            Listener current = currentListener();
+            if (current != null)
+                current.onError(error);
+        }
+
+        private synchronized Listener currentListener() {
+            return listener;
+        }
+
+        private List<String> readAddresses() throws IOException {
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#"))
+                    lines.add(line);
+            }
+            return lines;
+        }
+    }
+}
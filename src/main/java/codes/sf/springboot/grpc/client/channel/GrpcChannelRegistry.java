@@ -0,0 +1,126 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import codes.sf.springboot.grpc.client.GrpcChannelSource;
+import io.grpc.Channel;
+import io.grpc.stub.AbstractStub;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link GrpcChannelSource} that routes gRPC stubs to named {@linkplain Channel
+ * Channels}.
+ *
+ * <p>Each named channel is registered once, together with the services it
+ * serves, and is shared by every stub that maps to it. A service may be
+ * identified by any of:
+ * <ul>
+ * <li>the stub class name, e.g. {@code io.grpc.examples.GreeterGrpc.GreeterBlockingStub};</li>
+ * <li>the enclosing generated class name, e.g. {@code io.grpc.examples.GreeterGrpc};</li>
+ * <li>the gRPC service name, e.g. {@code helloworld.Greeter}.</li>
+ * </ul>
+ * Stubs that don't map to any named channel resolve to the default channel.
+ *
+ * @author Semyon Fishman
+ * @see codes.sf.springboot.grpc.client.autoconfigure.GrpcClientProperties#getChannels()
+ * @since 0.1.0
+ */
+public class GrpcChannelRegistry implements GrpcChannelSource {
+
+    private static final String SERVICE_NAME_FIELD = "SERVICE_NAME";
+
+    private final Channel defaultChannel;
+    private final Map<String, Channel> channels = new LinkedHashMap<>();
+    private final Map<String, String> mappings = new HashMap<>();
+    private final Map<Class<?>, Channel> resolvedChannels = new ConcurrentHashMap<>();
+
+    public GrpcChannelRegistry(Channel defaultChannel) {
+        Assert.notNull(defaultChannel, "Default channel must not be null");
+        this.defaultChannel = defaultChannel;
+    }
+
+    /**
+     * Register a named channel and the services it serves.
+     *
+     * @param name     the channel name
+     * @param channel  the channel instance, shared by all mapped stubs
+     * @param services stub class names, generated class names or gRPC
+     *                 service names that should resolve to this channel
+     * @throws IllegalStateException if the name or one of the services is
+     *                               already registered
+     */
+    public void register(String name, Channel channel, Collection<String> services) {
+        Assert.hasText(name, "Channel name must not be empty");
+        Assert.notNull(channel, "Channel must not be null");
+
+        if (this.channels.containsKey(name))
+            throw new IllegalStateException("Channel '" + name + "' is already registered");
+        this.channels.put(name, channel);
+
+        for (String service : services) {
+            String existing = this.mappings.putIfAbsent(service, name);
+            if (existing != null)
+                throw new IllegalStateException("Service '" + service + "' is mapped to both channel '"
+                        + existing + "' and channel '" + name + "'");
+        }
+
+        this.resolvedChannels.clear();
+    }
+
+    /**
+     * Return the channel used for stubs that don't map to any named channel.
+     *
+     * @return the default channel
+     */
+    public Channel getDefaultChannel() {
+        return defaultChannel;
+    }
+
+    /**
+     * Return the registered named channels.
+     *
+     * @return unmodifiable map of channel names to channels, in registration order
+     */
+    public Map<String, Channel> getChannels() {
+        return Collections.unmodifiableMap(channels);
+    }
+
+    @Override
+    public Channel resolve(Class<? extends AbstractStub<?>> stubClass) {
+        return resolvedChannels.computeIfAbsent(stubClass, this::lookup);
+    }
+
+    private Channel lookup(Class<?> stubClass) {
+        for (String key : serviceKeys(stubClass)) {
+            String name = mappings.get(key);
+            if (name != null)
+                return channels.get(name);
+        }
+        return defaultChannel;
+    }
+
+    // Most specific first
+    private static List<String> serviceKeys(Class<?> stubClass) {
+        List<String> keys = new ArrayList<>();
+        keys.add(stubClass.getName());
+        keys.add(stubClass.getCanonicalName());
+
+        Class<?> factoryClass = stubClass.getEnclosingClass();
+        if (factoryClass != null) {
+            keys.add(factoryClass.getName());
+            Field serviceNameField = ReflectionUtils.findField(factoryClass, SERVICE_NAME_FIELD, String.class);
+            if (serviceNameField != null)
+                keys.add((String) ReflectionUtils.getField(serviceNameField, null));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,357 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.internal.SerializingExecutor;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientInterceptor} that hedges unary calls: when a call hasn't
+ * received a response within the hedging delay, the same request is sent
+ * again, up to a maximum number of attempts, and the first attempt to
+ * respond wins. The other attempts are cancelled.
+ *
+ * <p>This follows the
+ * <a href="https://github.com/grpc/proposal/blob/master/A6-client-retries.md">gRPC hedging design</a>,
+ * which this gRPC version's channels don't implement yet. An attempt
+ * failing with a non-fatal status code sends the next attempt right away;
+ * any other failure, or any response, commits the call to its attempt.
+ * Attempts after the first carry the {@code grpc-previous-rpc-attempts}
+ * header. The winning attempt's callbacks are delivered to the call's
+ * listener one at a time, without holding the call's lock.
+ *
+ * <p>Policies are configured by full method name or by service name, and
+ * looked up once per {@link MethodDescriptor}. Calls of other types than
+ * unary are never hedged.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class HedgingInterceptor implements ClientInterceptor {
+
+    static final Metadata.Key<String> PREVIOUS_ATTEMPTS_KEY
+            = Metadata.Key.of("grpc-previous-rpc-attempts", Metadata.ASCII_STRING_MARSHALLER);
+
+    // Like the gRPC service config, caps the attempts of larger policies
+    static final int MAX_ATTEMPTS_LIMIT = 5;
+
+    private static final Policy NO_POLICY = new Policy(2, 0, TimeUnit.NANOSECONDS, Collections.emptySet());
+
+    // Method or service name -> policy
+    private final Map<String, Policy> policies;
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<MethodDescriptor<?, ?>, Policy> methodPolicies = new ConcurrentHashMap<>();
+
+    /**
+     * Create new hedging interceptor.
+     *
+     * @param policies  hedging policies by full method name or service name
+     * @param scheduler the scheduler to send delayed attempts on
+     */
+    public HedgingInterceptor(Map<String, Policy> policies, ScheduledExecutorService scheduler) {
+        this.policies = new HashMap<>(policies);
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+
+        Policy policy = methodPolicies.get(method);
+        if (policy == null) {
+            policy = resolvePolicy(method);
+            methodPolicies.putIfAbsent(method, policy);
+        }
+
+        if (policy == NO_POLICY)
+            return next.newCall(method, callOptions);
+        return new HedgingCall<>(method, callOptions, next, policy);
+    }
+
+    private Policy resolvePolicy(MethodDescriptor<?, ?> method) {
+        if (method.getType() != MethodDescriptor.MethodType.UNARY)
+            return NO_POLICY;
+
+        Policy policy = policies.get(method.getFullMethodName());
+        if (policy == null) {
+            String serviceName = MethodDescriptor.extractFullServiceName(method.getFullMethodName());
+            if (serviceName != null)
+                policy = policies.get(serviceName);
+        }
+        return (policy != null) ? policy : NO_POLICY;
+    }
+
+    /**
+     * Hedging policy of a method or service.
+     */
+    public static final class Policy {
+
+        private final int maxAttempts;
+        private final long delayNanos;
+        private final Set<Status.Code> nonFatalStatusCodes;
+
+        /**
+         * Create new hedging policy.
+         *
+         * @param maxAttempts         maximum number of attempts, including
+         *                            the first one; at least 2, and
+         *                            values above 5 are treated as 5
+         * @param delay               delay before sending each further attempt
+         * @param unit                time unit of the delay
+         * @param nonFatalStatusCodes status codes that send the next attempt
+         *                            rather than fail the call
+         */
+        public Policy(int maxAttempts, long delay, TimeUnit unit, Collection<Status.Code> nonFatalStatusCodes) {
+            Assert.isTrue(maxAttempts >= 2, "Hedging policy must allow at least 2 attempts");
+            Assert.isTrue(delay >= 0, "Hedging delay must not be negative");
+            this.maxAttempts = Math.min(maxAttempts, MAX_ATTEMPTS_LIMIT);
+            this.delayNanos = unit.toNanos(delay);
+            this.nonFatalStatusCodes = nonFatalStatusCodes.isEmpty()
+                    ? Collections.emptySet() : EnumSet.copyOf(nonFatalStatusCodes);
+        }
+    }
+
+    private final class HedgingCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+
+        private final MethodDescriptor<ReqT, RespT> method;
+        private final CallOptions callOptions;
+        private final Channel next;
+        private final Policy policy;
+
+        // Runs the listener's callbacks in order, on the thread of the attempt delivering them
+        private final Executor listenerExecutor = new SerializingExecutor(MoreExecutors.directExecutor());
+
+        // Confined to the listener executor
+        private boolean listenerClosed;
+
+        // Guarded by this; replayed on every new attempt
+        private Listener<RespT> listener;
+        private Metadata headers;
+        private int requested;
+        private ReqT message;
+        private boolean halfClosed;
+        private Boolean messageCompression;
+
+        // Guarded by this
+        private final List<Attempt> attempts = new ArrayList<>();
+        private Attempt committed;
+        private boolean cancelled;
+        private boolean closed;
+        private ScheduledFuture<?> hedgingTimer;
+
+        HedgingCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next, Policy policy) {
+            this.method = method;
+            this.callOptions = callOptions;
+            this.next = next;
+            this.policy = policy;
+        }
+
+        @Override
+        public synchronized void start(Listener<RespT> listener, Metadata headers) {
+            this.listener = listener;
+            this.headers = headers;
+            startAttempt();
+        }
+
+        @Override
+        public synchronized void request(int numMessages) {
+            requested += numMessages;
+            for (Attempt attempt : liveAttempts())
+                attempt.call.request(numMessages);
+        }
+
+        @Override
+        public synchronized void cancel(String message, Throwable cause) {
+            // The cancelled attempts close with CANCELLED, which must not send new ones
+            cancelled = true;
+            cancelTimer();
+            for (Attempt attempt : liveAttempts())
+                attempt.call.cancel(message, cause);
+        }
+
+        @Override
+        public synchronized void halfClose() {
+            halfClosed = true;
+            for (Attempt attempt : liveAttempts())
+                attempt.call.halfClose();
+        }
+
+        @Override
+        public synchronized void sendMessage(ReqT message) {
+            this.message = message;
+            for (Attempt attempt : liveAttempts())
+                attempt.call.sendMessage(message);
+        }
+
+        @Override
+        public synchronized void setMessageCompression(boolean enabled) {
+            messageCompression = enabled;
+            for (Attempt attempt : liveAttempts())
+                attempt.call.setMessageCompression(enabled);
+        }
+
+        @Override
+        public synchronized boolean isReady() {
+            for (Attempt attempt : liveAttempts()) {
+                if (attempt.call.isReady())
+                    return true;
+            }
+            return false;
+        }
+
+        private List<Attempt> liveAttempts() {
+            if (committed != null)
+                return committed.done ? Collections.emptyList() : Collections.singletonList(committed);
+
+            List<Attempt> live = new ArrayList<>(attempts.size());
+            for (Attempt attempt : attempts) {
+                if (!attempt.done)
+                    live.add(attempt);
+            }
+            return live;
+        }
+
+        private void startAttempt() {
+            Metadata attemptHeaders = new Metadata();
+            attemptHeaders.merge(headers);
+            if (!attempts.isEmpty())
+                attemptHeaders.put(PREVIOUS_ATTEMPTS_KEY, String.valueOf(attempts.size()));
+
+            Attempt attempt = new Attempt(next.newCall(method, callOptions));
+            attempts.add(attempt);
+
+            attempt.call.start(attempt, attemptHeaders);
+            if (messageCompression != null)
+                attempt.call.setMessageCompression(messageCompression);
+            if (requested > 0)
+                attempt.call.request(requested);
+            if (message != null)
+                attempt.call.sendMessage(message);
+            if (halfClosed)
+                attempt.call.halfClose();
+
+            if (attempts.size() < policy.maxAttempts)
+                hedgingTimer = scheduler.schedule(this::hedge, policy.delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized void hedge() {
+            if (committed == null && !cancelled && !closed && attempts.size() < policy.maxAttempts)
+                startAttempt();
+        }
+
+        private void cancelTimer() {
+            if (hedgingTimer != null) {
+                hedgingTimer.cancel(false);
+                hedgingTimer = null;
+            }
+        }
+
+        private void commit(Attempt winner) {
+            committed = winner;
+            cancelTimer();
+            for (Attempt attempt : attempts) {
+                if (attempt != winner && !attempt.done)
+                    attempt.call.cancel("Another hedged attempt won", null);
+            }
+        }
+
+        private final class Attempt extends ClientCall.Listener<RespT> {
+
+            private final ClientCall<ReqT, RespT> call;
+            private boolean done;
+
+            private Attempt(ClientCall<ReqT, RespT> call) {
+                this.call = call;
+            }
+
+            @Override
+            public void onHeaders(Metadata headers) {
+                Listener<RespT> winner = win();
+                if (winner != null)
+                    listenerExecutor.execute(() -> winner.onHeaders(headers));
+            }
+
+            @Override
+            public void onMessage(RespT message) {
+                Listener<RespT> winner = win();
+                if (winner != null)
+                    listenerExecutor.execute(() -> winner.onMessage(message));
+            }
+
+            @Override
+            public void onReady() {
+                Listener<RespT> ready;
+                synchronized (HedgingCall.this) {
+                    if (committed != null && committed != this)
+                        return;
+                    ready = listener;
+                }
+                // Another attempt may have won and closed the call since
+                listenerExecutor.execute(() -> {
+                    if (!listenerClosed)
+                        ready.onReady();
+                });
+            }
+
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+                Listener<RespT> closing;
+                synchronized (HedgingCall.this) {
+                    done = true;
+                    if (committed == null) {
+                        if (policy.nonFatalStatusCodes.contains(status.getCode()) && !cancelled && !closed) {
+                            // Send the next attempt now, or wait for the outstanding ones
+                            if (attempts.size() < policy.maxAttempts) {
+                                cancelTimer();
+                                startAttempt();
+                                return;
+                            }
+                            if (!liveAttempts().isEmpty())
+                                return;
+                        }
+                        commit(this);
+                    }
+                    if (committed != this)
+                        return;
+                    closed = true;
+                    closing = listener;
+                }
+                listenerExecutor.execute(() -> {
+                    listenerClosed = true;
+                    closing.onClose(status, trailers);
+                });
+            }
+
+            // Commits the call to this attempt if none won yet, returns the listener if this attempt won
+            private Listener<RespT> win() {
+                synchronized (HedgingCall.this) {
+                    if (committed == null)
+                        commit(this);
+                    return (committed == this) ? listener : null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.MethodDescriptor;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link Channel} that resolves the channel it delegates to on first use.
+ *
+ * <p>Generated gRPC stubs are final classes, so they can't be proxied to
+ * defer their creation. Giving them a lazy channel defers resolving the
+ * channel, the expensive part, to the stub's first call instead.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class LazyChannel extends Channel {
+
+    private final Supplier<? extends Channel> channelSupplier;
+    private volatile Channel channel;
+
+    /**
+     * Create new lazy channel.
+     *
+     * @param channelSupplier supplies the channel to delegate to, called once
+     */
+    public LazyChannel(Supplier<? extends Channel> channelSupplier) {
+        this.channelSupplier = channelSupplier;
+    }
+
+    /**
+     * Whether the channel to delegate to has been resolved.
+     *
+     * @return {@code true} once the channel has been used
+     */
+    public boolean isResolved() {
+        return channel != null;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> methodDescriptor,
+                                                         CallOptions callOptions) {
+        return getChannel().newCall(methodDescriptor, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return getChannel().authority();
+    }
+
+    private Channel getChannel() {
+        Channel result = channel;
+        if (result == null) {
+            synchronized (this) {
+                result = channel;
+                if (result == null)
+                    channel = result = channelSupplier.get();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link ClientInterceptor} that counts the calls that have been started
+ * but have not yet completed.
+ *
+ * <p>Once {@linkplain #shutdown() shut down}, it rejects new calls, so a
+ * channel can be drained while it's still running, including calls that
+ * are still waiting on name resolution.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class OutstandingCallsInterceptor implements ClientInterceptor {
+
+    private static final Status SHUTDOWN_STATUS = Status.UNAVAILABLE.withDescription("Channel shutdown invoked");
+
+    private final Set<OutstandingCall<?, ?>> outstandingCalls = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutdown;
+
+    /**
+     * Return the number of calls started through this interceptor that have
+     * not yet completed.
+     *
+     * @return the number of outstanding calls
+     */
+    public int getOutstandingCalls() {
+        return outstandingCalls.size();
+    }
+
+    /**
+     * Reject calls started from now on with {@code UNAVAILABLE}.
+     */
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * Wait for the outstanding calls to complete.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of the timeout
+     * @return {@code true} if there are no outstanding calls left
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitNoOutstandingCalls(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (outstandingCalls) {
+            while (!outstandingCalls.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return false;
+                TimeUnit.NANOSECONDS.timedWait(outstandingCalls, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Complete the outstanding calls with status, without waiting for their
+     * channel. The calls themselves are cancelled.
+     *
+     * @param status the status to complete the calls with
+     */
+    public void failOutstandingCalls(Status status) {
+        for (OutstandingCall<?, ?> call : outstandingCalls)
+            call.fail(status);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+
+        return new OutstandingCall<>(next.newCall(method, callOptions), callOptions);
+    }
+
+    private void completed(OutstandingCall<?, ?> call) {
+        if (outstandingCalls.remove(call) && outstandingCalls.isEmpty()) {
+            synchronized (outstandingCalls) {
+                outstandingCalls.notifyAll();
+            }
+        }
+    }
+
+    private final class OutstandingCall<ReqT, RespT> extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+        private final Executor executor;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private Listener<RespT> listener;
+
+        // Set once the call no longer goes through to its delegate
+        private volatile boolean detached;
+
+        private OutstandingCall(ClientCall<ReqT, RespT> delegate, CallOptions callOptions) {
+            super(delegate);
+            this.executor = (callOptions.getExecutor() != null)
+                    ? callOptions.getExecutor() : MoreExecutors.directExecutor();
+        }
+
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+            listener = responseListener;
+            if (shutdown) {
+                closed.set(true);
+                detached = true;
+                executor.execute(() -> responseListener.onClose(SHUTDOWN_STATUS, new Metadata()));
+                return;
+            }
+
+            outstandingCalls.add(this);
+            try {
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        if (!closed.compareAndSet(false, true))
+                            return;
+                        try {
+                            super.onClose(status, trailers);
+                        } finally {
+                            completed(OutstandingCall.this);
+                        }
+                    }
+                }, headers);
+            } catch (RuntimeException | Error e) {
+                completed(this);
+                throw e;
+            }
+        }
+
+        @Override
+        public void request(int numMessages) {
+            if (!detached)
+                super.request(numMessages);
+        }
+
+        @Override
+        public void sendMessage(ReqT message) {
+            if (!detached)
+                super.sendMessage(message);
+        }
+
+        @Override
+        public void halfClose() {
+            if (!detached)
+                super.halfClose();
+        }
+
+        private void fail(Status status) {
+            if (!closed.compareAndSet(false, true))
+                return;
+            detached = true;
+            try {
+                delegate().cancel(status.getDescription(), null);
+            } finally {
+                completed(this);
+                executor.execute(() -> listener.onClose(status, new Metadata()));
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.Attributes;
+import io.grpc.NameResolver;
+
+import java.net.URI;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NameResolver.Factory} decorator whose resolvers
+ * {@linkplain NameResolver#refresh() refresh} their addresses periodically.
+ *
+ * <p>gRPC's DNS resolver only resolves again after a connection fails, so
+ * a channel won't notice servers added to DNS while its existing connections
+ * stay healthy. Periodic refresh picks those servers up.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class PeriodicRefreshNameResolverFactory extends NameResolver.Factory {
+
+    private final NameResolver.Factory delegate;
+    private final ScheduledExecutorService scheduler;
+    private final long intervalNanos;
+
+    /**
+     * Create new periodically refreshing factory.
+     *
+     * @param delegate  the factory creating the resolvers to refresh
+     * @param scheduler the scheduler to run the refreshes on
+     * @param interval  the refresh interval
+     * @param unit      the time unit of the refresh interval
+     */
+    public PeriodicRefreshNameResolverFactory(NameResolver.Factory delegate, ScheduledExecutorService scheduler,
+                                              long interval, TimeUnit unit) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, Attributes params) {
+        NameResolver resolver = delegate.newNameResolver(targetUri, params);
+        return (resolver != null) ? new PeriodicRefreshNameResolver(resolver) : null;
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return delegate.getDefaultScheme();
+    }
+
+    private final class PeriodicRefreshNameResolver extends NameResolver {
+
+        private final NameResolver delegate;
+        private ScheduledFuture<?> refreshTask;
+
+        private PeriodicRefreshNameResolver(NameResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getServiceAuthority() {
+            return delegate.getServiceAuthority();
+        }
+
+        @Override
+        public synchronized void start(Listener listener) {
+            delegate.start(listener);
+            refreshTask = scheduler.scheduleWithFixedDelay(
+                    delegate::refresh, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void refresh() {
+            delegate.refresh();
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            if (refreshTask != null)
+                refreshTask.cancel(false);
+            delegate.shutdown();
+        }
+    }
+}
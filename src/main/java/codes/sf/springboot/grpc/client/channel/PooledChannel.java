@@ -0,0 +1,350 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link ManagedChannel} that spreads calls over a pool of underlying channels,
+ * each with its own HTTP/2 connection.
+ *
+ * <p>A single HTTP/2 connection can carry at most {@code MAX_CONCURRENT_STREAMS}
+ * concurrent calls, as advertised by the server; calls above that limit are
+ * queued on the client. This channel routes each new call to the underlying
+ * channel with the least outstanding calls, and grows the pool (up to
+ * {@code maxSize}) once every channel carries at least {@code scaleUpThreshold}
+ * outstanding calls. When the average number of outstanding calls per
+ * channel would stay at or below {@code scaleDownThreshold} with one channel
+ * less, the least busy channel is removed from the pool (down to
+ * {@code minSize}) and gracefully shut down.
+ *
+ * <p>Calls count as outstanding from their creation, so that calls created
+ * concurrently spread over the pool, and a channel isn't removed between a
+ * call's creation and its start. A call that is neither started nor
+ * cancelled keeps counting.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class PooledChannel extends ManagedChannel {
+
+    // The pool is as available as its most available channel
+    private static final List<ConnectivityState> STATE_PREFERENCE = Arrays.asList(
+            ConnectivityState.READY,
+            ConnectivityState.CONNECTING,
+            ConnectivityState.IDLE,
+            ConnectivityState.TRANSIENT_FAILURE,
+            ConnectivityState.SHUTDOWN);
+
+    private final Supplier<ManagedChannel> channelFactory;
+    private final int minSize;
+    private final int maxSize;
+    private final int scaleUpThreshold;
+    private final int scaleDownThreshold;
+
+    private final Object lock = new Object();
+    private final List<ManagedChannel> retiredChannels = new ArrayList<>();
+    private volatile Entry[] entries;
+    private volatile boolean shutdown;
+
+    /**
+     * Create new pooled channel.
+     *
+     * @param channelFactory     creates the underlying channels
+     * @param minSize            minimum number of underlying channels
+     * @param maxSize            maximum number of underlying channels
+     * @param scaleUpThreshold   outstanding calls per channel at which the pool grows
+     * @param scaleDownThreshold average outstanding calls per channel at which the pool shrinks
+     */
+    public PooledChannel(Supplier<ManagedChannel> channelFactory,
+                         int minSize, int maxSize, int scaleUpThreshold, int scaleDownThreshold) {
+        Assert.notNull(channelFactory, "Channel factory must not be null");
+        Assert.isTrue(minSize > 0, "Minimum pool size must be positive");
+        Assert.isTrue(maxSize >= minSize, "Maximum pool size must not be less than minimum pool size");
+        Assert.isTrue(scaleUpThreshold > 0, "Scale up threshold must be positive");
+        Assert.isTrue(scaleDownThreshold < scaleUpThreshold, "Scale down threshold must be less than scale up threshold");
+
+        this.channelFactory = channelFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.scaleUpThreshold = scaleUpThreshold;
+        this.scaleDownThreshold = scaleDownThreshold;
+
+        Entry[] entries = new Entry[minSize];
+        for (int i = 0; i < minSize; i++)
+            entries[i] = new Entry(channelFactory.get());
+        this.entries = entries;
+    }
+
+    /**
+     * Return the current number of underlying channels in the pool.
+     *
+     * @return the pool size
+     */
+    public int getSize() {
+        return entries.length;
+    }
+
+    /**
+     * Return the number of calls created on this channel that have not yet
+     * completed.
+     *
+     * @return the number of outstanding calls
+     */
+    public int getOutstandingCalls() {
+        int outstanding = 0;
+        for (Entry entry : entries)
+            outstanding += entry.outstandingCalls.get();
+        return outstanding;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+        Entry entry = select();
+        try {
+            return new OutstandingCall<>(entry, entry.channel.newCall(method, callOptions));
+        } catch (RuntimeException | Error e) {
+            release(entry);
+            throw e;
+        }
+    }
+
+    @Override
+    public String authority() {
+        return entries[0].channel.authority();
+    }
+
+    private Entry select() {
+        while (true) {
+            Entry selected = leastOutstanding(entries);
+            if (selected.outstandingCalls.get() >= scaleUpThreshold && entries.length < maxSize && !shutdown)
+                selected = scaleUp();
+
+            // Either the entry is seen retired here, or its retirement sees the call and defers the shutdown
+            selected.outstandingCalls.incrementAndGet();
+            if (!selected.retired)
+                return selected;
+            release(selected);
+        }
+    }
+
+    private Entry scaleUp() {
+        synchronized (lock) {
+            Entry[] current = this.entries;
+            Entry selected = leastOutstanding(current);
+            if (selected.outstandingCalls.get() < scaleUpThreshold || current.length >= maxSize || shutdown)
+                return selected;
+
+            Entry added = new Entry(channelFactory.get());
+            Entry[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = added;
+            this.entries = grown;
+            return added;
+        }
+    }
+
+    private void release(Entry entry) {
+        int outstanding = entry.outstandingCalls.decrementAndGet();
+        if (entry.retired) {
+            // Shutting down more than once has no effect
+            if (outstanding == 0)
+                entry.channel.shutdown();
+            return;
+        }
+
+        Entry[] current = this.entries;
+        if (current.length > minSize && getOutstandingCalls() <= scaleDownThreshold * (current.length - 1))
+            scaleDown();
+    }
+
+    private void scaleDown() {
+        synchronized (lock) {
+            Entry[] current = this.entries;
+            if (current.length <= minSize || getOutstandingCalls() > scaleDownThreshold * (current.length - 1))
+                return;
+
+            Entry removed = leastOutstanding(current);
+            List<Entry> shrunk = new ArrayList<>(Arrays.asList(current));
+            shrunk.remove(removed);
+            this.entries = shrunk.toArray(new Entry[0]);
+
+            // Calls created on the removed channel are allowed to complete, it's shut down after the last one
+            removed.retired = true;
+            if (removed.outstandingCalls.get() == 0)
+                removed.channel.shutdown();
+            retiredChannels.removeIf(ManagedChannel::isTerminated);
+            retiredChannels.add(removed.channel);
+        }
+    }
+
+    private static Entry leastOutstanding(Entry[] entries) {
+        Entry selected = entries[0];
+        int selectedOutstanding = selected.outstandingCalls.get();
+        for (int i = 1; i < entries.length && selectedOutstanding > 0; i++) {
+            int outstanding = entries[i].outstandingCalls.get();
+            if (outstanding < selectedOutstanding) {
+                selected = entries[i];
+                selectedOutstanding = outstanding;
+            }
+        }
+        return selected;
+    }
+
+    private List<ManagedChannel> allChannels() {
+        synchronized (lock) {
+            List<ManagedChannel> channels = new ArrayList<>(retiredChannels);
+            for (Entry entry : entries)
+                channels.add(entry.channel);
+            return channels;
+        }
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        shutdown = true;
+        allChannels().forEach(ManagedChannel::shutdown);
+        return this;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        shutdown = true;
+        allChannels().forEach(ManagedChannel::shutdownNow);
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && allChannels().stream().allMatch(ManagedChannel::isTerminated);
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ManagedChannel channel : allChannels()) {
+            if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public ConnectivityState getState(boolean requestConnection) {
+        ConnectivityState aggregate = null;
+        for (Entry entry : entries) {
+            ConnectivityState state = entry.channel.getState(requestConnection);
+            if (aggregate == null || STATE_PREFERENCE.indexOf(state) < STATE_PREFERENCE.indexOf(aggregate))
+                aggregate = state;
+        }
+        return aggregate;
+    }
+
+    @Override
+    public void notifyWhenStateChanged(ConnectivityState source, Runnable callback) {
+        if (getState(false) != source) {
+            callback.run();
+            return;
+        }
+
+        // Notify once, on the first state change of any underlying channel
+        AtomicBoolean notified = new AtomicBoolean();
+        Runnable once = () -> {
+            if (notified.compareAndSet(false, true))
+                callback.run();
+        };
+        for (Entry entry : entries)
+            entry.channel.notifyWhenStateChanged(entry.channel.getState(false), once);
+    }
+
+    @Override
+    public void resetConnectBackoff() {
+        for (Entry entry : entries)
+            entry.channel.resetConnectBackoff();
+    }
+
+    @Override
+    public void enterIdle() {
+        for (Entry entry : entries)
+            entry.channel.enterIdle();
+    }
+
+    private static final class Entry {
+
+        private final ManagedChannel channel;
+        private final AtomicInteger outstandingCalls = new AtomicInteger();
+        private volatile boolean retired;
+
+        private Entry(ManagedChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final class OutstandingCall<ReqT, RespT>
+            extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+        private final Entry entry;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean started;
+
+        private OutstandingCall(Entry entry, ClientCall<ReqT, RespT> delegate) {
+            super(delegate);
+            this.entry = entry;
+        }
+
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+            started = true;
+            try {
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        try {
+                            super.onClose(status, trailers);
+                        } finally {
+                            release();
+                        }
+                    }
+                }, headers);
+            } catch (RuntimeException | Error e) {
+                release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+            try {
+                super.cancel(message, cause);
+            } finally {
+                // Calls cancelled before they're started are never closed
+                if (!started)
+                    release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true))
+                PooledChannel.this.release(entry);
+        }
+    }
+}
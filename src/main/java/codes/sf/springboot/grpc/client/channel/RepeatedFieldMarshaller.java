@@ -0,0 +1,77 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.protobuf.WireFormat;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Marshals a list of Protobuf messages as a message that has only one
+ * repeated field set, without knowing that message's type.
+ *
+ * <p>Protobuf encodes a repeated message field as one length-delimited
+ * record per element, so the elements are written and read as they are,
+ * and any other field is skipped when reading.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+final class RepeatedFieldMarshaller<T extends MessageLite> implements MethodDescriptor.Marshaller<List<T>> {
+
+    private final int fieldNumber;
+    private final Parser<T> parser;
+
+    RepeatedFieldMarshaller(int fieldNumber, Parser<T> parser) {
+        this.fieldNumber = fieldNumber;
+        this.parser = parser;
+    }
+
+    @Override
+    public InputStream stream(List<T> values) {
+        int size = 0;
+        for (T value : values)
+            size += CodedOutputStream.computeMessageSize(fieldNumber, value);
+
+        byte[] bytes = new byte[size];
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        try {
+            for (T value : values)
+                out.writeMessage(fieldNumber, value);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize repeated field " + fieldNumber, e);
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public List<T> parse(InputStream stream) {
+        CodedInputStream in = CodedInputStream.newInstance(stream);
+        // Limited by the channel's maximum inbound message size instead
+        in.setSizeLimit(Integer.MAX_VALUE);
+
+        List<T> values = new ArrayList<>();
+        try {
+            for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+                if (WireFormat.getTagFieldNumber(tag) == fieldNumber
+                        && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED)
+                    values.add(in.readMessage(parser, ExtensionRegistryLite.getEmptyRegistry()));
+                else
+                    in.skipField(tag);
+            }
+        } catch (IOException e) {
+            throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence").withCause(e).asRuntimeException();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,116 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ClientInterceptor} that counts the attempts made for calls with a
+ * retry or hedging policy.
+ *
+ * <p>Must be installed on the channel below any {@link HedgingInterceptor},
+ * so it sees every attempt rather than every call. Attempts after the first
+ * one of a call carry the {@code grpc-previous-rpc-attempts} header;
+ * they're counted as hedged attempts for methods with a hedging policy, and
+ * as retried attempts otherwise.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class RetryAttemptsInterceptor implements ClientInterceptor {
+
+    // Stateless, so shared by all attempts
+    private static final ClientStreamTracer NOOP_TRACER = new ClientStreamTracer() {
+    };
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retriedAttempts = new LongAdder();
+    private final LongAdder hedgedAttempts = new LongAdder();
+
+    private final ClientStreamTracer.Factory retryTracerFactory = new AttemptCountingFactory(retriedAttempts);
+    private final ClientStreamTracer.Factory hedgingTracerFactory = new AttemptCountingFactory(hedgedAttempts);
+
+    // Method or service names with a hedging policy
+    private final Set<String> hedgedNames;
+    private final ConcurrentMap<MethodDescriptor<?, ?>, ClientStreamTracer.Factory> tracerFactories
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Create new attempt counting interceptor.
+     *
+     * @param hedgedNames full method names and service names that have a
+     *                    hedging policy
+     */
+    public RetryAttemptsInterceptor(Collection<String> hedgedNames) {
+        this.hedgedNames = new HashSet<>(hedgedNames);
+    }
+
+    /**
+     * @return the number of attempts made, including the first attempt of
+     * every call
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    /**
+     * @return the number of attempts made to retry failed calls
+     */
+    public long getRetriedAttempts() {
+        return retriedAttempts.sum();
+    }
+
+    /**
+     * @return the number of hedged attempts made while earlier attempts
+     * were outstanding
+     */
+    public long getHedgedAttempts() {
+        return hedgedAttempts.sum();
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+
+        ClientStreamTracer.Factory tracerFactory = tracerFactories.get(method);
+        if (tracerFactory == null) {
+            tracerFactory = isHedged(method) ? hedgingTracerFactory : retryTracerFactory;
+            tracerFactories.putIfAbsent(method, tracerFactory);
+        }
+
+        return next.newCall(method, callOptions.withStreamTracerFactory(tracerFactory));
+    }
+
+    private boolean isHedged(MethodDescriptor<?, ?> method) {
+        return hedgedNames.contains(method.getFullMethodName())
+                || hedgedNames.contains(MethodDescriptor.extractFullServiceName(method.getFullMethodName()));
+    }
+
+    private final class AttemptCountingFactory extends ClientStreamTracer.Factory {
+
+        private final LongAdder additionalAttempts;
+
+        private AttemptCountingFactory(LongAdder additionalAttempts) {
+            this.additionalAttempts = additionalAttempts;
+        }
+
+        @Override
+        public ClientStreamTracer newClientStreamTracer(CallOptions callOptions, Metadata headers) {
+            attempts.increment();
+            if (headers.containsKey(HedgingInterceptor.PREVIOUS_ATTEMPTS_KEY))
+                additionalAttempts.increment();
+            return NOOP_TRACER;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+import io.grpc.internal.GrpcAttributes;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link NameResolver.Factory} decorator whose resolvers supply a fixed
+ * <a href="https://github.com/grpc/grpc/blob/master/doc/service_config.md">service config</a>
+ * along with their addresses.
+ *
+ * <p>The service config is how gRPC channels learn their retry and
+ * hedging policies. Channels of this gRPC version can only get it from
+ * their name resolver, so this decorator adds it to the addresses resolved
+ * by any resolver, unless the resolver supplied a service config of its
+ * own, e.g. from DNS.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class ServiceConfigNameResolverFactory extends NameResolver.Factory {
+
+    private final NameResolver.Factory delegate;
+    private final Map<String, Object> serviceConfig;
+
+    /**
+     * Create new service config supplying factory.
+     *
+     * @param delegate      the factory creating the resolvers to decorate
+     * @param serviceConfig the service config, in the form of parsed JSON
+     */
+    public ServiceConfigNameResolverFactory(NameResolver.Factory delegate, Map<String, Object> serviceConfig) {
+        this.delegate = delegate;
+        this.serviceConfig = Collections.unmodifiableMap(serviceConfig);
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, Attributes params) {
+        NameResolver resolver = delegate.newNameResolver(targetUri, params);
+        return (resolver != null) ? new ServiceConfigNameResolver(resolver) : null;
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return delegate.getDefaultScheme();
+    }
+
+    private final class ServiceConfigNameResolver extends NameResolver {
+
+        private final NameResolver delegate;
+
+        private ServiceConfigNameResolver(NameResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getServiceAuthority() {
+            return delegate.getServiceAuthority();
+        }
+
+        @Override
+        public void start(Listener listener) {
+            delegate.start(new Listener() {
+                @Override
+                public void onAddresses(List<EquivalentAddressGroup> servers, Attributes attributes) {
+                    if (attributes.get(GrpcAttributes.NAME_RESOLVER_SERVICE_CONFIG) == null)
+                        attributes = attributes.toBuilder()
+                                .set(GrpcAttributes.NAME_RESOLVER_SERVICE_CONFIG, serviceConfig)
+                                .build();
+                    listener.onAddresses(servers, attributes);
+                }
+
+                @Override
+                public void onError(Status error) {
+                    listener.onError(error);
+                }
+            });
+        }
+
+        @Override
+        public void refresh() {
+            delegate.refresh();
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package codes.sf.springboot.grpc.client.channel;
+
+import com.google.common.net.HostAndPort;
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.Status;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.SharedResourceHolder;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * {@link NameResolverProvider} for a static list of server addresses.
+ *
+ * <p>Targets have the form {@code static:///host1:port1,host2:port2}; see
+ * {@link #target(Collection)}. IPv6 hosts are written in brackets, or
+ * without them when the address has no port. Host names are looked up
+ * again every time the channel asks for the addresses to be refreshed.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class StaticNameResolverProvider extends NameResolverProvider {
+
+    public static final String SCHEME = "static";
+
+    /**
+     * Build the target for a static list of addresses.
+     *
+     * @param addresses the server addresses, in {@code host:port} form, with
+     *                  IPv6 hosts in brackets
+     * @return the target
+     */
+    public static String target(Collection<String> addresses) {
+        Assert.notEmpty(addresses, "Addresses must not be empty");
+        try {
+            // Quotes the brackets of IPv6 hosts
+            return new URI(SCHEME, "", "/" + String.join(",", addresses), null).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid addresses " + addresses, e);
+        }
+    }
+
+    @Override
+    protected boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    protected int priority() {
+        return 5;
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, Attributes params) {
+        if (!SCHEME.equals(targetUri.getScheme()))
+            return null;
+
+        String path = targetUri.getPath();
+        Assert.isTrue(path != null && path.startsWith("/"),
+                "Target '" + targetUri + "' must be of the form static:///host1:port1,host2:port2");
+
+        Integer defaultPort = params.get(PARAMS_DEFAULT_PORT);
+        List<HostAndPort> addresses = new ArrayList<>();
+        for (String address : StringUtils.commaDelimitedListToStringArray(path.substring(1)))
+            addresses.add(parseAddress(address, defaultPort));
+
+        String authority = (targetUri.getAuthority() != null) ? targetUri.getAuthority()
+                : GrpcUtil.authorityFromHostAndPort(addresses.get(0).getHost(), addresses.get(0).getPort());
+
+        return new StaticNameResolver(authority, addresses);
+    }
+
+    /**
+     * Host names are looked up on the shared gRPC executor, like
+     * {@code DnsNameResolver} does, as the channel calls the resolver on its
+     * own threads.
+     */
+    private static final class StaticNameResolver extends NameResolver {
+
+        private final String authority;
+        private final List<HostAndPort> addresses;
+
+        // Guarded by this
+        private Listener listener;
+        private ExecutorService executor;
+        private boolean resolving;
+
+        private StaticNameResolver(String authority, List<HostAndPort> addresses) {
+            this.authority = authority;
+            this.addresses = addresses;
+        }
+
+        @Override
+        public String getServiceAuthority() {
+            return authority;
+        }
+
+        @Override
+        public synchronized void start(Listener listener) {
+            Assert.state(this.listener == null, "Already started");
+            this.listener = listener;
+            this.executor = SharedResourceHolder.get(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
+            resolve();
+        }
+
+        @Override
+        public synchronized void refresh() {
+            if (listener != null)
+                resolve();
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            listener = null;
+            if (executor != null)
+                executor = SharedResourceHolder.release(GrpcUtil.SHARED_CHANNEL_EXECUTOR, executor);
+        }
+
+        // Guarded by this
+        private void resolve() {
+            if (resolving)
+                return;
+            resolving = true;
+            executor.execute(this::lookUp);
+        }
+
+        private void lookUp() {
+            try {
+                List<EquivalentAddressGroup> groups = new ArrayList<>(addresses.size());
+                Status error = null;
+                for (HostAndPort address : addresses) {
+                    InetSocketAddress socketAddress = new InetSocketAddress(address.getHost(), address.getPort());
+                    if (socketAddress.isUnresolved()) {
+                        error = Status.UNAVAILABLE.withDescription("Unable to resolve host " + address);
+                        break;
+                    }
+                    groups.add(new EquivalentAddressGroup(socketAddress));
+                }
+
+                Listener current;
+                synchronized (this) {
+                    current = listener;
+                }
+                if (current == null)
+                    return;
+                if (error != null)
+                    current.onError(error);
+                else
+                    current.onAddresses(groups, Attributes.EMPTY);
+            } finally {
+                synchronized (this) {
+                    resolving = false;
+                }
+            }
+        }
+    }
+
+    static HostAndPort parseAddress(String address, Integer defaultPort) {
+        // Also takes IPv6 hosts without brackets, when they have no port
+        HostAndPort hostAndPort = HostAndPort.fromString(address.trim());
+        if (!hostAndPort.hasPort()) {
+            Assert.notNull(defaultPort, "Address '" + address + "' has no port");
+            hostAndPort = hostAndPort.withDefaultPort(defaultPort);
+        }
+        return hostAndPort;
+    }
+
+    static InetSocketAddress toSocketAddress(String address, Integer defaultPort) {
+        HostAndPort hostAndPort = parseAddress(address, defaultPort);
+        return new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort());
+    }
+}
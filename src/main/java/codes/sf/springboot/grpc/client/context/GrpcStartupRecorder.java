@@ -0,0 +1,210 @@
+package codes.sf.springboot.grpc.client.context;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Records timing events for the startup phases of gRPC stubs: scanning the
+ * classpath for stubs, and creating each stub.
+ *
+ * <p>Every event is logged at debug level as it is recorded. Once the
+ * application context is refreshed, a summary listing the slowest stubs is
+ * logged, at info level if {@linkplain #GrpcStartupRecorder(boolean) requested},
+ * at debug level otherwise.
+ *
+ * <p>Stubs not injected during startup, such as lazy or refresh-scoped ones,
+ * record their events when they're created later. Only the first
+ * {@value #MAX_EVENTS} events are kept; later ones are still logged.
+ *
+ * @author Semyon Fishman
+ * @see GrpcStubScanner
+ * @since 0.1.0
+ */
+public class GrpcStartupRecorder implements ApplicationListener<ContextRefreshedEvent> {
+
+    public static final String BEAN_NAME = "grpcStartupRecorder";
+
+    /**
+     * Phase of parsing the scanning annotations, such as
+     * {@link codes.sf.springboot.grpc.client.GrpcStubScan @GrpcStubScan}.
+     */
+    public static final String ANNOTATION_PARSING = "annotation-parsing";
+
+    /**
+     * Phase of scanning the classpath for stubs. Attributes:
+     * {@code classesInspected} and {@code stubsRegistered}.
+     */
+    public static final String SCAN = "scan";
+
+    /**
+     * Phase of creating a single stub, named after the stub type. Attributes:
+     * {@code channelResolutionNanos} and {@code postProcessingNanos}.
+     */
+    public static final String STUB = "stub";
+
+    /**
+     * Maximum number of events kept.
+     */
+    public static final int MAX_EVENTS = 1000;
+
+    private static final int SLOWEST_STUBS = 5;
+
+    private static final Log logger = LogFactory.getLog(GrpcStartupRecorder.class);
+
+    // Guarded by itself
+    private final List<Event> events = new ArrayList<>();
+    private final boolean logSummary;
+
+    /**
+     * Create new startup recorder.
+     *
+     * @param logSummary whether to log the startup summary at info level
+     */
+    public GrpcStartupRecorder(boolean logSummary) {
+        this.logSummary = logSummary;
+    }
+
+    /**
+     * Record a timing event.
+     *
+     * @param event the event
+     */
+    public void record(Event event) {
+        synchronized (events) {
+            if (events.size() < MAX_EVENTS)
+                events.add(event);
+        }
+        if (logger.isDebugEnabled())
+            logger.debug(event);
+    }
+
+    /**
+     * @return the events kept so far, in the order they were recorded
+     */
+    public List<Event> getEvents() {
+        synchronized (events) {
+            return Collections.unmodifiableList(new ArrayList<>(events));
+        }
+    }
+
+    /**
+     * @param phase the phase
+     * @return the events of the given phase, in the order they were recorded
+     */
+    public List<Event> getEvents(String phase) {
+        return getEvents().stream()
+                .filter(event -> event.getPhase().equals(phase))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param limit maximum number of stubs to return
+     * @return stub creation events, slowest first
+     */
+    public List<Event> getSlowestStubs(int limit) {
+        return getEvents(STUB).stream()
+                .sorted(Comparator.comparingLong(Event::getDurationNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (logSummary ? logger.isInfoEnabled() : logger.isDebugEnabled()) {
+            String summary = getSummary();
+            if (logSummary)
+                logger.info(summary);
+            else
+                logger.debug(summary);
+        }
+    }
+
+    String getSummary() {
+        StringBuilder summary = new StringBuilder("gRPC client startup:");
+        for (Event scan : getEvents(SCAN))
+            summary.append(" scanned ").append(scan.getAttributes().get("classesInspected"))
+                    .append(" classes, registered ").append(scan.getAttributes().get("stubsRegistered"))
+                    .append(" stubs in ").append(millis(scan.getDurationNanos())).append(';');
+
+        List<Event> stubs = getEvents(STUB);
+        long stubNanos = stubs.stream().mapToLong(Event::getDurationNanos).sum();
+        summary.append(" created ").append(stubs.size()).append(" stubs in ").append(millis(stubNanos));
+
+        List<Event> slowest = getSlowestStubs(SLOWEST_STUBS);
+        if (!slowest.isEmpty())
+            summary.append("; slowest stubs:");
+        for (Event stub : slowest)
+            summary.append("\n  ").append(stub.getName()).append(' ').append(millis(stub.getDurationNanos()))
+                    .append(" (channel resolution ").append(millis((Long) stub.getAttributes().get("channelResolutionNanos")))
+                    .append(", post-processing ").append(millis((Long) stub.getAttributes().get("postProcessingNanos")))
+                    .append(')');
+        return summary.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f ms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * A timed startup event.
+     */
+    public static final class Event {
+
+        private final String phase;
+        private final String name;
+        private final long durationNanos;
+        private final Map<String, Object> attributes;
+
+        /**
+         * Create new event.
+         *
+         * @param phase         the startup phase, such as {@link #SCAN}
+         * @param name          what the event is about, such as the stub type
+         * @param durationNanos how long the phase took
+         * @param attributes    phase specific measurements
+         */
+        public Event(String phase, String name, long durationNanos, Map<String, Object> attributes) {
+            this.phase = phase;
+            this.name = name;
+            this.durationNanos = durationNanos;
+            this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public String toString() {
+            List<String> fields = new ArrayList<>();
+            fields.add("phase=" + phase);
+            fields.add("name=" + name);
+            fields.add("durationNanos=" + durationNanos);
+            attributes.forEach((key, value) -> fields.add(key + "=" + value));
+            return "GrpcStartupEvent{" + String.join(", ", fields) + "}";
+        }
+    }
+}
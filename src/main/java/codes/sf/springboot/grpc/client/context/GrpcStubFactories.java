@@ -0,0 +1,37 @@
+package codes.sf.springboot.grpc.client.context;
+
+import io.grpc.Channel;
+import io.grpc.stub.AbstractStub;
+
+import java.util.function.Function;
+
+/**
+ * Factories for the stubs nested in a class generated by the
+ * <a href="https://github.com/grpc/grpc-java/tree/master/compiler">
+ * gRPC Java Protobuf Compiler
+ * </a>, generated at build time by
+ * {@link codes.sf.springboot.grpc.client.processor.GrpcStubIndexProcessor}.
+ *
+ * <p>The implementation for a factory class, such as {@code GreeterGrpc},
+ * is the class of the same name followed by {@value #CLASS_NAME_SUFFIX}, in
+ * the same package. Its factories call the static factory methods directly,
+ * without reflection or method handles, which suits ahead-of-time
+ * compilation such as GraalVM native images.
+ *
+ * @author Semyon Fishman
+ * @see GrpcStubFactoryBean#factory(Class, Class)
+ * @since 0.1.0
+ */
+public interface GrpcStubFactories {
+
+    String CLASS_NAME_SUFFIX = "_GrpcStubFactories";
+
+    /**
+     * Get the factory of a stub type.
+     *
+     * @param stubClass the stub type
+     * @return the stub's factory, or {@code null} if the stub type isn't
+     * nested in this factory class
+     */
+    Function<Channel, AbstractStub<?>> getFactory(Class<?> stubClass);
+}
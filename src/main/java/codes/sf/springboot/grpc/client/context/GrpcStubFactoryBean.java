@@ -1,15 +1,23 @@
 package codes.sf.springboot.grpc.client.context;
 
 import codes.sf.springboot.grpc.client.GrpcChannelSource;
-import codes.sf.springboot.grpc.client.autoconfigure.GrpcClientAutoConfiguration;
-import codes.sf.springboot.grpc.client.stubpostprocess.GenericGrpcStubPostProcessor;
+import codes.sf.springboot.grpc.client.channel.LazyChannel;
+import codes.sf.springboot.grpc.client.stubpostprocess.GrpcStubPostProcessorPipeline;
+import io.grpc.Channel;
 import io.grpc.stub.AbstractStub;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.FactoryBean;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Required;
-import org.springframework.util.MethodInvoker;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import static java.util.Arrays.asList;
 
@@ -27,8 +35,11 @@ import static java.util.Arrays.asList;
  * <li>{@code .newXyzFutureStub(Channel)}</li>
  * <li>{@code .newXyzBlockingStub(Channel)}</li>
  * </ul>
- * where <em>Xyz</em> is the stub service name. This factory invokes
- * the appropriate static function via reflection.
+ * where <em>Xyz</em> is the stub service name. The appropriate static
+ * function is looked up once, when the stub's bean definition is registered,
+ * see {@link #factory(Class, Class)}. It's called directly by the
+ * {@link GrpcStubFactories} generated at build time if there are any, and
+ * through a {@link MethodHandle} otherwise.
  *
  * @param <S> the gRPC stub type this factory produces
  * @author Semyon Fishman
@@ -40,15 +51,114 @@ class GrpcStubFactoryBean<S extends AbstractStub<S>> implements FactoryBean<S> {
     private static final List<String> STUB_SUFFIXES
             = asList("BlockingStub", "FutureStub", "Stub");
 
-    private final String factoryClassName;
+    private static final MethodType FACTORY_METHOD_TYPE
+            = MethodType.methodType(AbstractStub.class, Channel.class);
+
     private final Class<S> stubClass;
+    private final Function<Channel, ? extends AbstractStub<?>> factory;
+    private final boolean lazy;
 
     private GrpcChannelSource channelSource;
-    private List<GenericGrpcStubPostProcessor> postProcessors;
-
-    public GrpcStubFactoryBean(String factoryClassName, Class<S> stubClass) {
-        this.factoryClassName = factoryClassName;
+    private GrpcStubPostProcessorPipeline postProcessorPipeline;
+    private GrpcStartupRecorder startupRecorder;
+
+    /**
+     * Create new stub factory bean.
+     *
+     * @param stubClass the stub type
+     * @param factory   the stub's factory, as returned by
+     *                  {@link #factory(Class, Class)}
+     * @param lazy      whether to resolve the stub's channel on its first
+     *                  call, rather than when creating the stub
+     */
+    public GrpcStubFactoryBean(Class<S> stubClass, Function<Channel, ? extends AbstractStub<?>> factory, boolean lazy) {
         this.stubClass = stubClass;
+        this.factory = factory;
+        this.lazy = lazy;
+    }
+
+    /**
+     * Look up the factory of a stub type: the generated
+     * {@link GrpcStubFactories} of the factory class if present, its static
+     * factory method otherwise.
+     *
+     * @param factoryClass the generated class enclosing the stub
+     * @param stubClass    the stub type
+     * @return the stub's factory
+     * @throws IllegalArgumentException if the factory class doesn't have a
+     *                                  public factory method for the stub type
+     */
+    public static Function<Channel, AbstractStub<?>> factory(Class<?> factoryClass, Class<?> stubClass) {
+
+        Assert.notNull(factoryClass, "gRPC stub type " + stubClass.getName() + " is not nested in a generated class");
+
+        GrpcStubFactories generated = generatedFactories(factoryClass);
+        if (generated != null) {
+            Function<Channel, AbstractStub<?>> factory = generated.getFactory(stubClass);
+            if (factory != null)
+                return factory;
+        }
+
+        return factory(factoryMethod(factoryClass, stubClass), stubClass);
+    }
+
+    private static GrpcStubFactories generatedFactories(Class<?> factoryClass) {
+        String className = factoryClass.getName() + GrpcStubFactories.CLASS_NAME_SUFFIX;
+        if (!ClassUtils.isPresent(className, factoryClass.getClassLoader()))
+            return null;
+
+        Class<?> generatedClass = ClassUtils.resolveClassName(className, factoryClass.getClassLoader());
+        if (!GrpcStubFactories.class.isAssignableFrom(generatedClass))
+            return null;
+        return (GrpcStubFactories) BeanUtils.instantiateClass(generatedClass);
+    }
+
+    /**
+     * Adapt a stub's static factory method to a factory.
+     *
+     * @param factoryMethod the stub's static factory method, as returned by
+     *                      {@link #factoryMethod(Class, Class)}
+     * @param stubClass     the stub type
+     * @return the stub's factory
+     */
+    static Function<Channel, AbstractStub<?>> factory(MethodHandle factoryMethod, Class<?> stubClass) {
+        return channel -> {
+            try {
+                return (AbstractStub<?>) factoryMethod.invokeExact(channel);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to create gRPC stub " + stubClass.getName(), t);
+            }
+        };
+    }
+
+    /**
+     * Look up the static factory method of a stub type.
+     *
+     * @param factoryClass the generated class enclosing the stub
+     * @param stubClass    the stub type
+     * @return handle to the factory method, of type {@code (Channel)AbstractStub}
+     * @throws IllegalArgumentException if the factory class doesn't have a
+     *                                  public factory method for the stub type
+     */
+    public static MethodHandle factoryMethod(Class<?> factoryClass, Class<?> stubClass) {
+
+        Assert.notNull(factoryClass, "gRPC stub type " + stubClass.getName() + " is not nested in a generated class");
+
+        String suffix = STUB_SUFFIXES.stream()
+                .filter(s -> stubClass.getCanonicalName().endsWith(s))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown gRPC stub type " + stubClass.getName()));
+
+        try {
+            return MethodHandles.publicLookup()
+                    .findStatic(factoryClass, "new" + suffix, MethodType.methodType(stubClass, Channel.class))
+                    .asType(FACTORY_METHOD_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("No factory method for gRPC stub type " + stubClass.getName()
+                    + " in " + factoryClass.getName(), e);
+        }
     }
 
     @Required
@@ -57,9 +167,12 @@ class GrpcStubFactoryBean<S extends AbstractStub<S>> implements FactoryBean<S> {
     }
 
     @Required
-    @Qualifier(GrpcClientAutoConfiguration.GENERIC_GRPC_STUB_POST_PROCESSORS_BEAN_NAME)
-    public void setGrpcStubPostProcessors(List<GenericGrpcStubPostProcessor> postProcessors) {
-        this.postProcessors = postProcessors;
+    public void setPostProcessorPipeline(GrpcStubPostProcessorPipeline postProcessorPipeline) {
+        this.postProcessorPipeline = postProcessorPipeline;
+    }
+
+    public void setStartupRecorder(GrpcStartupRecorder startupRecorder) {
+        this.startupRecorder = startupRecorder;
     }
 
     @Override
@@ -71,23 +184,25 @@ class GrpcStubFactoryBean<S extends AbstractStub<S>> implements FactoryBean<S> {
     @SuppressWarnings("unchecked")
     public S getObject() throws Exception {
 
-        String suffix = STUB_SUFFIXES.stream()
-                .filter(s -> stubClass.getCanonicalName().endsWith(s))
-                .findFirst()
-                .get();
+        long start = System.nanoTime();
+        Channel channel = lazy
+                ? new LazyChannel(() -> channelSource.resolve(stubClass))
+                : channelSource.resolve(stubClass);
+        long resolved = System.nanoTime();
 
-        MethodInvoker methodInvoker = new MethodInvoker();
-        methodInvoker.setStaticMethod(factoryClassName + ".new" + suffix);
-        methodInvoker.setArguments(channelSource.resolve(stubClass));
-        methodInvoker.prepare();
+        S stub = (S) factory.apply(channel);
 
-        S stub = (S) methodInvoker.invoke();
+        long created = System.nanoTime();
+        stub = postProcessorPipeline.postProcess(stub);
 
-        for (GenericGrpcStubPostProcessor processor : postProcessors) {
-            if (processor.supportsStubType(stub.getClass()))
-                stub = (S) processor.postProcess(stub);
+        if (startupRecorder != null) {
+            long end = System.nanoTime();
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            attributes.put("channelResolutionNanos", resolved - start);
+            attributes.put("postProcessingNanos", end - created);
+            startupRecorder.record(new GrpcStartupRecorder.Event(GrpcStartupRecorder.STUB,
+                    stubClass.getName(), end - start, attributes));
         }
-
         return stub;
     }
 
@@ -0,0 +1,128 @@
+package codes.sf.springboot.grpc.client.context;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Index of the gRPC stubs on the classpath, written at build time by
+ * {@link codes.sf.springboot.grpc.client.processor.GrpcStubIndexProcessor}.
+ *
+ * <p>Every classpath root, directory or jar, compiled with the processor
+ * has an index file at {@value #INDEX_LOCATION}. For classes under such a
+ * root, the index tells whether they're stubs without reading their class
+ * files. Classes under roots without an index are unknown to the index, and
+ * have to be scanned, unless the scanner only
+ * {@linkplain GrpcStubScanner#setIndexOnly(boolean) registers indexed stubs}.
+ *
+ * @author Semyon Fishman
+ * @see GrpcStubScanner#setStubIndex(GrpcStubIndex)
+ * @since 0.1.0
+ */
+public class GrpcStubIndex {
+
+    /**
+     * Location of the index file in each classpath root. Entries map stub
+     * class names to the names of their enclosing factory classes.
+     */
+    public static final String INDEX_LOCATION = "META-INF/grpc-stubs.properties";
+
+    private static final Log logger = LogFactory.getLog(GrpcStubIndex.class);
+
+    // Classpath root URL -> class file paths of the stubs under it
+    private final Map<String, Set<String>> stubsByRoot;
+    private final Set<String> stubClassNames;
+
+    private GrpcStubIndex(Map<String, Set<String>> stubsByRoot, Set<String> stubClassNames) {
+        this.stubsByRoot = stubsByRoot;
+        this.stubClassNames = stubClassNames;
+    }
+
+    /**
+     * Load the index files on the classpath.
+     *
+     * @param classLoader the class loader to load the index files with
+     * @return the index, or {@code null} if no classpath root has an index
+     */
+    public static GrpcStubIndex load(ClassLoader classLoader) {
+        Map<String, Set<String>> stubsByRoot = new HashMap<>();
+        Set<String> stubClassNames = new TreeSet<>();
+        try {
+            Enumeration<URL> urls = (classLoader != null)
+                    ? classLoader.getResources(INDEX_LOCATION)
+                    : ClassLoader.getSystemResources(INDEX_LOCATION);
+
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                String urlString = url.toString();
+                String root = urlString.substring(0, urlString.length() - INDEX_LOCATION.length());
+
+                Properties properties = PropertiesLoaderUtils.loadProperties(new UrlResource(url));
+                Set<String> stubs = new HashSet<>();
+                for (String stubClassName : properties.stringPropertyNames()) {
+                    stubs.add(stubClassName.replace('.', '/') + ".class");
+                    stubClassNames.add(stubClassName);
+                }
+                stubsByRoot.put(root, stubs);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load gRPC stub index from " + INDEX_LOCATION, e);
+        }
+
+        if (stubsByRoot.isEmpty())
+            return null;
+
+        if (logger.isDebugEnabled())
+            logger.debug("Loaded gRPC stub index for classpath roots " + stubsByRoot.keySet());
+        return new GrpcStubIndex(Collections.unmodifiableMap(stubsByRoot), Collections.unmodifiableSet(stubClassNames));
+    }
+
+    /**
+     * @return the binary names of all indexed stubs, in all classpath roots
+     */
+    public Set<String> getStubClassNames() {
+        return stubClassNames;
+    }
+
+    /**
+     * Look up a class file in the index.
+     *
+     * @param resource the class file
+     * @return whether the class is a stub, or {@code null} if the class'
+     * classpath root has no index
+     */
+    public Boolean isStub(Resource resource) {
+        String url;
+        try {
+            url = resource.getURL().toString();
+        } catch (IOException e) {
+            return null;
+        }
+
+        // Roots may be nested, e.g. BOOT-INF/classes in a Spring Boot jar
+        String matchingRoot = null;
+        for (String root : stubsByRoot.keySet()) {
+            if (url.startsWith(root) && !url.substring(root.length()).contains("!/")
+                    && (matchingRoot == null || root.length() > matchingRoot.length()))
+                matchingRoot = root;
+        }
+
+        if (matchingRoot == null)
+            return null;
+        return stubsByRoot.get(matchingRoot).contains(url.substring(matchingRoot.length()));
+    }
+}
@@ -1,11 +1,47 @@
 package codes.sf.springboot.grpc.client.context;
 
+import codes.sf.springboot.grpc.client.future.CompletableFutureGrpcClient;
+import codes.sf.springboot.grpc.client.reactor.ReactorGrpcClient;
+import io.grpc.Channel;
+import io.grpc.stub.AbstractStub;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.CannotLoadBeanClassException;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.annotation.ClassPathBeanDefinitionScanner;
 import org.springframework.context.annotation.ScannedGenericBeanDefinition;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.springframework.beans.factory.support.AbstractBeanDefinition.AUTOWIRE_BY_TYPE;
 
@@ -17,6 +53,18 @@ import static org.springframework.beans.factory.support.AbstractBeanDefinition.A
  * <p>By default it detects all classes on the classpath that extend
  * {@link io.grpc.stub.AbstractStub}
  *
+ * <p>Given a {@linkplain #setStubIndex(GrpcStubIndex) stub index}, only
+ * the indexed stubs are read from classpath roots that have an index; the
+ * other classes under those roots are skipped without being read. In
+ * {@linkplain #setIndexOnly(boolean) index-only} mode, the indexed stubs are
+ * registered without scanning the classpath at all.
+ *
+ * <p>Along with the async stub of every generated service class
+ * {@code XyzGrpc}, the scanner registers its
+ * {@linkplain codes.sf.springboot.grpc.client.GrpcServiceClient service clients}:
+ * a {@code CompletableFutureGrpcClient<XyzGrpc>}, and a
+ * {@code ReactorGrpcClient<XyzGrpc>} when Reactor is on the classpath. They're lazy, and only create the stub when first injected.
+ *
  * @author Semyon Fishman
  * @see io.grpc.stub.AbstractStub
  * @see <a href="https://grpc.io/docs/tutorials/basic/java.html">
@@ -27,38 +75,320 @@ import static org.springframework.beans.factory.support.AbstractBeanDefinition.A
  */
 public class GrpcStubScanner extends ClassPathBeanDefinitionScanner {
 
+    private static final boolean REACTOR_PRESENT = ClassUtils.isPresent("reactor.core.publisher.Flux",
+            GrpcStubScanner.class.getClassLoader());
+
+    private static final String SERVICE_NAME_FIELD = "SERVICE_NAME";
+
+    private String resourcePattern = "**/*.class";
+    private GrpcStubIndex stubIndex;
+    private boolean indexOnly;
+    private int scanParallelism = 1;
+    private Map<String, Set<BeanDefinition>> prefetchedCandidates;
+    private GrpcStartupRecorder startupRecorder;
+
+    private final AtomicInteger classesInspected = new AtomicInteger();
+    private final AtomicInteger stubsRegistered = new AtomicInteger();
 
     public GrpcStubScanner(BeanDefinitionRegistry registry) {
         super(registry, true);
     }
 
+    /**
+     * Set the index of stubs to consult before reading class files.
+     *
+     * @param stubIndex the stub index, or {@code null} to read all class files
+     */
+    public void setStubIndex(GrpcStubIndex stubIndex) {
+        this.stubIndex = stubIndex;
+    }
+
+    /**
+     * Set whether to register the indexed stubs under the base packages
+     * without scanning the classpath. Classes under classpath roots without
+     * an index aren't found, and include and exclude filters other than the
+     * default are ignored. Suits ahead-of-time compilation, such as GraalVM
+     * native images, where class files can't be scanned.
+     *
+     * @param indexOnly whether to only register indexed stubs; requires a
+     *                  {@linkplain #setStubIndex(GrpcStubIndex) stub index}
+     */
+    public void setIndexOnly(boolean indexOnly) {
+        this.indexOnly = indexOnly;
+    }
+
+    @Override
+    public void setResourcePattern(String resourcePattern) {
+        super.setResourcePattern(resourcePattern);
+        this.resourcePattern = resourcePattern;
+    }
+
     @Override
     protected void registerDefaultFilters() {
         addIncludeFilter(new AssignableTypeFilter(io.grpc.stub.AbstractStub.class));
     }
 
+    /**
+     * Set the number of base packages to scan in parallel. Bean definitions
+     * are still registered on the calling thread, in the order of the base
+     * packages.
+     *
+     * @param scanParallelism the number of scanning threads; {@code 1},
+     *                        the default, scans on the calling thread
+     */
+    public void setScanParallelism(int scanParallelism) {
+        Assert.isTrue(scanParallelism > 0, "Scan parallelism must be positive");
+        this.scanParallelism = scanParallelism;
+    }
+
+    /**
+     * Set the recorder to report the scan's duration, the number of classes
+     * inspected and the number of stubs registered to.
+     *
+     * @param startupRecorder the startup recorder, or {@code null} for none
+     */
+    public void setStartupRecorder(GrpcStartupRecorder startupRecorder) {
+        this.startupRecorder = startupRecorder;
+    }
+
+    /**
+     * @return the number of class files read so far
+     */
+    public int getClassesInspected() {
+        return classesInspected.get();
+    }
+
+    /**
+     * @return the number of stub bean definitions registered so far
+     */
+    public int getStubsRegistered() {
+        return stubsRegistered.get();
+    }
+
+    @Override
+    protected Set<BeanDefinitionHolder> doScan(String... basePackages) {
+        if (startupRecorder == null)
+            return scanPackages(basePackages);
+
+        long start = System.nanoTime();
+        int classesBefore = classesInspected.get();
+        int stubsBefore = stubsRegistered.get();
+
+        Set<BeanDefinitionHolder> holders = scanPackages(basePackages);
+
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("classesInspected", classesInspected.get() - classesBefore);
+        attributes.put("stubsRegistered", stubsRegistered.get() - stubsBefore);
+        startupRecorder.record(new GrpcStartupRecorder.Event(GrpcStartupRecorder.SCAN,
+                String.join(",", basePackages), System.nanoTime() - start, attributes));
+        return holders;
+    }
+
+    private Set<BeanDefinitionHolder> scanPackages(String... basePackages) {
+        if (scanParallelism == 1 || basePackages.length < 2)
+            return super.doScan(basePackages);
+
+        // The default caching factory reads class files one at a time, under its cache's lock
+        MetadataReaderFactory metadataReaderFactory = getMetadataReaderFactory();
+        setMetadataReaderFactory(new ConcurrentMetadataReaderFactory(getResourceLoader()));
+
+        // Find the candidates in parallel, then let doScan register them in order
+        try {
+            prefetchedCandidates = findCandidateComponentsInParallel(basePackages);
+        } finally {
+            setMetadataReaderFactory(metadataReaderFactory);
+        }
+        try {
+            return super.doScan(basePackages);
+        } finally {
+            prefetchedCandidates = null;
+        }
+    }
+
+    private Map<String, Set<BeanDefinition>> findCandidateComponentsInParallel(String[] basePackages) {
+
+        // Worker threads load classes like the calling thread would
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(scanParallelism, basePackages.length), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("grpc-stub-scanner-" + thread.getPoolIndex());
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        }, null, false);
+
+        try {
+            Map<String, Future<Set<BeanDefinition>>> futures = new LinkedHashMap<>();
+            for (String basePackage : basePackages)
+                futures.putIfAbsent(basePackage, pool.submit(() -> scanCandidateComponents(basePackage)));
+
+            Map<String, Set<BeanDefinition>> candidates = new HashMap<>();
+            for (Map.Entry<String, Future<Set<BeanDefinition>>> entry : futures.entrySet())
+                candidates.put(entry.getKey(), entry.getValue().get());
+            return candidates;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeanDefinitionStoreException("Interrupted during classpath scanning", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new BeanDefinitionStoreException("Failure during classpath scanning", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Override
+    public Set<BeanDefinition> findCandidateComponents(String basePackage) {
+        Map<String, Set<BeanDefinition>> prefetched = prefetchedCandidates;
+        if (prefetched != null && prefetched.containsKey(basePackage))
+            return prefetched.get(basePackage);
+        return scanCandidateComponents(basePackage);
+    }
+
+    @Override
+    protected boolean isCandidateComponent(MetadataReader metadataReader) throws IOException {
+        classesInspected.incrementAndGet();
+        return super.isCandidateComponent(metadataReader);
+    }
+
+    private Set<BeanDefinition> scanCandidateComponents(String basePackage) {
+        if (indexOnly && stubIndex != null)
+            return indexedCandidateComponents(basePackage);
+        if (stubIndex == null)
+            return super.findCandidateComponents(basePackage);
+
+        Set<BeanDefinition> candidates = new LinkedHashSet<>();
+        try {
+            String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX
+                    + resolveBasePackage(basePackage) + '/' + resourcePattern;
+            Resource[] resources = ResourcePatternUtils.getResourcePatternResolver(getResourceLoader())
+                    .getResources(packageSearchPath);
+
+            for (Resource resource : resources) {
+                if (!resource.isReadable() || Boolean.FALSE.equals(stubIndex.isStub(resource)))
+                    continue;
+
+                MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(resource);
+                if (isCandidateComponent(metadataReader)) {
+                    ScannedGenericBeanDefinition definition = new ScannedGenericBeanDefinition(metadataReader);
+                    definition.setResource(resource);
+                    definition.setSource(resource);
+                    if (isCandidateComponent(definition)) {
+                        if (logger.isDebugEnabled())
+                            logger.debug("Identified candidate component class: " + resource);
+                        candidates.add(definition);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new BeanDefinitionStoreException("I/O failure during classpath scanning", e);
+        }
+        return candidates;
+    }
+
+    private Set<BeanDefinition> indexedCandidateComponents(String basePackage) {
+        String packagePrefix = basePackage + '.';
+        ClassLoader classLoader = getResourceLoader().getClassLoader();
+
+        Set<BeanDefinition> candidates = new LinkedHashSet<>();
+        for (String stubClassName : stubIndex.getStubClassNames()) {
+            if (!stubClassName.startsWith(packagePrefix))
+                continue;
+
+            AnnotatedGenericBeanDefinition definition;
+            try {
+                definition = new AnnotatedGenericBeanDefinition(ClassUtils.forName(stubClassName, classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new BeanDefinitionStoreException("Indexed gRPC stub " + stubClassName + " can't be loaded", e);
+            }
+            if (isCandidateComponent(definition)) {
+                if (logger.isDebugEnabled())
+                    logger.debug("Identified indexed candidate component class: " + stubClassName);
+                candidates.add(definition);
+            }
+        }
+        return candidates;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected void registerBeanDefinition(BeanDefinitionHolder definitionHolder, BeanDefinitionRegistry registry) {
 
         String beanName = definitionHolder.getBeanName();
-        ScannedGenericBeanDefinition definition = (ScannedGenericBeanDefinition) definitionHolder.getBeanDefinition();
+        AbstractBeanDefinition definition = (AbstractBeanDefinition) definitionHolder.getBeanDefinition();
 
-        String factoryClassName = definition.getMetadata().getEnclosingClassName();
         Class<?> stubClass = resolveBeanClass(beanName, definition);
 
+        // Look up the factory once, rather than every time a stub is created
+        Function<Channel, AbstractStub<?>> factory = GrpcStubFactoryBean.factory(stubClass.getEnclosingClass(), stubClass);
+
         definition.setBeanClass(GrpcStubFactoryBean.class);
-        definition.setInstanceSupplier(() -> new GrpcStubFactoryBean(factoryClassName, stubClass));
+        boolean lazy = definition.isLazyInit();
+        definition.setInstanceSupplier(() -> new GrpcStubFactoryBean(stubClass, factory, lazy));
         definition.setAutowireMode(AUTOWIRE_BY_TYPE);
 
         super.registerBeanDefinition(definitionHolder, registry);
+        stubsRegistered.incrementAndGet();
+
+        if (isServiceStub(stubClass)) {
+            registerServiceClient(CompletableFutureGrpcClient.class, stubClass.getEnclosingClass(), beanName, registry);
+            if (REACTOR_PRESENT)
+                registerServiceClient(ReactorGrpcClient.class, stubClass.getEnclosingClass(), beanName, registry);
+        }
     }
 
-    private Class<?> resolveBeanClass(String beanName, ScannedGenericBeanDefinition definition) {
+    // The async stub of a generated service class, XyzGrpc.XyzStub
+    private static boolean isServiceStub(Class<?> stubClass) {
+        Class<?> serviceClass = stubClass.getEnclosingClass();
+        if (serviceClass == null || !serviceClass.getSimpleName().endsWith("Grpc")
+                || ReflectionUtils.findField(serviceClass, SERVICE_NAME_FIELD, String.class) == null)
+            return false;
+
+        String serviceClassName = serviceClass.getSimpleName();
+        return stubClass.getSimpleName().equals(serviceClassName.substring(0, serviceClassName.length() - 4) + "Stub");
+    }
+
+    private static void registerServiceClient(Class<?> clientClass, Class<?> serviceClass, String stubBeanName,
+                                              BeanDefinitionRegistry registry) {
+
+        // Typed by the service, to be injected as e.g. ReactorGrpcClient<GreeterGrpc>
+        RootBeanDefinition definition = new RootBeanDefinition(clientClass);
+        definition.setTargetType(ResolvableType.forClassWithGenerics(clientClass, serviceClass));
+        definition.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference(stubBeanName));
+        definition.setLazyInit(true);
+
+        registry.registerBeanDefinition(serviceClass.getName() + "#" + clientClass.getSimpleName(), definition);
+    }
+
+    private Class<?> resolveBeanClass(String beanName, AbstractBeanDefinition definition) {
         try {
             return definition.resolveBeanClass(getResourceLoader().getClassLoader());
         } catch (ClassNotFoundException e) {
             throw new CannotLoadBeanClassException(definition.getResourceDescription(), beanName, definition.getBeanClassName(), e);
         }
     }
+
+    /**
+     * Metadata reader factory that reads class files concurrently, caching
+     * the readers for the duration of a parallel scan.
+     */
+    private static final class ConcurrentMetadataReaderFactory extends SimpleMetadataReaderFactory {
+
+        private final ConcurrentMap<Resource, MetadataReader> metadataReaderCache = new ConcurrentHashMap<>();
+
+        private ConcurrentMetadataReaderFactory(ResourceLoader resourceLoader) {
+            super(resourceLoader);
+        }
+
+        @Override
+        public MetadataReader getMetadataReader(Resource resource) throws IOException {
+            MetadataReader metadataReader = metadataReaderCache.get(resource);
+            if (metadataReader == null) {
+                // Concurrent reads of the same class file are rare, and yield equal readers
+                metadataReader = super.getMetadataReader(resource);
+                metadataReaderCache.putIfAbsent(resource, metadataReader);
+            }
+            return metadataReader;
+        }
+    }
 }
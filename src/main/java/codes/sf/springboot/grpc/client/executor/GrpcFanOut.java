@@ -0,0 +1,111 @@
+package codes.sf.springboot.grpc.client.executor;
+
+import io.grpc.Status;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs blocking gRPC calls concurrently, one task per call, and waits for
+ * all of them to complete.
+ *
+ * <p>Meant for fanning out calls on
+ * {@linkplain io.grpc.stub.AbstractStub blocking stubs}. With an executor
+ * that runs every task on a new virtual thread, see {@link VirtualThreads},
+ * a fan-out can make thousands of concurrent calls without a sized thread
+ * pool:
+ * <pre class="code">
+ * List&lt;HelloReply&gt; replies = fanOut.invokeAll(requests, stub::sayHello);
+ * </pre>
+ *
+ * <p>Auto configuration registers a GrpcFanOut bean on virtual threads when
+ * {@code grpc.client.executor} is {@code virtual}.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class GrpcFanOut {
+
+    private final Executor executor;
+
+    /**
+     * Create new fan-out running the calls on executor.
+     *
+     * @param executor the executor to run the calls on, which should run
+     *                 every task right away, on its own thread
+     */
+    public GrpcFanOut(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the executor the calls run on
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Call once for every request, concurrently, and wait for all the
+     * calls to complete.
+     *
+     * <p>As soon as a call fails, the calls that are still outstanding are
+     * cancelled, by interrupting their threads, and its exception is
+     * thrown.
+     *
+     * @param requests the requests to call with
+     * @param call     the blocking call to make with each request
+     * @param <ReqT>   the request type
+     * @param <RespT>  the response type
+     * @return the responses, in the order of their requests
+     * @throws io.grpc.StatusRuntimeException with status CANCELLED if the
+     *                                        calling thread is interrupted
+     */
+    public <ReqT, RespT> List<RespT> invokeAll(Collection<? extends ReqT> requests,
+                                               Function<? super ReqT, ? extends RespT> call) {
+
+        CompletionService<RespT> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<RespT>> tasks = new ArrayList<>(requests.size());
+        try {
+            for (ReqT request : requests)
+                tasks.add(completionService.submit(() -> call.apply(request)));
+
+            // In order of completion, so the first failure cancels the other calls
+            for (int i = 0; i < tasks.size(); i++)
+                completionService.take().get();
+
+            List<RespT> responses = new ArrayList<>(tasks.size());
+            for (Future<RespT> task : tasks)
+                responses.add(task.get());
+            return responses;
+
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Fan-out was interrupted").withCause(e).asRuntimeException();
+        } catch (CancellationException e) {
+            throw Status.CANCELLED.withDescription("Fan-out call was cancelled").withCause(e).asRuntimeException();
+        } finally {
+            // No-op for the tasks that completed
+            for (Future<RespT> task : tasks)
+                task.cancel(true);
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException)
+            return (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        return new IllegalStateException(cause);
+    }
+}
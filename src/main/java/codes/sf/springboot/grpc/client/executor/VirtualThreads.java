@@ -0,0 +1,79 @@
+package codes.sf.springboot.grpc.client.executor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run every task on a new virtual thread.
+ *
+ * <p>Virtual threads are only available on Java 21 or later, so they're
+ * created reflectively, and this library still runs on Java 8.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public final class VirtualThreads {
+
+    // All null before Java 21
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+    private static final Method NAME = method(builderClass(), "name", String.class, long.class);
+    private static final Method FACTORY = method(builderClass(), "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR
+            = method(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return whether the running JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null && NAME != null && FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that runs every task on a new virtual thread.
+     *
+     * @param namePrefix prefix of the virtual threads' names, followed by a
+     *                   counter
+     * @return the new executor, to be shut down by the caller
+     * @throws IllegalStateException if the running JVM doesn't support
+     *                               virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        if (!isAvailable())
+            throw new IllegalStateException("Virtual threads require Java 21 or later, running on Java "
+                    + System.getProperty("java.specification.version"));
+
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't create virtual thread executor", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Can't create virtual thread executor", e.getCause());
+        }
+    }
+
+    private static Class<?> builderClass() {
+        try {
+            return Class.forName("java.lang.Thread$Builder");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+        if (type == null)
+            return null;
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
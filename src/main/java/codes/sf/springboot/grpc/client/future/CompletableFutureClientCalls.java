@@ -0,0 +1,104 @@
+package codes.sf.springboot.grpc.client.future;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Utility functions for calling unary gRPC methods with
+ * {@link CompletableFuture} results, used by the CompletableFuture stubs
+ * generated by
+ * {@link codes.sf.springboot.grpc.client.processor.GrpcStubIndexProcessor}
+ * and by {@link CompletableFutureGrpcClient}.
+ *
+ * <p>The returned future is completed by the call's listener itself, on the
+ * call's executor, so there's no intermediate future, and no thread hop
+ * other than the one to the call's executor. Cancelling the future cancels
+ * the call.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public final class CompletableFutureClientCalls {
+
+    private CompletableFutureClientCalls() {
+    }
+
+    /**
+     * Call a unary method.
+     *
+     * @param channel     the channel to call on
+     * @param method      the method to call
+     * @param callOptions the call options
+     * @param request     the request message
+     * @param <ReqT>      the request message type
+     * @param <RespT>     the response message type
+     * @return the response, completed when the call completes
+     */
+    public static <ReqT, RespT> CompletableFuture<RespT> unaryCall(Channel channel, MethodDescriptor<ReqT, RespT> method,
+                                                                   CallOptions callOptions, ReqT request) {
+        ClientCall<ReqT, RespT> call = channel.newCall(method, callOptions);
+        CallFuture<RespT> future = new CallFuture<>(call);
+        try {
+            call.start(new UnaryListener<>(future), new Metadata());
+            call.request(1);
+            call.sendMessage(request);
+            call.halfClose();
+        } catch (RuntimeException e) {
+            call.cancel(null, e);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Future of a call's response, which cancels the call when cancelled.
+     */
+    private static final class CallFuture<RespT> extends CompletableFuture<RespT> {
+
+        private final ClientCall<?, RespT> call;
+
+        private CallFuture(ClientCall<?, RespT> call) {
+            this.call = call;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning))
+                return false;
+            call.cancel("Cancelled by caller", null);
+            return true;
+        }
+    }
+
+    private static final class UnaryListener<RespT> extends ClientCall.Listener<RespT> {
+
+        private final CompletableFuture<RespT> future;
+        private RespT response;
+
+        private UnaryListener(CompletableFuture<RespT> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void onMessage(RespT message) {
+            response = message;
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            if (!status.isOk())
+                future.completeExceptionally(status.asRuntimeException(trailers));
+            else if (response == null)
+                future.completeExceptionally(Status.INTERNAL.withDescription("No value received for unary call")
+                        .asRuntimeException(trailers));
+            else
+                future.complete(response);
+        }
+    }
+}
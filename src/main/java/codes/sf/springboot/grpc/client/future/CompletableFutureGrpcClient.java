@@ -0,0 +1,53 @@
+package codes.sf.springboot.grpc.client.future;
+
+import codes.sf.springboot.grpc.client.GrpcServiceClient;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.AbstractStub;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link CompletableFuture} client of a gRPC service, calling its unary
+ * methods through {@link CompletableFutureClientCalls}.
+ *
+ * <p>One is registered for every scanned service, with no build step. The
+ * generated CompletableFuture stubs have a method of each unary gRPC method;
+ * this client takes the method descriptor instead:
+ * <pre class="code">
+ * &#064;Autowired
+ * private CompletableFutureGrpcClient&lt;GreeterGrpc&gt; greeter;
+ *
+ * CompletableFuture&lt;HelloReply&gt; reply = greeter.unaryCall(GreeterGrpc.getSayHelloMethod(), request);
+ * </pre>
+ *
+ * @param <S> the generated class of the service, e.g. {@code GreeterGrpc}
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class CompletableFutureGrpcClient<S> extends GrpcServiceClient<S> {
+
+    /**
+     * Create new CompletableFuture client.
+     *
+     * @param stub a stub of the service, providing the channel and call options
+     */
+    public CompletableFutureGrpcClient(AbstractStub<?> stub) {
+        super(stub);
+    }
+
+    /**
+     * Call a unary method.
+     *
+     * @param method  the method to call
+     * @param request the request message
+     * @param <ReqT>  the request message type
+     * @param <RespT> the response message type
+     * @return the response, completed when the call completes
+     * @throws IllegalArgumentException if the method is of another service or not unary
+     * @see CompletableFutureClientCalls#unaryCall
+     */
+    public <ReqT, RespT> CompletableFuture<RespT> unaryCall(MethodDescriptor<ReqT, RespT> method, ReqT request) {
+        checkMethod(method, MethodDescriptor.MethodType.UNARY);
+        return CompletableFutureClientCalls.unaryCall(getStub().getChannel(), method, getStub().getCallOptions(), request);
+    }
+}
@@ -0,0 +1,501 @@
+package codes.sf.springboot.grpc.client.processor;
+
+import codes.sf.springboot.grpc.client.context.GrpcStubFactories;
+import codes.sf.springboot.grpc.client.context.GrpcStubIndex;
+import codes.sf.springboot.grpc.client.future.CompletableFutureClientCalls;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor writing the {@link GrpcStubIndex gRPC stub index}
+ * of the classes being compiled.
+ *
+ * <p>The processor looks at every class being compiled, including the
+ * stubs generated by the gRPC Java Protobuf Compiler, and records the
+ * concrete subclasses of {@link io.grpc.stub.AbstractStub} in
+ * {@value GrpcStubIndex#INDEX_LOCATION}. Entries of an existing index are
+ * kept as long as their classes are still stubs, so incremental compilation
+ * doesn't lose stubs that weren't recompiled, nor keep stubs that were
+ * deleted.
+ *
+ * <p>The processor is found on the compile classpath of every project
+ * depending on this library, so it does nothing unless enabled with the
+ * {@code -A}{@value #ENABLED_OPTION}{@code =true} compiler option.
+ *
+ * <p>For ahead-of-time compilation, the processor also generates the
+ * {@link GrpcStubFactories} of every class enclosing stubs, and writes the
+ * reflection configuration GraalVM native images need to load the indexed
+ * stubs and their factories by name, to {@value #REFLECT_CONFIG_LOCATION}.
+ * The factories, like the stubs below, call into this library, so they're
+ * only generated when it's on the compile classpath, not just on the
+ * annotation processor path.
+ *
+ * <p>When <a href="https://projectreactor.io">Reactor</a> is on the compile
+ * classpath, the processor also generates a Reactor stub of every service:
+ * for a service class {@code XyzGrpc}, a {@code ReactorXyzGrpc} class with
+ * a {@code ReactorXyzStub} whose methods return {@code Mono} or
+ * {@code Flux}, calling through
+ * {@link codes.sf.springboot.grpc.client.reactor.ReactorClientCalls}. Being a
+ * stub like any other, it's indexed and scanned along with the generated
+ * ones.
+ *
+ * <p>Likewise, the processor generates a {@code CompletableXyzGrpc} class
+ * with a {@code CompletableXyzStub}, whose unary methods return a
+ * {@link java.util.concurrent.CompletableFuture} completed by the call
+ * itself, see {@link CompletableFutureClientCalls}.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class GrpcStubIndexProcessor extends AbstractProcessor {
+
+    /**
+     * Compiler option enabling the processor.
+     */
+    public static final String ENABLED_OPTION = "grpc.client.stubIndex";
+
+    /**
+     * Location of the GraalVM native image reflection configuration.
+     */
+    public static final String REFLECT_CONFIG_LOCATION = "META-INF/native-image/grpc-stubs/reflect-config.json";
+
+    private static final String ABSTRACT_STUB_CLASS_NAME = "io.grpc.stub.AbstractStub";
+    private static final String CHANNEL_CLASS_NAME = "io.grpc.Channel";
+    private static final String RPC_METHOD_CLASS_NAME = "io.grpc.stub.annotations.RpcMethod";
+    private static final String FLUX_CLASS_NAME = "reactor.core.publisher.Flux";
+    private static final String SERVICE_NAME_FIELD = "SERVICE_NAME";
+
+    // Not referenced as a class, Reactor may not be on the processor's classpath
+    private static final String REACTOR_CLIENT_CALLS_CLASS_NAME
+            = "codes.sf.springboot.grpc.client.reactor.ReactorClientCalls";
+
+    // Order matters, as in GrpcStubFactoryBean
+    private static final List<String> STUB_SUFFIXES = Arrays.asList("BlockingStub", "FutureStub", "Stub");
+
+    // Stub class name -> factory class name
+    private final Map<String, String> stubs = new TreeMap<>();
+
+    // Factory class -> stubs found in the current round
+    private final Map<TypeElement, List<TypeElement>> roundStubs = new LinkedHashMap<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(ENABLED_OPTION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!Boolean.parseBoolean(processingEnv.getOptions().get(ENABLED_OPTION)))
+            return false;
+
+        TypeElement abstractStub = processingEnv.getElementUtils().getTypeElement(ABSTRACT_STUB_CLASS_NAME);
+        if (abstractStub == null)
+            return false;
+
+        TypeMirror abstractStubType = processingEnv.getTypeUtils().erasure(abstractStub.asType());
+        for (Element element : roundEnv.getRootElements())
+            collectStubs(element, abstractStubType);
+
+        // Sources can't be generated in the last round
+        if (!roundEnv.processingOver()) {
+            if (isOnClasspath(GrpcStubFactories.class.getName()))
+                roundStubs.forEach(this::writeFactories);
+            if (isOnClasspath(CompletableFutureClientCalls.class.getName()))
+                roundStubs.keySet().forEach(this::writeCompletableFutureStub);
+            if (isOnClasspath(FLUX_CLASS_NAME) && isOnClasspath(REACTOR_CLIENT_CALLS_CLASS_NAME))
+                roundStubs.keySet().forEach(this::writeReactorStub);
+            roundStubs.clear();
+        }
+
+        if (roundEnv.processingOver()) {
+            Map<String, String> existing = readExistingIndex();
+            // Rewritten even without stubs, all of them may have been deleted
+            if (!stubs.isEmpty() || !existing.isEmpty()) {
+                Map<String, String> index = writeIndex(existing, abstractStubType);
+                writeReflectConfig(index, isOnClasspath(GrpcStubFactories.class.getName()));
+            }
+        }
+
+        // Don't claim the annotations, other processors may want them
+        return false;
+    }
+
+    // The generated sources compile against the compile classpath, not the processor's
+    private boolean isOnClasspath(String className) {
+        return processingEnv.getElementUtils().getTypeElement(className) != null;
+    }
+
+    private void collectStubs(Element element, TypeMirror abstractStubType) {
+        if (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.INTERFACE)
+            return;
+
+        TypeElement type = (TypeElement) element;
+        if (isStub(type, abstractStubType)) {
+            Element factoryClass = type.getEnclosingElement();
+            if (factoryClass instanceof TypeElement) {
+                stubs.put(binaryName(type), binaryName((TypeElement) factoryClass));
+                roundStubs.computeIfAbsent((TypeElement) factoryClass, k -> new ArrayList<>()).add(type);
+            }
+        }
+
+        for (Element enclosed : type.getEnclosedElements())
+            collectStubs(enclosed, abstractStubType);
+    }
+
+    private boolean isStub(TypeElement type, TypeMirror abstractStubType) {
+        return type.getKind() == ElementKind.CLASS
+                && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && processingEnv.getTypeUtils().isSubtype(
+                processingEnv.getTypeUtils().erasure(type.asType()), abstractStubType);
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void writeFactories(TypeElement factoryClass, List<TypeElement> stubTypes) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(factoryClass).getQualifiedName().toString();
+        String binaryName = binaryName(factoryClass);
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + GrpcStubFactories.CLASS_NAME_SUFFIX;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty())
+            source.append("package ").append(packageName).append(";\n\n");
+        source.append("// Generated by ").append(GrpcStubIndexProcessor.class.getName()).append(", do not edit\n")
+                .append("public final class ").append(simpleName)
+                .append(" implements ").append(GrpcStubFactories.class.getName()).append(" {\n\n")
+                .append("    @Override\n")
+                .append("    public java.util.function.Function<io.grpc.Channel, io.grpc.stub.AbstractStub<?>> getFactory(Class<?> stubClass) {\n");
+        for (TypeElement stubType : stubTypes) {
+            String factoryMethod = factoryMethodName(factoryClass, stubType);
+            if (factoryMethod == null || stubType.getModifiers().contains(Modifier.PRIVATE))
+                continue;
+            source.append("        if (stubClass == ").append(stubType.getQualifiedName()).append(".class)\n")
+                    .append("            return ").append(factoryClass.getQualifiedName())
+                    .append("::").append(factoryMethod).append(";\n");
+        }
+        source.append("        return null;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(className, factoryClass).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write gRPC stub factories " + className + ": " + e);
+        }
+    }
+
+    // Same lookup as GrpcStubFactoryBean.factoryMethod(), at compile time
+    private String factoryMethodName(TypeElement factoryClass, TypeElement stubType) {
+        String suffix = STUB_SUFFIXES.stream()
+                .filter(s -> stubType.getSimpleName().toString().endsWith(s))
+                .findFirst()
+                .orElse(null);
+        if (suffix == null)
+            return null;
+
+        String name = "new" + suffix;
+        for (ExecutableElement method : ElementFilter.methodsIn(factoryClass.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(name)
+                    && method.getModifiers().contains(Modifier.STATIC)
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && method.getParameters().size() == 1
+                    && processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType())
+                    .toString().equals(CHANNEL_CLASS_NAME)
+                    && processingEnv.getTypeUtils().isSameType(method.getReturnType(), stubType.asType()))
+                return name;
+        }
+        return null;
+    }
+
+    private void writeReactorStub(TypeElement factoryClass) {
+        StringBuilder methods = new StringBuilder();
+        for (ServiceMethod method : serviceMethods(factoryClass)) {
+            String callMethod;
+            String returnType;
+            String parameterType;
+            String parameterName = "request";
+            switch (method.methodType) {
+                case "UNARY":
+                    callMethod = "unaryCall";
+                    returnType = "reactor.core.publisher.Mono<" + method.responseType + ">";
+                    parameterType = method.requestType;
+                    break;
+                case "SERVER_STREAMING":
+                    callMethod = "serverStreamingCall";
+                    returnType = "reactor.core.publisher.Flux<" + method.responseType + ">";
+                    parameterType = method.requestType;
+                    break;
+                case "CLIENT_STREAMING":
+                    callMethod = "clientStreamingCall";
+                    returnType = "reactor.core.publisher.Mono<" + method.responseType + ">";
+                    parameterType = "org.reactivestreams.Publisher<" + method.requestType + ">";
+                    parameterName = "requests";
+                    break;
+                case "BIDI_STREAMING":
+                    callMethod = "bidiStreamingCall";
+                    returnType = "reactor.core.publisher.Flux<" + method.responseType + ">";
+                    parameterType = "org.reactivestreams.Publisher<" + method.requestType + ">";
+                    parameterName = "requests";
+                    break;
+                default:
+                    continue;
+            }
+            appendStubMethod(methods, factoryClass, method, returnType, parameterType, parameterName,
+                    REACTOR_CLIENT_CALLS_CLASS_NAME + "." + callMethod);
+        }
+        writeStubClass(factoryClass, "Reactor", methods);
+    }
+
+    private void writeCompletableFutureStub(TypeElement factoryClass) {
+        StringBuilder methods = new StringBuilder();
+        for (ServiceMethod method : serviceMethods(factoryClass)) {
+            // A future holds a single response of a single request
+            if (method.methodType.equals("UNARY"))
+                appendStubMethod(methods, factoryClass, method,
+                        "java.util.concurrent.CompletableFuture<" + method.responseType + ">",
+                        method.requestType, "request", CompletableFutureClientCalls.class.getName() + ".unaryCall");
+        }
+        writeStubClass(factoryClass, "Completable", methods);
+    }
+
+    // Methods of a top level XyzGrpc service class, from their method descriptor getters
+    private List<ServiceMethod> serviceMethods(TypeElement factoryClass) {
+        if (factoryClass.getEnclosingElement().getKind() != ElementKind.PACKAGE
+                || !factoryClass.getSimpleName().toString().endsWith("Grpc"))
+            return Collections.emptyList();
+
+        List<ServiceMethod> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(factoryClass.getEnclosedElements())) {
+            String methodType = rpcMethodType(method);
+            String getterName = method.getSimpleName().toString();
+            if (methodType == null || !getterName.startsWith("get") || !getterName.endsWith("Method")
+                    || !method.getModifiers().contains(Modifier.STATIC) || !method.getParameters().isEmpty())
+                continue;
+
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) method.getReturnType()).getTypeArguments();
+            if (typeArguments.size() == 2)
+                methods.add(new ServiceMethod(getterName, methodType,
+                        typeArguments.get(0).toString(), typeArguments.get(1).toString()));
+        }
+        return methods;
+    }
+
+    private static void appendStubMethod(StringBuilder methods, TypeElement factoryClass, ServiceMethod method,
+                                         String returnType, String parameterType, String parameterName,
+                                         String callMethod) {
+        // getSayHelloMethod -> sayHello
+        String getterName = method.getterName;
+        String name = Character.toLowerCase(getterName.charAt(3))
+                + getterName.substring(4, getterName.length() - "Method".length());
+
+        methods.append("\n")
+                .append("        public ").append(returnType).append(" ").append(name)
+                .append("(").append(parameterType).append(" ").append(parameterName).append(") {\n")
+                .append("            return ").append(callMethod).append("(getChannel(), ")
+                .append(factoryClass.getQualifiedName()).append(".").append(getterName)
+                .append("(), getCallOptions(), ").append(parameterName).append(");\n")
+                .append("        }\n");
+    }
+
+    // For service class XyzGrpc, writes class <prefix>XyzGrpc with stub <prefix>XyzStub
+    private void writeStubClass(TypeElement factoryClass, String prefix, StringBuilder methods) {
+        if (methods.length() == 0)
+            return;
+
+        String factorySimpleName = factoryClass.getSimpleName().toString();
+        String serviceName = factorySimpleName.substring(0, factorySimpleName.length() - "Grpc".length());
+        String stubName = prefix + serviceName + "Stub";
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(factoryClass).getQualifiedName().toString();
+        String simpleName = prefix + factorySimpleName;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty())
+            source.append("package ").append(packageName).append(";\n\n");
+        source.append("// Generated by ").append(GrpcStubIndexProcessor.class.getName()).append(", do not edit\n")
+                .append("public final class ").append(simpleName).append(" {\n\n")
+                .append("    private ").append(simpleName).append("() {\n")
+                .append("    }\n\n")
+                .append("    public static ").append(stubName).append(" newStub(io.grpc.Channel channel) {\n")
+                .append("        return new ").append(stubName).append("(channel, io.grpc.CallOptions.DEFAULT);\n")
+                .append("    }\n\n")
+                .append("    public static final class ").append(stubName)
+                .append(" extends io.grpc.stub.AbstractStub<").append(stubName).append("> {\n\n")
+                .append("        private ").append(stubName)
+                .append("(io.grpc.Channel channel, io.grpc.CallOptions callOptions) {\n")
+                .append("            super(channel, callOptions);\n")
+                .append("        }\n\n")
+                .append("        @Override\n")
+                .append("        protected ").append(stubName)
+                .append(" build(io.grpc.Channel channel, io.grpc.CallOptions callOptions) {\n")
+                .append("            return new ").append(stubName).append("(channel, callOptions);\n")
+                .append("        }\n")
+                .append(methods)
+                .append("    }\n")
+                .append("}\n");
+
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(className, factoryClass).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + prefix + " stub " + className + ": " + e);
+        }
+    }
+
+    // Method type of a generated method descriptor getter, or null if it isn't one
+    private String rpcMethodType(ExecutableElement method) {
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(RPC_METHOD_CLASS_NAME))
+                continue;
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("methodType")
+                        && entry.getValue().getValue() instanceof VariableElement)
+                    return ((VariableElement) entry.getValue().getValue()).getSimpleName().toString();
+            }
+        }
+        return null;
+    }
+
+    private Map<String, String> writeIndex(Map<String, String> existing, TypeMirror abstractStubType) {
+        Map<String, String> index = new TreeMap<>();
+        existing.forEach((stubClassName, factoryClassName) -> {
+            // Left out of this compilation, the class is on the classpath unless it was deleted
+            TypeElement type = processingEnv.getElementUtils().getTypeElement(stubClassName.replace('$', '.'));
+            if (type != null && isStub(type, abstractStubType))
+                index.put(stubClassName, factoryClassName);
+        });
+        index.putAll(stubs);
+
+        // Written by hand, Properties.store() adds a timestamp
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", GrpcStubIndex.INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.ISO_8859_1)) {
+                for (Map.Entry<String, String> entry : index.entrySet())
+                    writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write gRPC stub index " + GrpcStubIndex.INDEX_LOCATION + ": " + e);
+        }
+        return index;
+    }
+
+    private void writeReflectConfig(Map<String, String> index, boolean factoriesGenerated) {
+        Set<String> factoryClassNames = new TreeSet<>(index.values());
+
+        List<String> entries = new ArrayList<>();
+        for (String stubClassName : index.keySet())
+            entries.add("  {\"name\": \"" + stubClassName + "\", \"allPublicMethods\": true}");
+
+        // The channel registry reads the service name, and without factories stubs are created by their factory methods
+        for (String factoryClassName : factoryClassNames)
+            entries.add("  {\"name\": \"" + factoryClassName + "\", "
+                    + (factoriesGenerated ? "" : "\"allPublicMethods\": true, ")
+                    + "\"fields\": [{\"name\": \"" + SERVICE_NAME_FIELD + "\"}]}");
+        if (factoriesGenerated) {
+            for (String factoryClassName : factoryClassNames)
+                entries.add("  {\"name\": \"" + factoryClassName + GrpcStubFactories.CLASS_NAME_SUFFIX
+                        + "\", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]}");
+        }
+
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", REFLECT_CONFIG_LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("[\n" + String.join(",\n", entries) + "\n]\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write native image configuration " + REFLECT_CONFIG_LOCATION + ": " + e);
+        }
+    }
+
+    private Map<String, String> readExistingIndex() {
+        Properties index = new Properties();
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, "", GrpcStubIndex.INDEX_LOCATION);
+            try (InputStream in = file.openInputStream()) {
+                index.load(in);
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // First compilation
+        } catch (IOException | IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "Ignoring unreadable gRPC stub index " + GrpcStubIndex.INDEX_LOCATION + ": " + e);
+        }
+
+        Map<String, String> entries = new TreeMap<>();
+        for (String stubClassName : index.stringPropertyNames())
+            entries.put(stubClassName, index.getProperty(stubClassName));
+        return entries;
+    }
+
+    // A gRPC method, as described by the service class' method descriptor getter
+    private static final class ServiceMethod {
+
+        private final String getterName;
+        private final String methodType;
+        private final String requestType;
+        private final String responseType;
+
+        private ServiceMethod(String getterName, String methodType, String requestType, String responseType) {
+            this.getterName = getterName;
+            this.methodType = methodType;
+            this.requestType = requestType;
+            this.responseType = responseType;
+        }
+    }
+}
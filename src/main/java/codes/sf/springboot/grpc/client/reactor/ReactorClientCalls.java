@@ -0,0 +1,292 @@
+package codes.sf.springboot.grpc.client.reactor;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Utility functions for calling gRPC methods with
+ * <a href="https://projectreactor.io">Reactor</a> types, used by the
+ * Reactor stubs generated by
+ * {@link codes.sf.springboot.grpc.client.processor.GrpcStubIndexProcessor}
+ * and by {@link ReactorGrpcClient}.
+ *
+ * <p>Calls are cold: every subscription starts a new call, and cancelling
+ * the subscription cancels the call. Responses of streaming calls are
+ * requested from the server as the subscriber requests them, and request
+ * messages are only requested from their publisher while the call is ready
+ * to send them, so flow control applies end to end.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public final class ReactorClientCalls {
+
+    private static final String CANCELLED_MESSAGE = "Cancelled by subscriber";
+
+    private ReactorClientCalls() {
+    }
+
+    /**
+     * Call a unary method.
+     *
+     * @param channel     the channel to call on
+     * @param method      the method to call
+     * @param callOptions the call options
+     * @param request     the request message
+     * @param <ReqT>      the request message type
+     * @param <RespT>     the response message type
+     * @return the response, emitted when the call completes
+     */
+    public static <ReqT, RespT> Mono<RespT> unaryCall(Channel channel, MethodDescriptor<ReqT, RespT> method,
+                                                      CallOptions callOptions, ReqT request) {
+        return Mono.create(sink -> {
+            ClientCall<ReqT, RespT> call = channel.newCall(method, callOptions);
+            try {
+                call.start(new MonoListener<>(sink, null), new Metadata());
+                sink.onCancel(() -> call.cancel(CANCELLED_MESSAGE, null));
+                call.request(1);
+                call.sendMessage(request);
+                call.halfClose();
+            } catch (RuntimeException e) {
+                call.cancel(null, e);
+                sink.error(e);
+            }
+        });
+    }
+
+    /**
+     * Call a server streaming method.
+     *
+     * @param channel     the channel to call on
+     * @param method      the method to call
+     * @param callOptions the call options
+     * @param request     the request message
+     * @param <ReqT>      the request message type
+     * @param <RespT>     the response message type
+     * @return the responses, requested from the server on demand
+     */
+    public static <ReqT, RespT> Flux<RespT> serverStreamingCall(Channel channel, MethodDescriptor<ReqT, RespT> method,
+                                                                CallOptions callOptions, ReqT request) {
+        return Flux.create(sink -> {
+            ClientCall<ReqT, RespT> call = channel.newCall(method, callOptions);
+            try {
+                call.start(new FluxListener<>(sink, null), new Metadata());
+                sink.onCancel(() -> call.cancel(CANCELLED_MESSAGE, null));
+                sink.onRequest(n -> call.request(saturatedCast(n)));
+                call.sendMessage(request);
+                call.halfClose();
+            } catch (RuntimeException e) {
+                call.cancel(null, e);
+                sink.error(e);
+            }
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    /**
+     * Call a client streaming method.
+     *
+     * @param channel     the channel to call on
+     * @param method      the method to call
+     * @param callOptions the call options
+     * @param requests    the request messages, requested while the call is
+     *                    ready to send them
+     * @param <ReqT>      the request message type
+     * @param <RespT>     the response message type
+     * @return the response, emitted when the call completes
+     */
+    public static <ReqT, RespT> Mono<RespT> clientStreamingCall(Channel channel, MethodDescriptor<ReqT, RespT> method,
+                                                                CallOptions callOptions, Publisher<ReqT> requests) {
+        return Mono.create(sink -> {
+            ClientCall<ReqT, RespT> call = channel.newCall(method, callOptions);
+            RequestSubscriber<ReqT> requestSubscriber = new RequestSubscriber<>(call);
+            try {
+                call.start(new MonoListener<>(sink, requestSubscriber), new Metadata());
+                sink.onCancel(requestSubscriber::cancelCall);
+                call.request(1);
+                requests.subscribe(requestSubscriber);
+            } catch (RuntimeException e) {
+                requestSubscriber.cancelCall(e);
+                sink.error(e);
+            }
+        });
+    }
+
+    /**
+     * Call a bidirectional streaming method.
+     *
+     * @param channel     the channel to call on
+     * @param method      the method to call
+     * @param callOptions the call options
+     * @param requests    the request messages, requested while the call is
+     *                    ready to send them
+     * @param <ReqT>      the request message type
+     * @param <RespT>     the response message type
+     * @return the responses, requested from the server on demand
+     */
+    public static <ReqT, RespT> Flux<RespT> bidiStreamingCall(Channel channel, MethodDescriptor<ReqT, RespT> method,
+                                                              CallOptions callOptions, Publisher<ReqT> requests) {
+        return Flux.create(sink -> {
+            ClientCall<ReqT, RespT> call = channel.newCall(method, callOptions);
+            RequestSubscriber<ReqT> requestSubscriber = new RequestSubscriber<>(call);
+            try {
+                call.start(new FluxListener<>(sink, requestSubscriber), new Metadata());
+                sink.onCancel(requestSubscriber::cancelCall);
+                sink.onRequest(n -> call.request(saturatedCast(n)));
+                requests.subscribe(requestSubscriber);
+            } catch (RuntimeException e) {
+                requestSubscriber.cancelCall(e);
+                sink.error(e);
+            }
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    // Reactor requests up to Long.MAX_VALUE, gRPC up to Integer.MAX_VALUE
+    private static int saturatedCast(long n) {
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    private static final class MonoListener<RespT> extends ClientCall.Listener<RespT> {
+
+        private final MonoSink<RespT> sink;
+        private final RequestSubscriber<?> requestSubscriber;
+        private RespT response;
+
+        private MonoListener(MonoSink<RespT> sink, RequestSubscriber<?> requestSubscriber) {
+            this.sink = sink;
+            this.requestSubscriber = requestSubscriber;
+        }
+
+        @Override
+        public void onMessage(RespT message) {
+            response = message;
+        }
+
+        @Override
+        public void onReady() {
+            if (requestSubscriber != null)
+                requestSubscriber.requestIfReady();
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            if (requestSubscriber != null)
+                requestSubscriber.dispose();
+
+            if (!status.isOk())
+                sink.error(status.asRuntimeException(trailers));
+            else if (response == null)
+                sink.error(Status.INTERNAL.withDescription("No value received for unary call")
+                        .asRuntimeException(trailers));
+            else
+                sink.success(response);
+        }
+    }
+
+    private static final class FluxListener<RespT> extends ClientCall.Listener<RespT> {
+
+        private final FluxSink<RespT> sink;
+        private final RequestSubscriber<?> requestSubscriber;
+
+        private FluxListener(FluxSink<RespT> sink, RequestSubscriber<?> requestSubscriber) {
+            this.sink = sink;
+            this.requestSubscriber = requestSubscriber;
+        }
+
+        @Override
+        public void onMessage(RespT message) {
+            sink.next(message);
+        }
+
+        @Override
+        public void onReady() {
+            if (requestSubscriber != null)
+                requestSubscriber.requestIfReady();
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            if (requestSubscriber != null)
+                requestSubscriber.dispose();
+
+            if (status.isOk())
+                sink.complete();
+            else
+                sink.error(status.asRuntimeException(trailers));
+        }
+    }
+
+    /**
+     * Sends request messages on a call, requesting them one at a time from
+     * their publisher whenever the call is ready.
+     */
+    private static final class RequestSubscriber<ReqT> extends BaseSubscriber<ReqT> {
+
+        private final ClientCall<ReqT, ?> call;
+
+        // Guarded by this, as are all calls to the call's outbound methods
+        private boolean awaitingMessage;
+
+        private RequestSubscriber(ClientCall<ReqT, ?> call) {
+            this.call = call;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            requestIfReady();
+        }
+
+        @Override
+        protected void hookOnNext(ReqT value) {
+            synchronized (this) {
+                awaitingMessage = false;
+                call.sendMessage(value);
+            }
+            requestIfReady();
+        }
+
+        @Override
+        protected synchronized void hookOnComplete() {
+            call.halfClose();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            cancelCall(throwable);
+        }
+
+        private void requestIfReady() {
+            synchronized (this) {
+                // The call may be ready before the publisher subscribed
+                if (awaitingMessage || upstream() == null || isDisposed() || !call.isReady())
+                    return;
+                awaitingMessage = true;
+            }
+            request(1);
+        }
+
+        private void cancelCall() {
+            dispose();
+            synchronized (this) {
+                call.cancel(CANCELLED_MESSAGE, null);
+            }
+        }
+
+        private void cancelCall(Throwable cause) {
+            dispose();
+            synchronized (this) {
+                call.cancel("Request stream failed", cause);
+            }
+        }
+    }
+}
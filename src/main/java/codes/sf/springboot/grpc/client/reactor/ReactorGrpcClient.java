@@ -0,0 +1,104 @@
+package codes.sf.springboot.grpc.client.reactor;
+
+import codes.sf.springboot.grpc.client.GrpcServiceClient;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.AbstractStub;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactor client of a gRPC service, calling its methods through
+ * {@link ReactorClientCalls}.
+ *
+ * <p>When Reactor is on the classpath, one is registered for every scanned
+ * service, with no build step. The generated Reactor stubs have a method of
+ * each gRPC method; this client takes the method descriptor instead:
+ * <pre class="code">
+ * &#064;Autowired
+ * private ReactorGrpcClient&lt;GreeterGrpc&gt; greeter;
+ *
+ * Mono&lt;HelloReply&gt; reply = greeter.unaryCall(GreeterGrpc.getSayHelloMethod(), request);
+ * </pre>
+ *
+ * @param <S> the generated class of the service, e.g. {@code GreeterGrpc}
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class ReactorGrpcClient<S> extends GrpcServiceClient<S> {
+
+    /**
+     * Create new Reactor client.
+     *
+     * @param stub a stub of the service, providing the channel and call options
+     */
+    public ReactorGrpcClient(AbstractStub<?> stub) {
+        super(stub);
+    }
+
+    /**
+     * Call a unary method.
+     *
+     * @param method  the method to call
+     * @param request the request message
+     * @param <ReqT>  the request message type
+     * @param <RespT> the response message type
+     * @return the response, emitted when the call completes
+     * @throws IllegalArgumentException if the method is of another service or type
+     * @see ReactorClientCalls#unaryCall
+     */
+    public <ReqT, RespT> Mono<RespT> unaryCall(MethodDescriptor<ReqT, RespT> method, ReqT request) {
+        checkMethod(method, MethodDescriptor.MethodType.UNARY);
+        return ReactorClientCalls.unaryCall(getStub().getChannel(), method, getStub().getCallOptions(), request);
+    }
+
+    /**
+     * Call a server streaming method.
+     *
+     * @param method  the method to call
+     * @param request the request message
+     * @param <ReqT>  the request message type
+     * @param <RespT> the response message type
+     * @return the responses, requested from the server on demand
+     * @throws IllegalArgumentException if the method is of another service or type
+     * @see ReactorClientCalls#serverStreamingCall
+     */
+    public <ReqT, RespT> Flux<RespT> serverStreamingCall(MethodDescriptor<ReqT, RespT> method, ReqT request) {
+        checkMethod(method, MethodDescriptor.MethodType.SERVER_STREAMING);
+        return ReactorClientCalls.serverStreamingCall(getStub().getChannel(), method, getStub().getCallOptions(), request);
+    }
+
+    /**
+     * Call a client streaming method.
+     *
+     * @param method   the method to call
+     * @param requests the request messages, requested while the call is
+     *                 ready to send them
+     * @param <ReqT>   the request message type
+     * @param <RespT>  the response message type
+     * @return the response, emitted when the call completes
+     * @throws IllegalArgumentException if the method is of another service or type
+     * @see ReactorClientCalls#clientStreamingCall
+     */
+    public <ReqT, RespT> Mono<RespT> clientStreamingCall(MethodDescriptor<ReqT, RespT> method, Publisher<ReqT> requests) {
+        checkMethod(method, MethodDescriptor.MethodType.CLIENT_STREAMING);
+        return ReactorClientCalls.clientStreamingCall(getStub().getChannel(), method, getStub().getCallOptions(), requests);
+    }
+
+    /**
+     * Call a bidirectional streaming method.
+     *
+     * @param method   the method to call
+     * @param requests the request messages, requested while the call is
+     *                 ready to send them
+     * @param <ReqT>   the request message type
+     * @param <RespT>  the response message type
+     * @return the responses, requested from the server on demand
+     * @throws IllegalArgumentException if the method is of another service or type
+     * @see ReactorClientCalls#bidiStreamingCall
+     */
+    public <ReqT, RespT> Flux<RespT> bidiStreamingCall(MethodDescriptor<ReqT, RespT> method, Publisher<ReqT> requests) {
+        checkMethod(method, MethodDescriptor.MethodType.BIDI_STREAMING);
+        return ReactorClientCalls.bidiStreamingCall(getStub().getChannel(), method, getStub().getCallOptions(), requests);
+    }
+}
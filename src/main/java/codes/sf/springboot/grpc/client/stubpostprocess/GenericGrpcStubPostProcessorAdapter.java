@@ -6,6 +6,9 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.core.ResolvableType;
 import org.springframework.util.Assert;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static org.springframework.core.ResolvableType.forClass;
 
 /**
@@ -19,6 +22,7 @@ public class GenericGrpcStubPostProcessorAdapter implements GenericGrpcStubPostP
 
     private final GrpcStubPostProcessor delegate;
     private final ResolvableType declaredStubType;
+    private final Map<Class<?>, Boolean> supportedStubTypes = new ConcurrentHashMap<>();
 
     public GenericGrpcStubPostProcessorAdapter(GrpcStubPostProcessor delegate) {
         Assert.notNull(delegate, "Delegate GrpcStubPostProcessor must not be null");
@@ -28,8 +32,8 @@ public class GenericGrpcStubPostProcessorAdapter implements GenericGrpcStubPostP
 
     @Override
     public boolean supportsStubType(Class<? extends AbstractStub> stubClass) {
-        ResolvableType stubType = forClass(stubClass);
-        return this.declaredStubType.isAssignableFrom(stubType);
+        return this.supportedStubTypes.computeIfAbsent(stubClass,
+                type -> this.declaredStubType.isAssignableFrom(forClass(type)));
     }
 
     @Override
@@ -0,0 +1,69 @@
+package codes.sf.springboot.grpc.client.stubpostprocess;
+
+import io.grpc.stub.AbstractStub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Applies {@link GenericGrpcStubPostProcessor}s to new gRPC stub instances.
+ *
+ * <p>The post processors supporting a stub type are determined once per
+ * stub type, and composed into a single function that is reused for every
+ * new stub of that type.
+ *
+ * @author Semyon Fishman
+ * @since 0.1.0
+ */
+public class GrpcStubPostProcessorPipeline {
+
+    private final List<GenericGrpcStubPostProcessor> postProcessors;
+    private final Map<Class<?>, UnaryOperator<AbstractStub>> pipelines = new ConcurrentHashMap<>();
+
+    /**
+     * Create new post processor pipeline.
+     *
+     * @param postProcessors the post processors, in the order to apply them
+     */
+    public GrpcStubPostProcessorPipeline(List<? extends GenericGrpcStubPostProcessor> postProcessors) {
+        this.postProcessors = new ArrayList<>(postProcessors);
+    }
+
+    /**
+     * Apply the post processors supporting the stub's type to the stub.
+     *
+     * @param stub the new gRPC stub instance
+     * @param <S>  the gRPC stub type
+     * @return the post processed stub
+     */
+    @SuppressWarnings("unchecked")
+    public <S extends AbstractStub<S>> S postProcess(S stub) {
+        return (S) pipelines.computeIfAbsent(stub.getClass(), this::compile).apply(stub);
+    }
+
+    @SuppressWarnings("unchecked")
+    private UnaryOperator<AbstractStub> compile(Class<?> stubClass) {
+        List<GenericGrpcStubPostProcessor> supported = new ArrayList<>();
+        for (GenericGrpcStubPostProcessor processor : postProcessors) {
+            if (processor.supportsStubType((Class<? extends AbstractStub>) stubClass))
+                supported.add(processor);
+        }
+
+        switch (supported.size()) {
+            case 0:
+                return UnaryOperator.identity();
+            case 1:
+                return supported.get(0)::postProcess;
+            default:
+                GenericGrpcStubPostProcessor[] chain = supported.toArray(new GenericGrpcStubPostProcessor[0]);
+                return stub -> {
+                    for (GenericGrpcStubPostProcessor processor : chain)
+                        stub = processor.postProcess(stub);
+                    return stub;
+                };
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package codes.sf.springboot.grpc.client.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.Attributes;
+import io.grpc.CallCredentials;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloBatchReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloBatchRequest;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class BatchingTests {
+
+    private static final String SERVER_NAME = "BatchingTests";
+
+    private final AtomicInteger unaryCalls = new AtomicInteger();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private static final Metadata.Key<String> USER_KEY = Metadata.Key.of("user", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final List<String> batchUsers = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch batchReleased = new CountDownLatch(0);
+
+    private Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        ServerInterceptor userRecorder = new ServerInterceptor() {
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                         ServerCallHandler<ReqT, RespT> next) {
+                if (call.getMethodDescriptor() == GreeterGrpc.getSayHelloBatchMethod())
+                    batchUsers.add(String.valueOf(headers.get(USER_KEY)));
+                return next.startCall(call, headers);
+            }
+        };
+
+        server = InProcessServerBuilder.forName(SERVER_NAME)
+                .addService(ServerInterceptors.intercept(new GreeterGrpc.GreeterImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        unaryCalls.incrementAndGet();
+                        responseObserver.onNext(reply(request));
+                        responseObserver.onCompleted();
+                    }
+
+                    @Override
+                    public void sayHelloBatch(HelloBatchRequest request, StreamObserver<HelloBatchReply> responseObserver) {
+                        batchSizes.add(request.getRequestsCount());
+                        try {
+                            if (!batchReleased.await(10, TimeUnit.SECONDS))
+                                return;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        HelloBatchReply.Builder replies = HelloBatchReply.newBuilder();
+                        for (HelloRequest helloRequest : request.getRequestsList()) {
+                            if (helloRequest.getName().isEmpty()) {
+                                responseObserver.onError(Status.INVALID_ARGUMENT.asRuntimeException());
+                                return;
+                            }
+                            replies.addReplies(reply(helloRequest));
+                        }
+                        responseObserver.onNext(replies.build());
+                        responseObserver.onCompleted();
+                    }
+                }, userRecorder))
+                .build()
+                .start();
+    }
+
+    @After
+    public void tearDown() {
+        batchReleased.countDown();
+        server.shutdownNow();
+    }
+
+    @Test
+    public void batchingTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.batching[Greeter/SayHello].batchMethod=Greeter/SayHelloBatch",
+                        "grpc.client.batching[Greeter/SayHello].maxSize=10",
+                        "grpc.client.batching[Greeter/SayHello].maxDelay=100ms")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+
+                    List<ListenableFuture<HelloReply>> futures = new ArrayList<>();
+                    for (int i = 0; i < 25; i++)
+                        futures.add(stub.sayHello(request("N" + i)));
+
+                    for (int i = 0; i < 25; i++)
+                        assertThat(futures.get(i).get(10, TimeUnit.SECONDS).getMessage())
+                                .isEqualTo(GreeterService.expectedSayHello("N" + i));
+
+                    // Two full batches, and the rest after the delay
+                    assertThat(unaryCalls).hasValue(0);
+                    assertThat(batchSizes).containsExactlyInAnyOrder(10, 10, 5);
+                })
+        );
+    }
+
+    @Test
+    public void callOptionsTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.batching[Greeter/SayHello].batchMethod=Greeter/SayHelloBatch",
+                        "grpc.client.batching[Greeter/SayHello].maxSize=2",
+                        "grpc.client.batching[Greeter/SayHello].maxDelay=10s")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+                    GreeterGrpc.GreeterFutureStub otherStub = stub.withCallCredentials(new UserCredentials("other"));
+
+                    // Only calls with the same credentials are batched together
+                    List<ListenableFuture<HelloReply>> futures = ImmutableList.of(
+                            stub.sayHello(request("A")), otherStub.sayHello(request("B")),
+                            stub.sayHello(request("C")), otherStub.sayHello(request("D")));
+                    for (ListenableFuture<HelloReply> future : futures)
+                        future.get(10, TimeUnit.SECONDS);
+
+                    assertThat(batchSizes).containsExactly(2, 2);
+                    assertThat(batchUsers).containsExactlyInAnyOrder("null", "other");
+                })
+        );
+    }
+
+    @Test
+    public void blockingStubTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.batching[Greeter/SayHello].batchMethod=Greeter/SayHelloBatch",
+                        "grpc.client.batching[Greeter/SayHello].maxDelay=1ms")
+                .run(context -> {
+                    HelloReply reply = context.getBean(GreeterGrpc.GreeterBlockingStub.class)
+                            .sayHello(request("blocking"));
+
+                    assertThat(reply.getMessage()).isEqualTo(GreeterService.expectedSayHello("blocking"));
+                    assertThat(batchSizes).containsExactly(1);
+                })
+        );
+    }
+
+    @Test
+    public void batchFailureTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.batching[Greeter/SayHello].batchMethod=Greeter/SayHelloBatch",
+                        "grpc.client.batching[Greeter/SayHello].maxSize=2",
+                        "grpc.client.batching[Greeter/SayHello].maxDelay=10s")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+
+                    ListenableFuture<HelloReply> valid = stub.sayHello(request("valid"));
+                    ListenableFuture<HelloReply> invalid = stub.sayHello(request(""));
+
+                    // Both calls fail with their batch
+                    for (ListenableFuture<HelloReply> future : ImmutableList.of(valid, invalid)) {
+                        Throwable thrown = catchThrowable(() -> future.get(10, TimeUnit.SECONDS));
+                        assertThat(thrown).isInstanceOf(ExecutionException.class);
+                        assertThat(Status.fromThrowable(thrown.getCause()).getCode())
+                                .isEqualTo(Status.Code.INVALID_ARGUMENT);
+                    }
+                })
+        );
+    }
+
+    @Test
+    public void cancelTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.batching[Greeter/SayHello].batchMethod=Greeter/SayHelloBatch",
+                        "grpc.client.batching[Greeter/SayHello].maxSize=2",
+                        "grpc.client.batching[Greeter/SayHello].maxDelay=10s")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+
+                    ListenableFuture<HelloReply> cancelled = stub.sayHello(request("cancelled"));
+                    assertThat(cancelled.cancel(true)).isTrue();
+                    assertThat(catchThrowable(cancelled::get)).isInstanceOf(CancellationException.class);
+
+                    // The cancelled call left the batch, so it takes two more calls to fill it
+                    ListenableFuture<HelloReply> first = stub.sayHello(request("A"));
+                    ListenableFuture<HelloReply> second = stub.sayHello(request("B"));
+                    assertThat(first.get(10, TimeUnit.SECONDS).getMessage()).isEqualTo(GreeterService.expectedSayHello("A"));
+                    assertThat(second.get(10, TimeUnit.SECONDS).getMessage()).isEqualTo(GreeterService.expectedSayHello("B"));
+                    assertThat(batchSizes).containsExactly(2);
+                })
+        );
+    }
+
+    @Test
+    public void contextCancelTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.batching[Greeter/SayHello].batchMethod=Greeter/SayHelloBatch",
+                        "grpc.client.batching[Greeter/SayHello].maxSize=2",
+                        "grpc.client.batching[Greeter/SayHello].maxDelay=10s")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+                    batchReleased = new CountDownLatch(1);
+
+                    // A call waiting for its batch ends with its context
+                    Context.CancellableContext waitingContext = Context.current().withCancellation();
+                    ListenableFuture<HelloReply> waiting = waitingContext.call(() -> stub.sayHello(request("waiting")));
+                    waitingContext.cancel(null);
+                    Throwable thrown = catchThrowable(() -> waiting.get(10, TimeUnit.SECONDS));
+                    assertThat(Status.fromThrowable(thrown.getCause()).getCode()).isEqualTo(Status.Code.CANCELLED);
+
+                    // The context of the call filling the batch doesn't cancel the batch
+                    ListenableFuture<HelloReply> other = stub.sayHello(request("A"));
+                    Context.CancellableContext fillingContext = Context.current().withCancellation();
+                    ListenableFuture<HelloReply> filling = fillingContext.call(() -> stub.sayHello(request("B")));
+                    fillingContext.cancel(null);
+                    thrown = catchThrowable(() -> filling.get(10, TimeUnit.SECONDS));
+                    assertThat(Status.fromThrowable(thrown.getCause()).getCode()).isEqualTo(Status.Code.CANCELLED);
+
+                    batchReleased.countDown();
+                    assertThat(other.get(10, TimeUnit.SECONDS).getMessage()).isEqualTo(GreeterService.expectedSayHello("A"));
+                    assertThat(batchSizes).containsExactly(2);
+                })
+        );
+    }
+
+    @Test
+    public void deadlineTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.batching[Greeter/SayHello].batchMethod=Greeter/SayHelloBatch",
+                        "grpc.client.batching[Greeter/SayHello].maxDelay=10s")
+                .run(context -> {
+                    GreeterGrpc.GreeterBlockingStub stub = context.getBean(GreeterGrpc.GreeterBlockingStub.class)
+                            .withDeadlineAfter(100, TimeUnit.MILLISECONDS);
+
+                    Throwable thrown = catchThrowable(() -> stub.sayHello(request("late")));
+
+                    assertThat(thrown).isInstanceOf(StatusRuntimeException.class);
+                    assertThat(((StatusRuntimeException) thrown).getStatus().getCode())
+                            .isEqualTo(Status.Code.DEADLINE_EXCEEDED);
+                    assertThat(batchSizes).isEmpty();
+                })
+        );
+    }
+
+    @Test
+    public void unbatchedMethodTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.batching[Greeter/SayHelloStream].batchMethod=Greeter/SayHelloBatch")
+                .run(context -> {
+                    context.getBean(GreeterGrpc.GreeterBlockingStub.class).sayHello(request("unary"));
+
+                    assertThat(unaryCalls).hasValue(1);
+                    assertThat(batchSizes).isEmpty();
+                })
+        );
+    }
+
+    private static final class UserCredentials implements CallCredentials {
+
+        private final String user;
+
+        private UserCredentials(String user) {
+            this.user = user;
+        }
+
+        @Override
+        public void applyRequestMetadata(MethodDescriptor<?, ?> method, Attributes attrs, Executor appExecutor,
+                                         MetadataApplier applier) {
+            Metadata headers = new Metadata();
+            headers.put(USER_KEY, user);
+            applier.apply(headers);
+        }
+
+        @Override
+        public void thisUsesUnstableApi() {
+        }
+    }
+
+    private static HelloRequest request(String name) {
+        return HelloRequest.newBuilder().setName(name).build();
+    }
+
+    private static HelloReply reply(HelloRequest request) {
+        return HelloReply.newBuilder().setMessage(GreeterService.expectedSayHello(request.getName())).build();
+    }
+}
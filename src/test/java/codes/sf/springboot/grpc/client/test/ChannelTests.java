@@ -1,6 +1,7 @@
 package codes.sf.springboot.grpc.client.test;
 
 import codes.sf.springboot.grpc.client.GrpcChannelSource;
+import codes.sf.springboot.grpc.client.channel.PooledChannel;
 import io.grpc.Channel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.examples.generated.GreeterGrpc;
@@ -11,6 +12,8 @@ import org.springframework.context.annotation.Configuration;
 
 import static codes.sf.springboot.grpc.client.autoconfigure.GrpcClientProperties.DEFAULT_PORT;
 import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.testWithServer;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class ChannelTests {
 
@@ -37,6 +40,74 @@ public class ChannelTests {
         });
     }
 
+    @Test
+    public void namedChannel() {
+        testWithServer(2006, runner -> {
+            runner.withPropertyValues(
+                    "grpc.client.target=localhost:2000",
+                    "grpc.client.channels.greeter.target=localhost:2006",
+                    "grpc.client.channels.greeter.services=Greeter")
+                    .run(context -> {
+                        GrpcTestUtils.assertStubsWork(context);
+
+                        Channel channel = context.getBean(GreeterGrpc.GreeterStub.class).getChannel();
+                        assertSame(channel, context.getBean(GreeterGrpc.GreeterBlockingStub.class).getChannel());
+                        assertSame(channel, context.getBean(GreeterGrpc.GreeterFutureStub.class).getChannel());
+                    });
+        });
+    }
+
+    @Test
+    public void pooledChannel() {
+        testWithServer(2007, runner -> {
+            runner.withPropertyValues(
+                    "grpc.client.target=localhost:2007",
+                    "grpc.client.pool.maxSize=4")
+                    .run(context -> {
+                        GrpcTestUtils.assertStubsWork(context);
+
+                        Channel channel = context.getBean(GreeterGrpc.GreeterStub.class).getChannel();
+                        assertTrue(channel instanceof PooledChannel);
+                    });
+        });
+    }
+
+    @Test
+    public void nioTransportChannel() {
+        testWithServer(2008, runner -> {
+            runner.withPropertyValues(
+                    "grpc.client.target=localhost:2008",
+                    "grpc.client.transport.type=nio",
+                    "grpc.client.transport.eventLoopThreads=2")
+                    .run(GrpcTestUtils::assertStubsWork);
+        });
+    }
+
+    @Test
+    public void epollTransportChannel() {
+        testWithServer(2009, runner -> {
+            runner.withPropertyValues(
+                    "grpc.client.target=localhost:2009",
+                    "grpc.client.transport.type=epoll")
+                    .run(GrpcTestUtils::assertStubsWork);
+        });
+    }
+
+    @Test
+    public void tunedConnectionChannel() {
+        testWithServer(2010, runner -> {
+            runner.withPropertyValues(
+                    "grpc.client.target=localhost:2010",
+                    "grpc.client.flowControlWindow=4194304",
+                    "grpc.client.maxHeaderListSize=16384",
+                    "grpc.client.keepAliveTime=30s",
+                    "grpc.client.keepAliveTimeout=5s",
+                    "grpc.client.keepAliveWithoutCalls=true",
+                    "grpc.client.idleTimeout=10m")
+                    .run(GrpcTestUtils::assertStubsWork);
+        });
+    }
+
     @Test
     public void beanConfiguredChannel() {
         testWithServer(2003, runner -> {
@@ -0,0 +1,436 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.channel.CollapsingInterceptor;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.Attributes;
+import io.grpc.CallCredentials;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CollapsingTests {
+
+    private static final String SERVER_NAME = "CollapsingTests";
+
+    private final AtomicInteger serverCalls = new AtomicInteger();
+    private final CountDownLatch callStarted = new CountDownLatch(1);
+    private final CountDownLatch callCancelled = new CountDownLatch(1);
+    private final CountDownLatch replyReleased = new CountDownLatch(1);
+
+    private Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = InProcessServerBuilder.forName(SERVER_NAME)
+                .addService(new GreeterGrpc.GreeterImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        serverCalls.incrementAndGet();
+                        Context.current().addListener(context -> callCancelled.countDown(), Runnable::run);
+                        callStarted.countDown();
+                        try {
+                            if (!replyReleased.await(10, TimeUnit.SECONDS))
+                                return;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        responseObserver.onNext(HelloReply.newBuilder()
+                                .setMessage(GreeterService.expectedSayHello(request.getName())).build());
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+    }
+
+    @After
+    public void tearDown() {
+        replyReleased.countDown();
+        server.shutdownNow();
+    }
+
+    @Test
+    public void collapsingTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.collapsing=Greeter/SayHello")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+
+                    List<ListenableFuture<HelloReply>> futures = new ArrayList<>();
+                    for (int i = 0; i < 10; i++)
+                        futures.add(stub.sayHello(request("Same")));
+                    ListenableFuture<HelloReply> other = stub.sayHello(request("Other"));
+                    replyReleased.countDown();
+
+                    for (ListenableFuture<HelloReply> future : futures)
+                        assertThat(future.get(10, TimeUnit.SECONDS).getMessage())
+                                .isEqualTo(GreeterService.expectedSayHello("Same"));
+                    assertThat(other.get(10, TimeUnit.SECONDS).getMessage())
+                            .isEqualTo(GreeterService.expectedSayHello("Other"));
+
+                    // One call per distinct request
+                    assertThat(serverCalls).hasValue(2);
+
+                    // Completed calls aren't cached
+                    stub.sayHello(request("Same")).get(10, TimeUnit.SECONDS);
+                    assertThat(serverCalls).hasValue(3);
+                })
+        );
+    }
+
+    @Test
+    public void credentialsTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.collapsing=Greeter/SayHello")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+                    CallCredentials credentials = new UserCredentials("user");
+
+                    // Only calls with the same credentials share a response
+                    List<ListenableFuture<HelloReply>> futures = new ArrayList<>();
+                    futures.add(stub.sayHello(request("Same")));
+                    futures.add(stub.withCallCredentials(credentials).sayHello(request("Same")));
+                    futures.add(stub.withCallCredentials(credentials).sayHello(request("Same")));
+                    replyReleased.countDown();
+
+                    for (ListenableFuture<HelloReply> future : futures)
+                        future.get(10, TimeUnit.SECONDS);
+                    assertThat(serverCalls).hasValue(2);
+                })
+        );
+    }
+
+    @Test
+    public void blockingStubTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.collapsing=Greeter")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub futureStub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+                    ListenableFuture<HelloReply> future = futureStub.sayHello(request("Blocking"));
+                    assertThat(callStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+                    // Joins the call in flight, and waits on its own thread
+                    CountDownLatch blockingStarted = new CountDownLatch(1);
+                    List<HelloReply> blockingReply = new ArrayList<>();
+                    Thread blocking = new Thread(() -> {
+                        blockingStarted.countDown();
+                        blockingReply.add(context.getBean(GreeterGrpc.GreeterBlockingStub.class)
+                                .sayHello(request("Blocking")));
+                    });
+                    blocking.start();
+                    assertThat(blockingStarted.await(10, TimeUnit.SECONDS)).isTrue();
+                    Thread.sleep(100);
+                    replyReleased.countDown();
+
+                    blocking.join(10_000);
+                    assertThat(blockingReply).extracting(HelloReply::getMessage)
+                            .containsExactly(GreeterService.expectedSayHello("Blocking"));
+                    assertThat(future.get(10, TimeUnit.SECONDS).getMessage())
+                            .isEqualTo(GreeterService.expectedSayHello("Blocking"));
+                    assertThat(serverCalls).hasValue(1);
+                })
+        );
+    }
+
+    @Test
+    public void cancelTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.collapsing=Greeter/SayHello")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+
+                    ListenableFuture<HelloReply> first = stub.sayHello(request("Cancel"));
+                    ListenableFuture<HelloReply> second = stub.sayHello(request("Cancel"));
+                    assertThat(callStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+                    // Cancelling one caller leaves the call to the other
+                    assertThat(first.cancel(true)).isTrue();
+                    assertThat(catchThrowable(first::get)).isInstanceOf(CancellationException.class);
+                    assertThat(callCancelled.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+                    // Cancelling the last caller cancels the call
+                    assertThat(second.cancel(true)).isTrue();
+                    assertThat(callCancelled.await(10, TimeUnit.SECONDS)).isTrue();
+                    assertThat(serverCalls).hasValue(1);
+                })
+        );
+    }
+
+    @Test
+    public void deadlineTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.collapsing=Greeter/SayHello")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+
+                    ListenableFuture<HelloReply> patient = stub.sayHello(request("Deadline"));
+                    ListenableFuture<HelloReply> impatient = stub.withDeadlineAfter(100, TimeUnit.MILLISECONDS)
+                            .sayHello(request("Deadline"));
+
+                    // Each caller has its own deadline
+                    Throwable thrown = catchThrowable(() -> impatient.get(10, TimeUnit.SECONDS));
+                    assertThat(thrown).isInstanceOf(ExecutionException.class);
+                    assertThat(Status.fromThrowable(thrown.getCause()).getCode())
+                            .isEqualTo(Status.Code.DEADLINE_EXCEEDED);
+
+                    replyReleased.countDown();
+                    assertThat(patient.get(10, TimeUnit.SECONDS).getMessage())
+                            .isEqualTo(GreeterService.expectedSayHello("Deadline"));
+                    assertThat(serverCalls).hasValue(1);
+                })
+        );
+    }
+
+    @Test
+    public void contextCancelTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.collapsing=Greeter/SayHello")
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+
+                    Context.CancellableContext callerContext = Context.current().withCancellation();
+                    ListenableFuture<HelloReply> cancelled = callerContext.call(() -> stub.sayHello(request("Context")));
+                    ListenableFuture<HelloReply> other = stub.sayHello(request("Context"));
+                    assertThat(callStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+                    // The first caller's context doesn't cancel the shared call
+                    callerContext.cancel(null);
+                    Throwable thrown = catchThrowable(() -> cancelled.get(10, TimeUnit.SECONDS));
+                    assertThat(Status.fromThrowable(thrown.getCause()).getCode()).isEqualTo(Status.Code.CANCELLED);
+
+                    replyReleased.countDown();
+                    assertThat(other.get(10, TimeUnit.SECONDS).getMessage())
+                            .isEqualTo(GreeterService.expectedSayHello("Context"));
+                    assertThat(serverCalls).hasValue(1);
+                })
+        );
+    }
+
+    @Test
+    public void cancelBeforeStartTest() throws Exception {
+        CountDownLatch serializing = new CountDownLatch(1);
+        CountDownLatch serialized = new CountDownLatch(1);
+        AtomicBoolean pauseSerializing = new AtomicBoolean(true);
+        MethodDescriptor.Marshaller<String> marshaller = new MethodDescriptor.Marshaller<String>() {
+            @Override
+            public InputStream stream(String value) {
+                if (pauseSerializing.compareAndSet(true, false)) {
+                    serializing.countDown();
+                    awaitUninterruptibly(serialized);
+                }
+                return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String parse(InputStream stream) {
+                try {
+                    return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        MethodDescriptor<String, String> method = MethodDescriptor.<String, String>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName("Echo/Echo")
+                .setRequestMarshaller(marshaller)
+                .setResponseMarshaller(marshaller)
+                .build();
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            CollapsingInterceptor interceptor = new CollapsingInterceptor(
+                    Collections.singleton("Echo/Echo"), scheduler);
+            Channel channel = new EchoChannel();
+
+            ClientCall<String, String> first = interceptor.interceptCall(method, CallOptions.DEFAULT, channel);
+            CompletableFuture<Status> firstClosed = start(first);
+            ClientCall<String, String> second = interceptor.interceptCall(method, CallOptions.DEFAULT, channel);
+            CompletableFuture<Status> secondClosed = start(second);
+
+            Thread halfClose = new Thread(first::halfClose);
+            halfClose.start();
+            assertThat(serializing.await(10, TimeUnit.SECONDS)).isTrue();
+            synchronized (first) {
+                // The first call creates the flight, then waits on its lock to join it
+                serialized.countDown();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (halfClose.getState() != Thread.State.BLOCKED && System.nanoTime() < deadline)
+                    Thread.sleep(1);
+                assertThat(halfClose.getState()).isEqualTo(Thread.State.BLOCKED);
+
+                // Another call joins, and the first call is cancelled before it started the flight
+                second.halfClose();
+                first.cancel("Cancelled before start", null);
+            }
+            halfClose.join(10_000);
+
+            assertThat(firstClosed.get(10, TimeUnit.SECONDS).getCode()).isEqualTo(Status.Code.CANCELLED);
+            assertThat(secondClosed.get(10, TimeUnit.SECONDS).getCode()).isEqualTo(Status.Code.OK);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void notCollapsedTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    GreeterGrpc.GreeterFutureStub stub = context.getBean(GreeterGrpc.GreeterFutureStub.class);
+
+                    ListenableFuture<HelloReply> first = stub.sayHello(request("Twice"));
+                    ListenableFuture<HelloReply> second = stub.sayHello(request("Twice"));
+                    replyReleased.countDown();
+                    first.get(10, TimeUnit.SECONDS);
+                    second.get(10, TimeUnit.SECONDS);
+
+                    assertThat(serverCalls).hasValue(2);
+                })
+        );
+    }
+
+    private static final class UserCredentials implements CallCredentials {
+
+        private static final Metadata.Key<String> USER_KEY = Metadata.Key.of("user", Metadata.ASCII_STRING_MARSHALLER);
+
+        private final String user;
+
+        private UserCredentials(String user) {
+            this.user = user;
+        }
+
+        @Override
+        public void applyRequestMetadata(MethodDescriptor<?, ?> method, Attributes attrs, Executor appExecutor,
+                                         MetadataApplier applier) {
+            Metadata headers = new Metadata();
+            headers.put(USER_KEY, user);
+            applier.apply(headers);
+        }
+
+        @Override
+        public void thisUsesUnstableApi() {
+        }
+    }
+
+    private static CompletableFuture<Status> start(ClientCall<String, String> call) {
+        CompletableFuture<Status> closed = new CompletableFuture<>();
+        call.start(new ClientCall.Listener<String>() {
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+                closed.complete(status);
+            }
+        }, new Metadata());
+        call.request(1);
+        call.sendMessage("Echo");
+        return closed;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Channel whose calls respond with their request as soon as they're half closed.
+     */
+    private static class EchoChannel extends Channel {
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method,
+                                                             CallOptions callOptions) {
+            return new ClientCall<ReqT, RespT>() {
+
+                private Listener<RespT> listener;
+                private ReqT request;
+
+                @Override
+                public void start(Listener<RespT> listener, Metadata headers) {
+                    this.listener = listener;
+                }
+
+                @Override
+                public void request(int numMessages) {
+                }
+
+                @Override
+                public void cancel(String message, Throwable cause) {
+                }
+
+                @Override
+                public void halfClose() {
+                    listener.onHeaders(new Metadata());
+                    listener.onMessage(method.parseResponse(method.streamRequest(request)));
+                    listener.onClose(Status.OK, new Metadata());
+                }
+
+                @Override
+                public void sendMessage(ReqT message) {
+                    request = message;
+                }
+            };
+        }
+
+        @Override
+        public String authority() {
+            return "echo";
+        }
+    }
+
+    private static HelloRequest request(String name) {
+        return HelloRequest.newBuilder().setName(name).build();
+    }
+}
@@ -0,0 +1,189 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.future.CompletableFutureGrpcClient;
+import io.grpc.Context;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.examples.generated.CompletableGreeterGrpc.CompletableGreeterStub;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CompletableFutureStubTests {
+
+    private static final String SERVER_NAME = "CompletableFutureStubTests";
+
+    private final CountDownLatch callStarted = new CountDownLatch(1);
+    private final CountDownLatch callCancelled = new CountDownLatch(1);
+    private final CountDownLatch replyReleased = new CountDownLatch(1);
+    private volatile String serverThread;
+
+    private Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = InProcessServerBuilder.forName(SERVER_NAME)
+                .addService(new GreeterGrpc.GreeterImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        switch (request.getName()) {
+                            case "":
+                                responseObserver.onError(Status.INVALID_ARGUMENT.asRuntimeException());
+                                break;
+                            case "never":
+                                // Only answers by being cancelled
+                                Context.current().addListener(context -> callCancelled.countDown(), Runnable::run);
+                                callStarted.countDown();
+                                break;
+                            case "direct":
+                                // Replies on this thread, once released
+                                serverThread = Thread.currentThread().getName();
+                                try {
+                                    replyReleased.await(10, TimeUnit.SECONDS);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                responseObserver.onNext(HelloReply.getDefaultInstance());
+                                responseObserver.onCompleted();
+                                break;
+                            default:
+                                responseObserver.onNext(HelloReply.newBuilder()
+                                        .setMessage(GreeterService.expectedSayHello(request.getName())).build());
+                                responseObserver.onCompleted();
+                        }
+                    }
+                })
+                .build()
+                .start();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdownNow();
+    }
+
+    @Test
+    public void unaryTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(CompletableGreeterStub.class);
+                    CompletableGreeterStub stub = context.getBean(CompletableGreeterStub.class);
+
+                    HelloReply reply = stub.sayHello(request("Future")).get(10, TimeUnit.SECONDS);
+
+                    assertThat(reply.getMessage()).isEqualTo(GreeterService.expectedSayHello("Future"));
+                })
+        );
+    }
+
+    @Test
+    public void unaryErrorTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    CompletableGreeterStub stub = context.getBean(CompletableGreeterStub.class);
+
+                    Throwable thrown = catchThrowable(() -> stub.sayHello(request("")).get(10, TimeUnit.SECONDS));
+
+                    assertThat(thrown).isInstanceOf(ExecutionException.class)
+                            .hasCauseInstanceOf(StatusRuntimeException.class);
+                    assertThat(((StatusRuntimeException) thrown.getCause()).getStatus().getCode())
+                            .isEqualTo(Status.Code.INVALID_ARGUMENT);
+                })
+        );
+    }
+
+    @Test
+    public void cancelTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    CompletableGreeterStub stub = context.getBean(CompletableGreeterStub.class);
+
+                    CompletableFuture<HelloReply> future = stub.sayHello(request("never"));
+                    assertThat(callStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+                    assertThat(future.cancel(true)).isTrue();
+
+                    // Cancelling the future cancels the call
+                    assertThat(callCancelled.await(10, TimeUnit.SECONDS)).isTrue();
+                    assertThat(future).isCancelled();
+                })
+        );
+    }
+
+    @Test
+    public void directExecutorTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.executor=direct")
+                .run(context -> {
+                    CompletableGreeterStub stub = context.getBean(CompletableGreeterStub.class);
+
+                    CompletableFuture<String> completingThread = stub.sayHello(request("direct"))
+                            .thenApply(reply -> Thread.currentThread().getName());
+                    replyReleased.countDown();
+
+                    // Dependent stages run on the thread completing the call, without a hop
+                    assertThat(completingThread.get(10, TimeUnit.SECONDS)).isEqualTo(serverThread);
+                })
+        );
+    }
+
+    @Test
+    public void serviceClientTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .withUserConfiguration(ServiceClientUser.class)
+                .run(context -> {
+                    CompletableFutureGrpcClient<GreeterGrpc> client = context.getBean(ServiceClientUser.class).client;
+
+                    HelloReply reply = client.unaryCall(GreeterGrpc.getSayHelloMethod(), request("Client"))
+                            .get(10, TimeUnit.SECONDS);
+                    assertThat(reply.getMessage()).isEqualTo(GreeterService.expectedSayHello("Client"));
+
+                    // Only unary methods of its own service
+                    assertThatThrownBy(() -> client.unaryCall(GreeterGrpc.getSayHelloStreamMethod(), request("Client")))
+                            .isInstanceOf(IllegalArgumentException.class);
+                    assertThatThrownBy(() -> client.unaryCall(HealthGrpc.getCheckMethod(),
+                            HealthCheckRequest.getDefaultInstance()))
+                            .isInstanceOf(IllegalArgumentException.class)
+                            .hasMessageContaining(GreeterGrpc.SERVICE_NAME);
+                })
+        );
+    }
+
+    private static HelloRequest request(String name) {
+        return HelloRequest.newBuilder().setName(name).build();
+    }
+
+    @Configuration
+    static class ServiceClientUser {
+
+        @Autowired
+        private CompletableFutureGrpcClient<GreeterGrpc> client;
+    }
+}
@@ -0,0 +1,165 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.channel.DefaultDeadlineInterceptor;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.stub.StreamObserver;
+import org.junit.Test;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeadlineTests {
+
+    @Test
+    public void globalDeadlinePropertyTest() {
+        test(runner -> runner
+                .withUserConfiguration(RecordingChannelConfiguration.class)
+                .withPropertyValues("grpc.client.deadline=10s")
+                .run(context -> {
+                    sayHello(context.getBean(GreeterGrpc.GreeterStub.class));
+
+                    CallOptions callOptions = context.getBean(RecordingChannel.class).callOptions.get();
+                    assertThat(callOptions.getDeadline()).isNotNull();
+                    assertThat(callOptions.getDeadline().timeRemaining(TimeUnit.SECONDS)).isBetween(8L, 10L);
+                })
+        );
+    }
+
+    @Test
+    public void methodDeadlinePropertyTest() {
+        test(runner -> runner
+                .withUserConfiguration(RecordingChannelConfiguration.class)
+                .withPropertyValues(
+                        "grpc.client.deadline=10s",
+                        "grpc.client.deadlines[Greeter]=100s",
+                        "grpc.client.deadlines[Greeter/SayHello]=1000s")
+                .run(context -> {
+                    sayHello(context.getBean(GreeterGrpc.GreeterStub.class));
+
+                    CallOptions callOptions = context.getBean(RecordingChannel.class).callOptions.get();
+                    assertThat(callOptions.getDeadline().timeRemaining(TimeUnit.SECONDS)).isBetween(990L, 1000L);
+                })
+        );
+    }
+
+    @Test
+    public void explicitDeadlineTest() {
+        test(runner -> runner
+                .withUserConfiguration(RecordingChannelConfiguration.class)
+                .withPropertyValues("grpc.client.deadline=10s")
+                .run(context -> {
+                    GreeterGrpc.GreeterStub stub = context.getBean(GreeterGrpc.GreeterStub.class);
+                    sayHello(stub.withDeadlineAfter(1000, TimeUnit.SECONDS));
+
+                    CallOptions callOptions = context.getBean(RecordingChannel.class).callOptions.get();
+                    assertThat(callOptions.getDeadline().timeRemaining(TimeUnit.SECONDS)).isBetween(990L, 1000L);
+                })
+        );
+    }
+
+    @Test
+    public void noDeadlineTest() {
+        test(runner -> runner
+                .withUserConfiguration(RecordingChannelConfiguration.class)
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean("interceptorsGrpcStubPostProcessor");
+
+                    sayHello(context.getBean(GreeterGrpc.GreeterStub.class));
+                    assertThat(context.getBean(RecordingChannel.class).callOptions.get().getDeadline()).isNull();
+                })
+        );
+    }
+
+    @Test
+    public void serviceDeadlineTest() {
+        RecordingChannel channel = new RecordingChannel();
+        DefaultDeadlineInterceptor interceptor = new DefaultDeadlineInterceptor(null,
+                Collections.singletonMap("Greeter", Duration.ofSeconds(100)));
+
+        // Looked up once, then cached
+        for (int i = 0; i < 2; i++) {
+            interceptor.interceptCall(GreeterGrpc.getSayHelloMethod(), CallOptions.DEFAULT, channel);
+            assertThat(channel.callOptions.get().getDeadline().timeRemaining(TimeUnit.SECONDS)).isBetween(90L, 100L);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeDeadlineTest() {
+        new DefaultDeadlineInterceptor(Duration.ofSeconds(-1), Collections.emptyMap());
+    }
+
+    private static void sayHello(GreeterGrpc.GreeterStub stub) {
+        stub.sayHello(HelloRequest.newBuilder().setName("deadline").build(), new StreamObserver<HelloReply>() {
+            @Override
+            public void onNext(HelloReply value) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+    }
+
+    @Configuration
+    static class RecordingChannelConfiguration {
+        @Bean
+        public RecordingChannel channel() {
+            return new RecordingChannel();
+        }
+    }
+
+    static class RecordingChannel extends Channel {
+
+        final AtomicReference<CallOptions> callOptions = new AtomicReference<>();
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> methodDescriptor,
+                                                             CallOptions callOptions) {
+            this.callOptions.set(callOptions);
+            return new ClientCall<ReqT, RespT>() {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                }
+
+                @Override
+                public void request(int numMessages) {
+                }
+
+                @Override
+                public void cancel(String message, Throwable cause) {
+                }
+
+                @Override
+                public void halfClose() {
+                }
+
+                @Override
+                public void sendMessage(ReqT message) {
+                }
+            };
+        }
+
+        @Override
+        public String authority() {
+            return "recording";
+        }
+    }
+}
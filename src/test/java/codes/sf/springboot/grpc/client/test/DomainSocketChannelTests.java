@@ -0,0 +1,70 @@
+package codes.sf.springboot.grpc.client.test;
+
+import io.grpc.Server;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static org.junit.Assume.assumeTrue;
+
+public class DomainSocketChannelTests {
+
+    private File socketFile;
+    private EventLoopGroup eventLoopGroup;
+    private Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        assumeTrue("Epoll is not available", Epoll.isAvailable());
+
+        socketFile = File.createTempFile("grpc-client-test", ".sock");
+        socketFile.delete();
+
+        eventLoopGroup = new EpollEventLoopGroup(1);
+        server = NettyServerBuilder.forAddress(new DomainSocketAddress(socketFile))
+                .channelType(EpollServerDomainSocketChannel.class)
+                .bossEventLoopGroup(eventLoopGroup)
+                .workerEventLoopGroup(eventLoopGroup)
+                .addService(new GreeterService())
+                .build()
+                .start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (server != null) {
+            server.shutdownNow().awaitTermination();
+            eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+            socketFile.delete();
+        }
+    }
+
+    @Test
+    public void domainSocketTargetTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=unix://" + socketFile.getAbsolutePath())
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+
+    @Test
+    public void nioTransportDomainSocketTargetTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=unix:" + socketFile.getAbsolutePath(),
+                        "grpc.client.transport.type=nio")
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+}
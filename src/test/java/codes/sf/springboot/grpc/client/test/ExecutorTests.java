@@ -0,0 +1,286 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.autoconfigure.GrpcChannelFactory;
+import codes.sf.springboot.grpc.client.executor.GrpcFanOut;
+import codes.sf.springboot.grpc.client.executor.VirtualThreads;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.context.assertj.AssertableApplicationContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.testWithServer;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ExecutorTests {
+
+    private static final String SERVER_NAME = "ExecutorTests";
+
+    private final CountDownLatch slowCancelled = new CountDownLatch(1);
+    private final CountDownLatch slowReleased = new CountDownLatch(1);
+
+    private Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = InProcessServerBuilder.forName(SERVER_NAME)
+                .addService(new GreeterGrpc.GreeterImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        if (request.getName().isEmpty()) {
+                            responseObserver.onError(Status.INVALID_ARGUMENT.asRuntimeException());
+                            return;
+                        }
+                        if (request.getName().equals("slow")) {
+                            Context.current().addListener(context -> slowCancelled.countDown(),
+                                    MoreExecutors.directExecutor());
+                            try {
+                                slowReleased.await(10, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return;
+                            }
+                        }
+                        responseObserver.onNext(HelloReply.newBuilder()
+                                .setMessage(GreeterService.expectedSayHello(request.getName())).build());
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+    }
+
+    @After
+    public void tearDown() {
+        slowReleased.countDown();
+        server.shutdownNow();
+    }
+
+    @Test
+    public void virtualExecutorTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.executor=virtual")
+                .run(context -> {
+                    if (!VirtualThreads.isAvailable()) {
+                        assertThat(context).hasFailed();
+                        assertThat(context.getStartupFailure()).hasStackTraceContaining("Java 21");
+                        return;
+                    }
+
+                    Executor executor = context.getBean(GrpcChannelFactory.class).getExecutor();
+                    GreeterGrpc.GreeterStub stub = context.getBean(GreeterGrpc.GreeterStub.class);
+                    assertThat(stub.getCallOptions().getExecutor())
+                            .isSameAs(executor)
+                            .isSameAs(context.getBean(GrpcFanOut.class).getExecutor());
+
+                    CompletableFuture<String> threadName = new CompletableFuture<>();
+                    executor.execute(() -> threadName.complete(Thread.currentThread().getName()));
+                    assertThat(threadName.get()).startsWith("grpc-client-virtual-");
+                    GrpcTestUtils.assertStubsWork(context);
+                })
+        );
+    }
+
+    @Test
+    public void defaultExecutorTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.executor=default")
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean(GrpcFanOut.class);
+                    assertThat(context.getBean(GrpcChannelFactory.class).getExecutor()).isNull();
+                    assertThat(context.getBean(GreeterGrpc.GreeterStub.class).getCallOptions().getExecutor()).isNull();
+                    GrpcTestUtils.assertStubsWork(context);
+                })
+        );
+    }
+
+    @Test
+    public void directExecutorTest() {
+        testWithServer(2029, runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2029",
+                        "grpc.client.executor=direct")
+                .run(context -> {
+                    GreeterGrpc.GreeterStub stub = context.getBean(GreeterGrpc.GreeterStub.class);
+                    assertThat(stub.getCallOptions().getExecutor()).isSameAs(MoreExecutors.directExecutor());
+
+                    CompletableFuture<String> threadName = new CompletableFuture<>();
+                    stub.sayHello(HelloRequest.newBuilder().setName("direct").build(), new StreamObserver<HelloReply>() {
+                        @Override
+                        public void onNext(HelloReply value) {
+                            threadName.complete(Thread.currentThread().getName());
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            threadName.completeExceptionally(t);
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                        }
+                    });
+
+                    // Callbacks run on the event loop, without a thread hop
+                    assertThat(threadName.get()).startsWith("grpc-client-");
+
+                    // Blocking calls off the event loop aren't affected by the check
+                    GrpcTestUtils.assertStubsWork(context);
+                })
+        );
+    }
+
+    @Test
+    public void blockingCallCheckTest() {
+        testWithServer(2029, runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2029",
+                        "grpc.client.executor=direct",
+                        "grpc.client.blockingCallCheck=fail")
+                .run(ExecutorTests::assertBlockingCallFails)
+        );
+    }
+
+    @Test
+    public void blockingCallCheckCollapsingTest() {
+        // The check sees the calls before they're collapsed
+        testWithServer(2033, runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2033",
+                        "grpc.client.executor=direct",
+                        "grpc.client.blockingCallCheck=fail",
+                        "grpc.client.collapsing=Greeter/SayHello")
+                .run(ExecutorTests::assertBlockingCallFails)
+        );
+    }
+
+    private static void assertBlockingCallFails(AssertableApplicationContext context) throws Exception {
+        GreeterGrpc.GreeterStub stub = context.getBean(GreeterGrpc.GreeterStub.class);
+        GreeterGrpc.GreeterBlockingStub blockingStub = context.getBean(GreeterGrpc.GreeterBlockingStub.class);
+        HelloRequest request = HelloRequest.newBuilder().setName("blocking").build();
+
+        CompletableFuture<Throwable> thrown = new CompletableFuture<>();
+        stub.sayHello(request, new StreamObserver<HelloReply>() {
+            @Override
+            public void onNext(HelloReply value) {
+                thrown.complete(catchThrowable(() -> blockingStub.sayHello(request)));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                thrown.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+
+        assertThat(thrown.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("event loop thread");
+    }
+
+    @Test
+    public void springexecutorConflictTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.springexecutor=true",
+                        "grpc.client.executor=virtual")
+                .run(context -> assertThat(context).hasFailed())
+        );
+    }
+
+    @Test
+    public void fanOutTest() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ManagedChannel channel = InProcessChannelBuilder.forName(SERVER_NAME).build();
+        try {
+            GreeterGrpc.GreeterBlockingStub stub = GreeterGrpc.newBlockingStub(channel);
+            List<HelloRequest> requests = IntStream.range(0, 200)
+                    .mapToObj(i -> HelloRequest.newBuilder().setName("N" + i).build())
+                    .collect(toList());
+
+            List<HelloReply> replies = new GrpcFanOut(executor).invokeAll(requests, stub::sayHello);
+
+            assertThat(replies).extracting(HelloReply::getMessage)
+                    .containsExactlyElementsOf(IntStream.range(0, 200)
+                            .mapToObj(i -> GreeterService.expectedSayHello("N" + i))
+                            .collect(toList()));
+        } finally {
+            channel.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fanOutFailureTest() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ManagedChannel channel = InProcessChannelBuilder.forName(SERVER_NAME).build();
+        try {
+            GreeterGrpc.GreeterBlockingStub stub = GreeterGrpc.newBlockingStub(channel);
+            List<HelloRequest> requests = Arrays.asList(
+                    HelloRequest.newBuilder().setName("A").build(),
+                    HelloRequest.newBuilder().setName("").build());
+
+            Throwable thrown = catchThrowable(() -> new GrpcFanOut(executor).invokeAll(requests, stub::sayHello));
+
+            assertThat(thrown).isInstanceOf(StatusRuntimeException.class);
+            assertThat(((StatusRuntimeException) thrown).getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        } finally {
+            channel.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fanOutFailFastTest() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ManagedChannel channel = InProcessChannelBuilder.forName(SERVER_NAME).build();
+        try {
+            GreeterGrpc.GreeterBlockingStub stub = GreeterGrpc.newBlockingStub(channel);
+            List<HelloRequest> requests = Arrays.asList(
+                    HelloRequest.newBuilder().setName("slow").build(),
+                    HelloRequest.newBuilder().setName("").build());
+
+            Throwable thrown = catchThrowable(() -> new GrpcFanOut(executor).invokeAll(requests, stub::sayHello));
+
+            // The later failure cancels the first call, without waiting for it
+            assertThat(((StatusRuntimeException) thrown).getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+            assertThat(slowReleased.getCount()).isEqualTo(1);
+            assertThat(slowCancelled.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            channel.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package codes.sf.springboot.grpc.client.test;
+
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.stub.StreamObserver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.testWithServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileNameResolverTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fileTargetTest() throws Exception {
+        Path endpoints = writeEndpoints("# greeter servers\n\nlocalhost:2021\n");
+
+        testWithServer(2021, runner -> runner
+                .withPropertyValues("grpc.client.target=file://" + endpoints)
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+
+    @Test
+    public void hotReloadTest() throws Exception {
+        Path endpoints = writeEndpoints("localhost:2022\n");
+        Server first = ServerBuilder.forPort(2022).addService(new NamedGreeterService("first")).build().start();
+        Server second = ServerBuilder.forPort(2023).addService(new NamedGreeterService("second")).build().start();
+
+        try {
+            test(runner -> runner
+                    .withPropertyValues("grpc.client.target=file://" + endpoints)
+                    .run(context -> {
+                        GreeterGrpc.GreeterBlockingStub stub = context.getBean(GreeterGrpc.GreeterBlockingStub.class);
+                        assertEquals("first", sayHello(stub));
+
+                        writeEndpoints("localhost:2023\n");
+
+                        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                        String server = sayHello(stub);
+                        while (!"second".equals(server) && System.nanoTime() < deadline) {
+                            Thread.sleep(50);
+                            server = sayHello(stub);
+                        }
+                        assertEquals("second", server);
+                    })
+            );
+        } finally {
+            first.shutdownNow();
+            second.shutdownNow();
+        }
+
+        assertTrue(first.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(second.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void invalidUpdateTest() throws Exception {
+        Path endpoints = writeEndpoints("localhost:2031\n");
+        Server first = ServerBuilder.forPort(2031).addService(new NamedGreeterService("first")).build().start();
+        Server second = ServerBuilder.forPort(2032).addService(new NamedGreeterService("second")).build().start();
+
+        try {
+            test(runner -> runner
+                    .withPropertyValues("grpc.client.target=file://" + endpoints)
+                    .run(context -> {
+                        GreeterGrpc.GreeterBlockingStub stub = context.getBean(GreeterGrpc.GreeterBlockingStub.class);
+                        assertEquals("first", sayHello(stub));
+
+                        // Neither update has a valid address, the channel keeps its connection
+                        writeEndpoints("localhost:abc\n");
+                        Thread.sleep(500);
+                        assertEquals("first", sayHello(stub));
+                        writeEndpoints("");
+                        Thread.sleep(500);
+                        assertEquals("first", sayHello(stub));
+
+                        // The watcher is still running, and skips the invalid line
+                        writeEndpoints("localhost:abc\nlocalhost:2032\n");
+
+                        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                        String server = sayHello(stub);
+                        while (!"second".equals(server) && System.nanoTime() < deadline) {
+                            Thread.sleep(50);
+                            server = sayHello(stub);
+                        }
+                        assertEquals("second", server);
+                    })
+            );
+        } finally {
+            first.shutdownNow();
+            second.shutdownNow();
+        }
+
+        assertTrue(first.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(second.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static String sayHello(GreeterGrpc.GreeterBlockingStub stub) {
+        return stub.sayHello(HelloRequest.newBuilder().setName("file").build()).getMessage();
+    }
+
+    // Replace the file atomically, the way an agent would
+    private Path writeEndpoints(String content) throws IOException {
+        Path endpoints = folder.getRoot().toPath().resolve("endpoints");
+        Path tmp = Files.write(folder.getRoot().toPath().resolve("endpoints.tmp"), content.getBytes(StandardCharsets.UTF_8));
+        return Files.move(tmp, endpoints, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class NamedGreeterService extends GreeterGrpc.GreeterImplBase {
+
+        private final String name;
+
+        private NamedGreeterService(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+            responseObserver.onNext(HelloReply.newBuilder().setMessage(name).build());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.channel.GrpcChannelRegistry;
+import io.grpc.Channel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.examples.generated.GreeterGrpc;
+import org.junit.Test;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertSame;
+
+public class GrpcChannelRegistryTests {
+
+    private final Channel defaultChannel = channel(3000);
+    private final Channel namedChannel = channel(3001);
+
+    private static Channel channel(int port) {
+        return ManagedChannelBuilder
+                .forAddress("localhost", port)
+                .usePlaintext()
+                .build();
+    }
+
+    @Test
+    public void unmappedStubTest() {
+        GrpcChannelRegistry registry = new GrpcChannelRegistry(defaultChannel);
+        assertSame(defaultChannel, registry.resolve(GreeterGrpc.GreeterStub.class));
+    }
+
+    @Test
+    public void serviceNameMappingTest() {
+        GrpcChannelRegistry registry = new GrpcChannelRegistry(defaultChannel);
+        registry.register("greeter", namedChannel, singletonList(GreeterGrpc.SERVICE_NAME));
+
+        assertSame(namedChannel, registry.resolve(GreeterGrpc.GreeterStub.class));
+        assertSame(namedChannel, registry.resolve(GreeterGrpc.GreeterBlockingStub.class));
+    }
+
+    @Test
+    public void factoryClassMappingTest() {
+        GrpcChannelRegistry registry = new GrpcChannelRegistry(defaultChannel);
+        registry.register("greeter", namedChannel, singletonList(GreeterGrpc.class.getName()));
+
+        assertSame(namedChannel, registry.resolve(GreeterGrpc.GreeterFutureStub.class));
+    }
+
+    @Test
+    public void stubClassMappingTest() {
+        GrpcChannelRegistry registry = new GrpcChannelRegistry(defaultChannel);
+        registry.register("greeter", namedChannel,
+                singletonList(GreeterGrpc.GreeterBlockingStub.class.getCanonicalName()));
+
+        assertSame(namedChannel, registry.resolve(GreeterGrpc.GreeterBlockingStub.class));
+        assertSame(defaultChannel, registry.resolve(GreeterGrpc.GreeterStub.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void duplicateServiceMappingTest() {
+        GrpcChannelRegistry registry = new GrpcChannelRegistry(defaultChannel);
+        registry.register("greeter1", namedChannel, singletonList(GreeterGrpc.SERVICE_NAME));
+        registry.register("greeter2", channel(3002), singletonList(GreeterGrpc.SERVICE_NAME));
+    }
+}
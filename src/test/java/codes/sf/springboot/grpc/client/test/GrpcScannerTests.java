@@ -2,6 +2,7 @@ package codes.sf.springboot.grpc.client.test;
 
 import codes.sf.springboot.grpc.client.GrpcStubScan;
 import codes.sf.springboot.grpc.client.autoconfigure.GrpcClientAutoConfiguration;
+import codes.sf.springboot.grpc.client.context.GrpcStubIndex;
 import codes.sf.springboot.grpc.client.context.GrpcStubScanner;
 import org.junit.Test;
 import org.springframework.beans.factory.CannotLoadBeanClassException;
@@ -14,6 +15,14 @@ import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.assertj.AssertableApplicationContext;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.grpc.examples.generated.GreeterGrpc.*;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -130,6 +139,97 @@ public class GrpcScannerTests {
     static class ScopedProxyAnnotationConfiguration {
     }
 
+    @Test
+    public void ignoreStubIndexPropertyTest() {
+
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(GrpcClientAutoConfiguration.class))
+                .withPropertyValues(
+                        "grpc.client.scanPackages=io.grpc.examples",
+                        "grpc.client.ignoreStubIndex=true")
+                .run(this::assertHasGreeterStubs);
+    }
+
+    @Test
+    public void stubIndexScanTest() {
+
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        GrpcStubScanner scanner = new GrpcStubScanner(registry);
+        scanner.setStubIndex(GrpcStubIndex.load(getClass().getClassLoader()));
+
+        scanner.scan("io.grpc.examples");
+        assertThat(registry.getBeanNamesForType(GreeterStub.class)).hasSize(1);
+        assertThat(registry.getBeanNamesForType(GreeterBlockingStub.class)).hasSize(1);
+        assertThat(registry.getBeanNamesForType(GreeterFutureStub.class)).hasSize(1);
+    }
+
+    @Test
+    public void stubIndexOnlyPropertyTest() {
+
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(GrpcClientAutoConfiguration.class))
+                .withPropertyValues(
+                        "grpc.client.scanPackages=io.grpc.examples",
+                        "grpc.client.stubIndexOnly=true")
+                .run(this::assertHasGreeterStubs);
+    }
+
+    @Test
+    public void stubIndexOnlyScanTest() {
+
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        GrpcStubScanner scanner = new GrpcStubScanner(registry);
+        scanner.setStubIndex(GrpcStubIndex.load(getClass().getClassLoader()));
+        scanner.setIndexOnly(true);
+
+        scanner.scan("io.grpc.examples", "codes.sf.springboot.grpc.client.test");
+        assertThat(scanner.getClassesInspected()).isZero();
+        assertThat(scanner.getStubsRegistered()).isEqualTo(5);
+        assertThat(registry.getBeanNamesForType(GreeterStub.class)).containsExactly("greeterGrpc.GreeterStub");
+        assertThat(registry.getBeanNamesForType(GreeterBlockingStub.class)).hasSize(1);
+        assertThat(registry.getBeanNamesForType(GreeterFutureStub.class)).hasSize(1);
+    }
+
+    @Test
+    public void scanParallelismPropertyTest() {
+
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(GrpcClientAutoConfiguration.class))
+                .withPropertyValues(
+                        "grpc.client.scanPackages=io.grpc.stub,io.grpc.examples,codes.sf.springboot.grpc.client.test",
+                        "grpc.client.scanParallelism=3")
+                .run(this::assertHasGreeterStubs);
+    }
+
+    @Test
+    public void parallelScanOrderTest() {
+
+        String[] basePackages = {"io.grpc.examples.generated", "io.grpc.stub", "io.grpc.examples"};
+
+        DefaultListableBeanFactory sequentialRegistry = new DefaultListableBeanFactory();
+        new GrpcStubScanner(sequentialRegistry).scan(basePackages);
+
+        DefaultListableBeanFactory parallelRegistry = new DefaultListableBeanFactory();
+        GrpcStubScanner parallelScanner = new GrpcStubScanner(parallelRegistry);
+        parallelScanner.setScanParallelism(3);
+        parallelScanner.scan(basePackages);
+
+        assertThat(parallelRegistry.getBeanDefinitionNames()).containsExactly(sequentialRegistry.getBeanDefinitionNames());
+        assertThat(parallelRegistry.getBeanNamesForType(GreeterStub.class)).hasSize(1);
+    }
+
+    @Test
+    public void parallelScanReadsConcurrentlyTest() {
+
+        ConcurrentReadsResolver resolver = new ConcurrentReadsResolver();
+        GrpcStubScanner scanner = new GrpcStubScanner(new DefaultListableBeanFactory());
+        scanner.setResourceLoader(resolver);
+        scanner.setScanParallelism(2);
+        scanner.scan("io.grpc.stub", "io.grpc.examples");
+
+        assertThat(resolver.maxConcurrentReads).hasValue(2);
+    }
+
     //////
 
     private void assertHasGreeterStubs(AssertableApplicationContext context) {
@@ -156,6 +256,55 @@ public class GrpcScannerTests {
         scanner.scan("io.grpc.examples");
     }
 
+    /**
+     * Slows down class file reads until two of them overlap.
+     */
+    static class ConcurrentReadsResolver extends PathMatchingResourcePatternResolver {
+
+        private final AtomicInteger concurrentReads = new AtomicInteger();
+        private final AtomicInteger maxConcurrentReads = new AtomicInteger();
+
+        @Override
+        public Resource[] getResources(String locationPattern) throws IOException {
+            // Root directories are resolved through here too
+            if (!locationPattern.endsWith(".class"))
+                return super.getResources(locationPattern);
+            return Arrays.stream(super.getResources(locationPattern))
+                    .map(SlowResource::new)
+                    .toArray(Resource[]::new);
+        }
+
+        class SlowResource extends AbstractResource {
+
+            private final Resource resource;
+
+            SlowResource(Resource resource) {
+                this.resource = resource;
+            }
+
+            @Override
+            public String getDescription() {
+                return resource.getDescription();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                int reads = concurrentReads.incrementAndGet();
+                maxConcurrentReads.accumulateAndGet(reads, Math::max);
+                try {
+                    if (maxConcurrentReads.get() < 2)
+                        Thread.sleep(10);
+                    return resource.getInputStream();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                } finally {
+                    concurrentReads.decrementAndGet();
+                }
+            }
+        }
+    }
+
     static class BrokenGrpcStubScanner extends GrpcStubScanner {
         public BrokenGrpcStubScanner(BeanDefinitionRegistry registry) {
             super(registry);
@@ -0,0 +1,187 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.context.GrpcStubFactories;
+import codes.sf.springboot.grpc.client.context.GrpcStubIndex;
+import codes.sf.springboot.grpc.client.processor.GrpcStubIndexProcessor;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.Channel;
+import io.grpc.stub.AbstractStub;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.CheckReturnValue;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compiles a service class with the {@link GrpcStubIndexProcessor}, the
+ * way a project generating stubs would.
+ */
+public class GrpcStubIndexProcessorTests {
+
+    private static final String ECHO_GRPC_SOURCE = ""
+            + "package echo;\n"
+            + "\n"
+            + "public final class EchoGrpc {\n"
+            + "\n"
+            + "    public static final String SERVICE_NAME = \"Echo\";\n"
+            + "\n"
+            + "    @io.grpc.stub.annotations.RpcMethod(fullMethodName = \"Echo/Echo\", requestType = String.class,\n"
+            + "            responseType = String.class, methodType = io.grpc.MethodDescriptor.MethodType.UNARY)\n"
+            + "    public static io.grpc.MethodDescriptor<String, String> getEchoMethod() {\n"
+            + "        return null;\n"
+            + "    }\n"
+            + "\n"
+            + "    public static EchoStub newStub(io.grpc.Channel channel) {\n"
+            + "        return new EchoStub(channel, io.grpc.CallOptions.DEFAULT);\n"
+            + "    }\n"
+            + "\n"
+            + "    public static final class EchoStub extends io.grpc.stub.AbstractStub<EchoStub> {\n"
+            + "\n"
+            + "        private EchoStub(io.grpc.Channel channel, io.grpc.CallOptions callOptions) {\n"
+            + "            super(channel, callOptions);\n"
+            + "        }\n"
+            + "\n"
+            + "        @Override\n"
+            + "        protected EchoStub build(io.grpc.Channel channel, io.grpc.CallOptions callOptions) {\n"
+            + "            return new EchoStub(channel, callOptions);\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final String OTHER_SOURCE = ""
+            + "package other;\n"
+            + "\n"
+            + "public final class Other {\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void disabledTest() throws IOException {
+        // Found on the compile classpath of any project, without the option it leaves it alone
+        File output = folder.newFolder();
+        compile(output, classpathOf(Channel.class, AbstractStub.class, CheckReturnValue.class,
+                ListenableFuture.class, GrpcStubFactories.class), false, "echo/EchoGrpc.java", ECHO_GRPC_SOURCE);
+
+        assertThat(new File(output, "echo/EchoGrpc$EchoStub.class")).exists();
+        assertThat(new File(output, GrpcStubIndex.INDEX_LOCATION)).doesNotExist();
+        assertThat(new File(output, GrpcStubIndexProcessor.REFLECT_CONFIG_LOCATION)).doesNotExist();
+        assertThat(new File(output, "echo/EchoGrpc" + GrpcStubFactories.CLASS_NAME_SUFFIX + ".class")).doesNotExist();
+        assertThat(new File(output, "echo/CompletableEchoGrpc.class")).doesNotExist();
+    }
+
+    @Test
+    public void incrementalTest() throws IOException {
+        File output = compile(classpathOf(Channel.class, AbstractStub.class, CheckReturnValue.class));
+        String classpath = classpathOf(Channel.class, AbstractStub.class, CheckReturnValue.class)
+                + File.pathSeparator + output.getPath();
+
+        // Stubs that weren't recompiled are kept
+        compile(output, classpath, true, "other/Other.java", OTHER_SOURCE);
+        assertThat(read(output, GrpcStubIndex.INDEX_LOCATION)).contains("echo.EchoGrpc$EchoStub=echo.EchoGrpc");
+
+        // Deleted ones are dropped
+        File[] echoClasses = new File(output, "echo").listFiles();
+        assertThat(echoClasses).isNotEmpty();
+        for (File echoClass : echoClasses)
+            assertThat(echoClass.delete()).isTrue();
+        compile(output, classpath, true, "other/Other.java", OTHER_SOURCE);
+        assertThat(read(output, GrpcStubIndex.INDEX_LOCATION)).doesNotContain("EchoStub");
+        assertThat(read(output, GrpcStubIndexProcessor.REFLECT_CONFIG_LOCATION)).doesNotContain("EchoStub");
+    }
+
+    @Test
+    public void processorPathOnlyTest() throws IOException {
+        // Only gRPC on the compile classpath, the library is on the processor path
+        File output = compile(classpathOf(Channel.class, AbstractStub.class, CheckReturnValue.class));
+
+        assertThat(new File(output, "echo/EchoGrpc$EchoStub.class")).exists();
+        assertThat(read(output, GrpcStubIndex.INDEX_LOCATION)).contains("echo.EchoGrpc$EchoStub=echo.EchoGrpc");
+        assertThat(new File(output, "echo/EchoGrpc" + GrpcStubFactories.CLASS_NAME_SUFFIX + ".class")).doesNotExist();
+        assertThat(new File(output, "echo/CompletableEchoGrpc.class")).doesNotExist();
+        assertThat(new File(output, "echo/ReactorEchoGrpc.class")).doesNotExist();
+
+        // Stubs are created by their factory methods instead
+        assertThat(read(output, GrpcStubIndexProcessor.REFLECT_CONFIG_LOCATION))
+                .doesNotContain(GrpcStubFactories.CLASS_NAME_SUFFIX)
+                .contains("{\"name\": \"echo.EchoGrpc\", \"allPublicMethods\": true, "
+                        + "\"fields\": [{\"name\": \"SERVICE_NAME\"}]}");
+    }
+
+    @Test
+    public void compileClasspathTest() throws IOException {
+        File output = compile(classpathOf(Channel.class, AbstractStub.class, CheckReturnValue.class,
+                ListenableFuture.class, GrpcStubFactories.class));
+
+        assertThat(new File(output, "echo/EchoGrpc" + GrpcStubFactories.CLASS_NAME_SUFFIX + ".class")).exists();
+        assertThat(new File(output, "echo/CompletableEchoGrpc.class")).exists();
+
+        // Reactor isn't on the compile classpath
+        assertThat(new File(output, "echo/ReactorEchoGrpc.class")).doesNotExist();
+
+        assertThat(read(output, GrpcStubIndexProcessor.REFLECT_CONFIG_LOCATION))
+                .contains("\"echo.EchoGrpc" + GrpcStubFactories.CLASS_NAME_SUFFIX + "\"");
+    }
+
+    private File compile(String classpath) throws IOException {
+        File output = folder.newFolder();
+        compile(output, classpath, true, "echo/EchoGrpc.java", ECHO_GRPC_SOURCE);
+        return output;
+    }
+
+    private void compile(File output, String classpath, boolean enabled, String path, String content) throws IOException {
+        File source = new File(folder.newFolder(), path);
+        assertThat(source.getParentFile().mkdirs()).isTrue();
+        Files.write(source.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        List<String> options = new ArrayList<>(Arrays.asList("-classpath", classpath, "-d", output.getPath()));
+        if (enabled)
+            options.add("-A" + GrpcStubIndexProcessor.ENABLED_OPTION + "=true");
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    options, null, fileManager.getJavaFileObjects(source));
+            task.setProcessors(Collections.singletonList(new GrpcStubIndexProcessor()));
+
+            boolean compiled = task.call();
+
+            List<String> errors = diagnostics.getDiagnostics().stream()
+                    .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    .map(Object::toString)
+                    .collect(Collectors.toList());
+            assertThat(errors).isEmpty();
+            assertThat(compiled).isTrue();
+        }
+    }
+
+    private static String classpathOf(Class<?>... classes) {
+        return Arrays.stream(classes)
+                .map(clazz -> clazz.getProtectionDomain().getCodeSource().getLocation().getPath())
+                .distinct()
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static String read(File output, String location) throws IOException {
+        return new String(Files.readAllBytes(new File(output, location).toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.context.GrpcStubFactories;
+import codes.sf.springboot.grpc.client.context.GrpcStubIndex;
+import codes.sf.springboot.grpc.client.processor.GrpcStubIndexProcessor;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.examples.generated.CompletableGreeterGrpc;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.ReactorGreeterGrpc;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GrpcStubIndexTests {
+
+    private final GrpcStubIndex index = GrpcStubIndex.load(getClass().getClassLoader());
+
+    @Test
+    public void indexedStubTest() {
+        assertThat(index).isNotNull();
+        assertThat(index.isStub(classFile(GreeterGrpc.GreeterBlockingStub.class))).isTrue();
+        assertThat(index.isStub(classFile(GreeterGrpc.GreeterStub.class))).isTrue();
+    }
+
+    @Test
+    public void indexedRootTest() {
+        assertThat(index.isStub(classFile(GreeterGrpc.class))).isFalse();
+        assertThat(index.isStub(classFile(GreeterService.class))).isFalse();
+    }
+
+    @Test
+    public void unindexedRootTest() {
+        // Classes of jars compiled without the index processor
+        assertThat(index.isStub(classFile(io.grpc.stub.AbstractStub.class))).isNull();
+        assertThat(index.isStub(new FileSystemResource(new File("Unknown.class")))).isNull();
+    }
+
+    @Test
+    public void stubClassNamesTest() {
+        assertThat(index.getStubClassNames()).containsExactly(
+                CompletableGreeterGrpc.CompletableGreeterStub.class.getName(),
+                GreeterGrpc.GreeterBlockingStub.class.getName(),
+                GreeterGrpc.GreeterFutureStub.class.getName(),
+                GreeterGrpc.GreeterStub.class.getName(),
+                ReactorGreeterGrpc.ReactorGreeterStub.class.getName());
+    }
+
+    @Test
+    public void generatedFactoriesTest() throws Exception {
+        Class<?> factoriesClass = Class.forName(GreeterGrpc.class.getName() + GrpcStubFactories.CLASS_NAME_SUFFIX);
+        GrpcStubFactories factories = (GrpcStubFactories) factoriesClass.newInstance();
+
+        ManagedChannel channel = ManagedChannelBuilder.forTarget("localhost:1").usePlaintext().build();
+        try {
+            assertThat(factories.getFactory(GreeterGrpc.GreeterStub.class).apply(channel))
+                    .isInstanceOf(GreeterGrpc.GreeterStub.class);
+            assertThat(factories.getFactory(GreeterGrpc.GreeterBlockingStub.class).apply(channel))
+                    .isInstanceOf(GreeterGrpc.GreeterBlockingStub.class);
+            assertThat(factories.getFactory(GreeterGrpc.GreeterFutureStub.class).apply(channel))
+                    .isInstanceOf(GreeterGrpc.GreeterFutureStub.class);
+            assertThat(factories.getFactory(GreeterService.class)).isNull();
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reflectConfigTest() throws IOException {
+        String reflectConfig;
+        try (InputStream in = new ClassPathResource(GrpcStubIndexProcessor.REFLECT_CONFIG_LOCATION).getInputStream()) {
+            reflectConfig = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+
+        assertThat(reflectConfig)
+                .contains("\"" + GreeterGrpc.GreeterBlockingStub.class.getName() + "\"")
+                .contains("\"" + GreeterGrpc.class.getName() + GrpcStubFactories.CLASS_NAME_SUFFIX + "\"")
+                .contains("{\"name\": \"" + GreeterGrpc.class.getName()
+                        + "\", \"fields\": [{\"name\": \"SERVICE_NAME\"}]}");
+    }
+
+    private static Resource classFile(Class<?> clazz) {
+        return new ClassPathResource(clazz.getName().replace('.', '/') + ".class");
+    }
+}
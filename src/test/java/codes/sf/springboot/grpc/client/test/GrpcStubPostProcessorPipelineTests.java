@@ -0,0 +1,101 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.GrpcStubPostProcessor;
+import codes.sf.springboot.grpc.client.stubpostprocess.GenericGrpcStubPostProcessor;
+import codes.sf.springboot.grpc.client.stubpostprocess.GenericGrpcStubPostProcessorAdapter;
+import codes.sf.springboot.grpc.client.stubpostprocess.GrpcStubPostProcessorPipeline;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.AbstractStub;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.grpc.examples.generated.GreeterGrpc.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class GrpcStubPostProcessorPipelineTests {
+
+    private static final CallOptions.Key<String> orderKey = CallOptions.Key.create("orderKey");
+
+    private final ManagedChannel channel = ManagedChannelBuilder.forTarget("localhost:1").usePlaintext().build();
+
+    @After
+    public void shutdown() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    public void supportsStubTypeOncePerStubTypeTest() {
+
+        AtomicInteger supportsCalls = new AtomicInteger();
+        GenericGrpcStubPostProcessor processor = new GenericGrpcStubPostProcessor() {
+            @Override
+            public boolean supportsStubType(Class<? extends AbstractStub> stubClass) {
+                supportsCalls.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public AbstractStub postProcess(AbstractStub stub) {
+                return stub.withOption(orderKey, "processed");
+            }
+        };
+        GrpcStubPostProcessorPipeline pipeline = new GrpcStubPostProcessorPipeline(Collections.singletonList(processor));
+
+        assertEquals("processed", pipeline.postProcess(newStub(channel)).getCallOptions().getOption(orderKey));
+        assertEquals("processed", pipeline.postProcess(newStub(channel)).getCallOptions().getOption(orderKey));
+        assertEquals(1, supportsCalls.get());
+
+        pipeline.postProcess(newBlockingStub(channel));
+        assertEquals(2, supportsCalls.get());
+    }
+
+    @Test
+    public void orderAndStubTypeTest() {
+
+        GrpcStubPostProcessorPipeline pipeline = new GrpcStubPostProcessorPipeline(Arrays.asList(
+                new GenericGrpcStubPostProcessorAdapter(appending("a")),
+                new GenericGrpcStubPostProcessorAdapter(new BlockingStubOnlyProcessor()),
+                new GenericGrpcStubPostProcessorAdapter(appending("c"))
+        ));
+
+        assertEquals("ac", pipeline.postProcess(newStub(channel)).getCallOptions().getOption(orderKey));
+        assertEquals("abc", pipeline.postProcess(newBlockingStub(channel)).getCallOptions().getOption(orderKey));
+    }
+
+    @Test
+    public void emptyPipelineTest() {
+
+        GrpcStubPostProcessorPipeline pipeline = new GrpcStubPostProcessorPipeline(Collections.emptyList());
+
+        GreeterStub stub = newStub(channel);
+        assertSame(stub, pipeline.postProcess(stub));
+        assertNull(stub.getCallOptions().getOption(orderKey));
+    }
+
+    // Raw, as it applies to every stub type
+    @SuppressWarnings("unchecked")
+    private static GrpcStubPostProcessor appending(String value) {
+        return stub -> stub.withOption(orderKey, orderOf(stub) + value);
+    }
+
+    private static String orderOf(AbstractStub<?> stub) {
+        String order = stub.getCallOptions().getOption(orderKey);
+        return (order != null) ? order : "";
+    }
+
+    static class BlockingStubOnlyProcessor implements GrpcStubPostProcessor<GreeterBlockingStub> {
+        @Override
+        public GreeterBlockingStub postProcess(GreeterBlockingStub stub) {
+            return stub.withOption(orderKey, orderOf(stub) + "b");
+        }
+    }
+}
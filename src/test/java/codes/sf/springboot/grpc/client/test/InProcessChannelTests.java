@@ -0,0 +1,57 @@
+package codes.sf.springboot.grpc.client.test;
+
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+
+public class InProcessChannelTests {
+
+    private static final String SERVER_NAME = "InProcessChannelTests";
+
+    private Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = InProcessServerBuilder.forName(SERVER_NAME)
+                .addService(new GreeterService())
+                .build()
+                .start();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdownNow();
+    }
+
+    @Test
+    public void inProcessTargetTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+
+    @Test
+    public void inProcessServerNameTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.inProcessServerName=" + SERVER_NAME)
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+
+    @Test
+    public void pooledInProcessTargetTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=in-process:" + SERVER_NAME,
+                        "grpc.client.pool.maxSize=4")
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+}
@@ -0,0 +1,103 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.GrpcChannelSource;
+import codes.sf.springboot.grpc.client.GrpcStubScan;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import org.junit.Test;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.assertj.AssertableApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.testWithServer;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LazyStubTests {
+
+    @Test
+    public void lazyStubsPropertyTest() {
+        testWithServer(2025, runner -> runner
+                .withUserConfiguration(CountingChannelSourceConfiguration.class)
+                .withPropertyValues("grpc.client.lazyStubs=true")
+                .run(context -> {
+                    AtomicInteger resolves = context.getBean(CountingChannelSourceConfiguration.class).resolves;
+
+                    assertThat(isLazyInit(context)).isTrue();
+                    assertThat(resolves).hasValue(0);
+
+                    // Creating the stub doesn't resolve its channel yet
+                    GreeterGrpc.GreeterBlockingStub stub = context.getBean(GreeterGrpc.GreeterBlockingStub.class);
+                    assertThat(resolves).hasValue(0);
+
+                    stub.sayHello(HelloRequest.newBuilder().setName("lazy").build());
+                    stub.sayHello(HelloRequest.newBuilder().setName("lazy").build());
+                    assertThat(resolves).hasValue(1);
+
+                    GrpcTestUtils.assertStubsWork(context);
+                })
+        );
+    }
+
+    @Test
+    public void eagerStubsTest() {
+        test(runner -> runner
+                .withUserConfiguration(CountingChannelSourceConfiguration.class)
+                .run(context -> {
+                    AtomicInteger resolves = context.getBean(CountingChannelSourceConfiguration.class).resolves;
+
+                    assertThat(isLazyInit(context)).isFalse();
+                    context.getBean(GreeterGrpc.GreeterBlockingStub.class);
+                    assertThat(resolves).hasValue(1);
+                })
+        );
+    }
+
+    @Test
+    public void lazyInitAnnotationTest() {
+        test(runner -> runner
+                .withUserConfiguration(LazyInitAnnotationConfiguration.class)
+                .run(context -> assertThat(isLazyInit(context)).isTrue())
+        );
+    }
+
+    private static boolean isLazyInit(AssertableApplicationContext context) {
+        ConfigurableListableBeanFactory beanFactory =
+                ((ConfigurableApplicationContext) context.getSourceApplicationContext()).getBeanFactory();
+        return beanFactory.getBeanDefinition("greeterGrpc.GreeterBlockingStub").isLazyInit();
+    }
+
+    @GrpcStubScan(basePackages = "io.grpc.examples", lazyInit = true)
+    static class LazyInitAnnotationConfiguration {
+    }
+
+    @Configuration
+    static class CountingChannelSourceConfiguration {
+
+        private final AtomicInteger resolves = new AtomicInteger();
+
+        private final ManagedChannel channel = ManagedChannelBuilder
+                .forAddress("localhost", 2025)
+                .usePlaintext()
+                .build();
+
+        @Bean
+        public GrpcChannelSource countingGrpcChannelSource() {
+            return stubClass -> {
+                resolves.incrementAndGet();
+                return channel;
+            };
+        }
+
+        @Bean
+        public AutoCloseable countingChannelShutdown() {
+            return channel::shutdownNow;
+        }
+    }
+}
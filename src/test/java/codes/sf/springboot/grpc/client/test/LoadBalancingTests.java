@@ -0,0 +1,144 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.channel.StaticNameResolverProvider;
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.stub.StreamObserver;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.testWithServer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LoadBalancingTests {
+
+    @Test
+    public void roundRobinAddressesTest() throws Exception {
+
+        CountingGreeterService first = new CountingGreeterService();
+        CountingGreeterService second = new CountingGreeterService();
+        Server firstServer = ServerBuilder.forPort(2016).addService(first).build().start();
+        Server secondServer = ServerBuilder.forPort(2017).addService(second).build().start();
+
+        try {
+            test(runner -> runner
+                    .withPropertyValues(
+                            "grpc.client.addresses=localhost:2016,localhost:2017",
+                            "grpc.client.loadBalancingPolicy=round_robin")
+                    .run(context -> {
+                        GreeterGrpc.GreeterBlockingStub stub = context.getBean(GreeterGrpc.GreeterBlockingStub.class);
+                        for (int i = 0; i < 20; i++)
+                            stub.sayHello(HelloRequest.newBuilder().setName("lb").build());
+                    })
+            );
+        } finally {
+            firstServer.shutdownNow();
+            secondServer.shutdownNow();
+        }
+
+        assertTrue(firstServer.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(secondServer.awaitTermination(5, TimeUnit.SECONDS));
+        assertThat(first.calls.get()).isPositive();
+        assertThat(second.calls.get()).isPositive();
+    }
+
+    @Test
+    public void dnsRefreshIntervalTest() {
+        testWithServer(2018, runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=dns:///localhost:2018",
+                        "grpc.client.dnsRefreshInterval=1s")
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+
+    @Test
+    public void namedChannelAddressesTest() {
+        testWithServer(2019, runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:1",
+                        "grpc.client.channels.greeter.addresses=localhost:2019",
+                        "grpc.client.channels.greeter.services=Greeter")
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+
+    @Test
+    public void ipv6AddressesTest() throws Exception {
+        NameResolver resolver = new StaticNameResolverProvider().newNameResolver(
+                URI.create(StaticNameResolverProvider.target(Arrays.asList("[::1]:2021", "::1", "[::1]", "127.0.0.1:2022"))),
+                Attributes.newBuilder().set(NameResolver.Factory.PARAMS_DEFAULT_PORT, 443).build());
+
+        CompletableFuture<List<EquivalentAddressGroup>> resolved = new CompletableFuture<>();
+        resolver.start(new NameResolver.Listener() {
+            @Override
+            public void onAddresses(List<EquivalentAddressGroup> servers, Attributes attributes) {
+                resolved.complete(servers);
+            }
+
+            @Override
+            public void onError(Status error) {
+                resolved.completeExceptionally(error.asRuntimeException());
+            }
+        });
+
+        try {
+            assertThat(resolved.get(5, TimeUnit.SECONDS))
+                    .extracting(group -> group.getAddresses().get(0))
+                    .containsExactly(
+                            new InetSocketAddress("::1", 2021),
+                            new InetSocketAddress("::1", 443),
+                            new InetSocketAddress("::1", 443),
+                            new InetSocketAddress("127.0.0.1", 2022));
+            assertThat(resolver.getServiceAuthority()).isEqualTo("[::1]:2021");
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void ipv6AddressTest() {
+        testWithServer(2030, runner -> runner
+                .withPropertyValues("grpc.client.addresses=[::1]:2030")
+                .run(GrpcTestUtils::assertStubsWork)
+        );
+    }
+
+    @Test
+    public void unsupportedPolicyTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2020",
+                        "grpc.client.loadBalancingPolicy=weighted")
+                .run(context -> assertThat(context).hasFailed())
+        );
+    }
+
+    private static class CountingGreeterService extends GreeterGrpc.GreeterImplBase {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+            calls.incrementAndGet();
+            responseObserver.onNext(HelloReply.newBuilder().setMessage("Hello " + request.getName()).build());
+            responseObserver.onCompleted();
+        }
+    }
+}
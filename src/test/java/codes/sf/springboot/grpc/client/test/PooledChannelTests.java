@@ -0,0 +1,125 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.channel.PooledChannel;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PooledChannelTests {
+
+    private static final String SERVER_NAME = "PooledChannelTests";
+
+    private Server server;
+    private PooledChannel channel;
+
+    @Before
+    public void setUp() throws IOException {
+        server = InProcessServerBuilder.forName(SERVER_NAME)
+                .addService(new GreeterService())
+                .directExecutor()
+                .build()
+                .start();
+
+        channel = new PooledChannel(
+                () -> InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build(),
+                1, 3, 2, 1);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow();
+        server.shutdownNow();
+        assertTrue(channel.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void scaleUpAndDownTest() {
+
+        assertEquals(1, channel.getSize());
+
+        // Calls without a request stay outstanding on the server
+        List<ClientCall<HelloRequest, HelloReply>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            calls.add(startCall());
+
+        assertEquals(3, channel.getSize());
+        assertEquals(8, channel.getOutstandingCalls());
+
+        for (ClientCall<HelloRequest, HelloReply> call : calls)
+            call.cancel("test", null);
+
+        assertEquals(0, channel.getOutstandingCalls());
+        assertEquals(1, channel.getSize());
+    }
+
+    @Test
+    public void completedCallsTest() {
+
+        GreeterGrpc.GreeterBlockingStub stub = GreeterGrpc.newBlockingStub(channel);
+        for (int i = 0; i < 10; i++) {
+            HelloReply reply = stub.sayHello(HelloRequest.newBuilder().setName("pool" + i).build());
+            assertEquals(GreeterService.expectedSayHello("pool" + i), reply.getMessage());
+        }
+
+        assertEquals(0, channel.getOutstandingCalls());
+        assertEquals(1, channel.getSize());
+    }
+
+    @Test
+    public void createdCallTest() throws Exception {
+
+        List<ClientCall<HelloRequest, HelloReply>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            calls.add(startCall());
+        assertEquals(2, channel.getSize());
+
+        // Counted before it's started, so its channel isn't the one removed when the pool shrinks
+        ClientCall<HelloRequest, HelloReply> created = channel.newCall(GreeterGrpc.getSayHelloMethod(), CallOptions.DEFAULT);
+        assertEquals(3, channel.getSize());
+        assertEquals(5, channel.getOutstandingCalls());
+
+        for (ClientCall<HelloRequest, HelloReply> call : calls)
+            call.cancel("test", null);
+        assertEquals(1, channel.getSize());
+        assertEquals(1, channel.getOutstandingCalls());
+
+        HelloReply reply = ClientCalls.futureUnaryCall(created, HelloRequest.newBuilder().setName("created").build())
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(GreeterService.expectedSayHello("created"), reply.getMessage());
+        assertEquals(0, channel.getOutstandingCalls());
+
+        // Cancelled before it's started
+        channel.newCall(GreeterGrpc.getSayHelloMethod(), CallOptions.DEFAULT).cancel("test", null);
+        assertEquals(0, channel.getOutstandingCalls());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidThresholdsTest() {
+        new PooledChannel(() -> InProcessChannelBuilder.forName(SERVER_NAME).build(), 1, 2, 5, 5);
+    }
+
+    private ClientCall<HelloRequest, HelloReply> startCall() {
+        ClientCall<HelloRequest, HelloReply> call = channel.newCall(GreeterGrpc.getSayHelloMethod(), CallOptions.DEFAULT);
+        call.start(new ClientCall.Listener<HelloReply>() {
+        }, new Metadata());
+        return call;
+    }
+}
@@ -0,0 +1,298 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.reactor.ReactorGrpcClient;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.examples.generated.ReactorGreeterGrpc.ReactorGreeterStub;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReactorStubTests {
+
+    private static final String SERVER_NAME = "ReactorStubTests";
+
+    private static List<Integer> requestLog = new CopyOnWriteArrayList<>();
+
+    private Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        requestLog.clear();
+        server = InProcessServerBuilder.forName(SERVER_NAME)
+                .addService(new StreamingGreeterService())
+                .build()
+                .start();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdownNow();
+    }
+
+    @Test
+    public void unaryTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(ReactorGreeterStub.class);
+                    ReactorGreeterStub stub = context.getBean(ReactorGreeterStub.class);
+
+                    StepVerifier.create(stub.sayHello(request("Mono")))
+                            .expectNextMatches(reply -> reply.getMessage().equals("Hello Mono"))
+                            .verifyComplete();
+                })
+        );
+    }
+
+    @Test
+    public void unaryErrorTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    ReactorGreeterStub stub = context.getBean(ReactorGreeterStub.class);
+
+                    StepVerifier.create(stub.sayHello(request("")))
+                            .expectErrorMatches(e -> e instanceof StatusRuntimeException
+                                    && ((StatusRuntimeException) e).getStatus().getCode() == Status.Code.INVALID_ARGUMENT)
+                            .verify();
+                })
+        );
+    }
+
+    @Test
+    public void serverStreamingDemandTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .withUserConfiguration(RequestLogConfiguration.class)
+                .run(context -> {
+                    ReactorGreeterStub stub = context.getBean(ReactorGreeterStub.class);
+
+                    StepVerifier.create(stub.sayHelloStream(request("Flux")), 2)
+                            .expectNextMatches(reply -> reply.getMessage().equals("Hello F"))
+                            .expectNextMatches(reply -> reply.getMessage().equals("Hello l"))
+                            .thenRequest(2)
+                            .expectNextCount(2)
+                            .verifyComplete();
+
+                    // Requested from the server as the subscriber requested them
+                    assertThat(requestLog).containsExactly(2, 2);
+                })
+        );
+    }
+
+    @Test
+    public void serverStreamingCancelTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    ReactorGreeterStub stub = context.getBean(ReactorGreeterStub.class);
+
+                    StepVerifier.create(stub.sayHelloStream(request("Cancelled")).take(3))
+                            .expectNextCount(3)
+                            .verifyComplete();
+                })
+        );
+    }
+
+    @Test
+    public void clientStreamingTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    ReactorGreeterStub stub = context.getBean(ReactorGreeterStub.class);
+
+                    StepVerifier.create(stub.sayHelloToAll(Flux.just(request("A"), request("B"), request("C"))))
+                            .expectNextMatches(reply -> reply.getMessage().equals("Hello A, B, C"))
+                            .verifyComplete();
+                })
+        );
+    }
+
+    @Test
+    public void bidiStreamingTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    ReactorGreeterStub stub = context.getBean(ReactorGreeterStub.class);
+
+                    Flux<HelloRequest> requests = Flux.range(0, 100).map(i -> request("N" + i));
+                    StepVerifier.create(stub.sayHelloToEach(requests))
+                            .expectNextMatches(reply -> reply.getMessage().equals("Hello N0"))
+                            .expectNextCount(99)
+                            .verifyComplete();
+                })
+        );
+    }
+
+    @Test
+    public void serviceClientTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .withUserConfiguration(ServiceClientUser.class)
+                .run(context -> {
+                    ReactorGrpcClient<GreeterGrpc> client = context.getBean(ServiceClientUser.class).client;
+                    assertThat(client.getServiceName()).isEqualTo(GreeterGrpc.SERVICE_NAME);
+
+                    StepVerifier.create(client.unaryCall(GreeterGrpc.getSayHelloMethod(), request("Mono")))
+                            .expectNext(reply("Mono"))
+                            .verifyComplete();
+                    StepVerifier.create(client.serverStreamingCall(GreeterGrpc.getSayHelloStreamMethod(), request("Flux")))
+                            .expectNext(reply("F"), reply("l"), reply("u"), reply("x"))
+                            .verifyComplete();
+                    StepVerifier.create(client.clientStreamingCall(GreeterGrpc.getSayHelloToAllMethod(),
+                            Flux.just(request("A"), request("B"))))
+                            .expectNext(reply("A, B"))
+                            .verifyComplete();
+                    StepVerifier.create(client.bidiStreamingCall(GreeterGrpc.getSayHelloToEachMethod(),
+                            Flux.just(request("A"), request("B"))))
+                            .expectNext(reply("A"), reply("B"))
+                            .verifyComplete();
+
+                    assertThatThrownBy(() -> client.unaryCall(GreeterGrpc.getSayHelloStreamMethod(), request("Mono")))
+                            .isInstanceOf(IllegalArgumentException.class);
+                })
+        );
+    }
+
+    @Test
+    public void serviceClientLazyTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.target=in-process:" + SERVER_NAME)
+                .run(context -> {
+                    String[] names = context.getBeanNamesForType(
+                            ResolvableType.forClassWithGenerics(ReactorGrpcClient.class, GreeterGrpc.class));
+                    assertThat(names).hasSize(1);
+
+                    // Created, and its stub with it, only when first requested
+                    assertThat(((ConfigurableApplicationContext) context).getBeanFactory().containsSingleton(names[0])).isFalse();
+                    assertThat(context.getBean(names[0])).isInstanceOf(ReactorGrpcClient.class);
+                })
+        );
+    }
+
+    private static HelloRequest request(String name) {
+        return HelloRequest.newBuilder().setName(name).build();
+    }
+
+    private static HelloReply reply(String name) {
+        return HelloReply.newBuilder().setMessage("Hello " + name).build();
+    }
+
+    @Configuration
+    static class ServiceClientUser {
+
+        @Autowired
+        private ReactorGrpcClient<GreeterGrpc> client;
+    }
+
+    @Configuration
+    static class RequestLogConfiguration {
+
+        @Bean
+        public ClientInterceptor requestLogInterceptor() {
+            return new ClientInterceptor() {
+                @Override
+                public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                           CallOptions callOptions, Channel next) {
+                    return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
+                            next.newCall(method, callOptions)) {
+                        @Override
+                        public void request(int numMessages) {
+                            requestLog.add(numMessages);
+                            super.request(numMessages);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private static class StreamingGreeterService extends GreeterGrpc.GreeterImplBase {
+
+        @Override
+        public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+            if (request.getName().isEmpty()) {
+                responseObserver.onError(Status.INVALID_ARGUMENT.asRuntimeException());
+                return;
+            }
+            responseObserver.onNext(reply(request.getName()));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void sayHelloStream(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+            for (char c : request.getName().toCharArray())
+                responseObserver.onNext(reply(String.valueOf(c)));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public StreamObserver<HelloRequest> sayHelloToAll(StreamObserver<HelloReply> responseObserver) {
+            List<String> names = new ArrayList<>();
+            return new StreamObserver<HelloRequest>() {
+                @Override
+                public void onNext(HelloRequest request) {
+                    names.add(request.getName());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onNext(reply(String.join(", ", names)));
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+
+        @Override
+        public StreamObserver<HelloRequest> sayHelloToEach(StreamObserver<HelloReply> responseObserver) {
+            return new StreamObserver<HelloRequest>() {
+                @Override
+                public void onNext(HelloRequest request) {
+                    responseObserver.onNext(reply(request.getName()));
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.autoconfigure.GrpcChannelFactory;
+import codes.sf.springboot.grpc.client.channel.HedgingInterceptor;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class RetryTests {
+
+    @Test
+    public void retryPropertyTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        // Fails the first two calls
+        withServer(2026, (request, responseObserver) -> {
+            if (calls.incrementAndGet() <= 2) {
+                responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                return;
+            }
+            reply(request, responseObserver);
+        }, () -> test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2026",
+                        "grpc.client.retry[Greeter].maxAttempts=3",
+                        "grpc.client.retry[Greeter].initialBackoff=10ms",
+                        "grpc.client.retryBufferSize=1048576")
+                .run(context -> {
+                    HelloReply reply = context.getBean(GreeterGrpc.GreeterBlockingStub.class)
+                            .sayHello(HelloRequest.newBuilder().setName("retry").build());
+
+                    assertThat(reply.getMessage()).contains("retry");
+                    assertThat(calls).hasValue(3);
+                    assertThat(context.getBean(GrpcChannelFactory.class).getRetriedAttempts()).isEqualTo(2);
+                    assertThat(context.getBean(GrpcChannelFactory.class).getHedgedAttempts()).isZero();
+                })
+        ));
+    }
+
+    @Test
+    public void hedgingPropertyTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        // Answers the first call slowly, the others right away
+        withServer(2027, (request, responseObserver) -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            reply(request, responseObserver);
+        }, () -> test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2027",
+                        "grpc.client.hedging[Greeter/SayHello].maxAttempts=2",
+                        "grpc.client.hedging[Greeter/SayHello].hedgingDelay=50ms")
+                .run(context -> {
+                    GreeterGrpc.GreeterBlockingStub stub = context.getBean(GreeterGrpc.GreeterBlockingStub.class);
+
+                    long start = System.nanoTime();
+                    HelloReply reply = stub.sayHello(HelloRequest.newBuilder().setName("hedge").build());
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                    assertThat(reply.getMessage()).contains("hedge");
+                    assertThat(elapsedMillis).isLessThan(1500);
+                    assertThat(context.getBean(GrpcChannelFactory.class).getHedgedAttempts()).isEqualTo(1);
+                })
+        ));
+    }
+
+    @Test
+    public void hedgingNonFatalStatusTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        // Fails the first call
+        withServer(2028, (request, responseObserver) -> {
+            if (calls.incrementAndGet() == 1) {
+                responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                return;
+            }
+            reply(request, responseObserver);
+        }, () -> test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2028",
+                        "grpc.client.hedging[Greeter].maxAttempts=3",
+                        "grpc.client.hedging[Greeter].hedgingDelay=10s",
+                        "grpc.client.hedging[Greeter].nonFatalStatusCodes=UNAVAILABLE")
+                .run(context -> {
+                    HelloReply reply = context.getBean(GreeterGrpc.GreeterBlockingStub.class)
+                            .sayHello(HelloRequest.newBuilder().setName("hedge").build());
+
+                    assertThat(reply.getMessage()).contains("hedge");
+                    assertThat(calls).hasValue(2);
+                    assertThat(context.getBean(GrpcChannelFactory.class).getHedgedAttempts()).isEqualTo(1);
+                })
+        ));
+    }
+
+    @Test
+    public void hedgingListenerTest() throws Exception {
+        Server server = InProcessServerBuilder.forName("RetryTests")
+                .addService(new GreeterGrpc.GreeterImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        reply(request, responseObserver);
+                    }
+                })
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName("RetryTests").build();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            HedgingInterceptor interceptor = new HedgingInterceptor(Collections.singletonMap("Greeter",
+                    new HedgingInterceptor.Policy(2, 10, TimeUnit.SECONDS, Collections.emptySet())), scheduler);
+            ClientCall<HelloRequest, HelloReply> call = ClientInterceptors.intercept(channel, interceptor)
+                    .newCall(GreeterGrpc.getSayHelloMethod(), CallOptions.DEFAULT);
+
+            CompletableFuture<Boolean> usableFromListener = new CompletableFuture<>();
+            CompletableFuture<Status> closed = new CompletableFuture<>();
+            call.start(new ClientCall.Listener<HelloReply>() {
+                @Override
+                public void onMessage(HelloReply message) {
+                    // The listener doesn't run under the call's lock, so other threads can use the call
+                    Thread other = new Thread(call::isReady);
+                    other.start();
+                    try {
+                        other.join(2000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    usableFromListener.complete(!other.isAlive());
+                }
+
+                @Override
+                public void onClose(Status status, Metadata trailers) {
+                    closed.complete(status);
+                }
+            }, new Metadata());
+            call.request(1);
+            call.sendMessage(HelloRequest.newBuilder().setName("hedge").build());
+            call.halfClose();
+
+            assertThat(closed.get(10, TimeUnit.SECONDS).isOk()).isTrue();
+            assertThat(usableFromListener.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            scheduler.shutdownNow();
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void hedgingCancelTest() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Server server = InProcessServerBuilder.forName("RetryTests")
+                .addService(new GreeterGrpc.GreeterImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        // Never replies
+                        attempts.incrementAndGet();
+                    }
+                })
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName("RetryTests").build();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            HedgingInterceptor interceptor = new HedgingInterceptor(Collections.singletonMap("Greeter",
+                    new HedgingInterceptor.Policy(3, 10, TimeUnit.SECONDS,
+                            Collections.singleton(Status.Code.CANCELLED))), scheduler);
+            ClientCall<HelloRequest, HelloReply> call = ClientInterceptors.intercept(channel, interceptor)
+                    .newCall(GreeterGrpc.getSayHelloMethod(), CallOptions.DEFAULT);
+
+            CompletableFuture<Status> closed = new CompletableFuture<>();
+            call.start(new ClientCall.Listener<HelloReply>() {
+                @Override
+                public void onClose(Status status, Metadata trailers) {
+                    closed.complete(status);
+                }
+            }, new Metadata());
+            call.request(1);
+            call.sendMessage(HelloRequest.newBuilder().setName("hedge").build());
+            call.halfClose();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (attempts.get() == 0 && System.nanoTime() < deadline)
+                Thread.sleep(10);
+
+            // A cancelled call sends no further attempts, even though CANCELLED is non-fatal
+            call.cancel("test", null);
+            assertThat(closed.get(10, TimeUnit.SECONDS).getCode()).isEqualTo(Status.Code.CANCELLED);
+            Thread.sleep(100);
+            assertThat(attempts).hasValue(1);
+        } finally {
+            scheduler.shutdownNow();
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    @Test
+    public void hedgingMaxAttemptsTest() {
+        assertThat(catchThrowable(() -> new HedgingInterceptor.Policy(1, 10, TimeUnit.MILLISECONDS,
+                Collections.emptySet()))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void retryAndHedgingConflictTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.retry[Greeter].maxAttempts=3",
+                        "grpc.client.hedging[Greeter].maxAttempts=2")
+                .run(context -> assertThat(context).hasFailed())
+        );
+    }
+
+    @Test
+    public void noRetryTest() {
+        test(runner -> runner
+                .run(context -> {
+                    assertThat(context.getBean(GrpcChannelFactory.class).getRetriedAttempts()).isZero();
+                    assertThat(context.getBean(GrpcChannelFactory.class).getHedgedAttempts()).isZero();
+                })
+        );
+    }
+
+    private static void reply(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+        responseObserver.onNext(HelloReply.newBuilder().setMessage("Hello " + request.getName()).build());
+        responseObserver.onCompleted();
+    }
+
+    private static void withServer(int port, SayHello sayHello, Runnable test) throws IOException, InterruptedException {
+        Server server = ServerBuilder.forPort(port)
+                .addService(new GreeterGrpc.GreeterImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        sayHello.accept(request, responseObserver);
+                    }
+                })
+                .build()
+                .start();
+        try {
+            test.run();
+        } finally {
+            server.shutdownNow().awaitTermination();
+        }
+    }
+
+    private interface SayHello {
+        void accept(HelloRequest request, StreamObserver<HelloReply> responseObserver);
+    }
+}
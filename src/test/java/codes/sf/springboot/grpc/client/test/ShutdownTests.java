@@ -0,0 +1,93 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.autoconfigure.GrpcChannelFactory;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.GreeterOuterClass.HelloReply;
+import io.grpc.examples.generated.GreeterOuterClass.HelloRequest;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.testWithServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShutdownTests {
+
+    @Test
+    public void drainOutstandingCallsTest() throws Exception {
+
+        CompletableFuture<Status> callStatus = new CompletableFuture<>();
+        CompletableFuture<List<ManagedChannel>> channels = new CompletableFuture<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            testWithServer(2014, runner -> runner
+                    .withPropertyValues("grpc.client.target=localhost:2014")
+                    .run(context -> {
+                        GrpcChannelFactory channelFactory = context.getBean(GrpcChannelFactory.class);
+                        channels.complete(channelFactory.getChannels());
+
+                        ClientCall<HelloRequest, HelloReply> call = startCall(context.getBean(GreeterGrpc.GreeterStub.class).getChannel(), callStatus);
+                        assertEquals(1, channelFactory.getOutstandingCalls());
+
+                        // Complete the call while the context is closing
+                        scheduler.schedule(() -> {
+                            call.sendMessage(HelloRequest.newBuilder().setName("drain").build());
+                            call.halfClose();
+                        }, 500, TimeUnit.MILLISECONDS);
+                    })
+            );
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+        assertEquals(Status.Code.OK, callStatus.get(5, TimeUnit.SECONDS).getCode());
+        for (ManagedChannel channel : channels.get())
+            assertTrue(channel.isTerminated());
+    }
+
+    @Test
+    public void drainTimeoutTest() throws Exception {
+
+        CompletableFuture<Status> callStatus = new CompletableFuture<>();
+        CompletableFuture<List<ManagedChannel>> channels = new CompletableFuture<>();
+
+        testWithServer(2015, runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2015",
+                        "grpc.client.drainTimeout=200ms")
+                .run(context -> {
+                    channels.complete(context.getBean(GrpcChannelFactory.class).getChannels());
+                    startCall(context.getBean(GreeterGrpc.GreeterStub.class).getChannel(), callStatus);
+                })
+        );
+
+        assertEquals(Status.Code.UNAVAILABLE, callStatus.get(5, TimeUnit.SECONDS).getCode());
+        for (ManagedChannel channel : channels.get())
+            assertTrue(channel.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    // Calls without a request stay outstanding on the server
+    private static ClientCall<HelloRequest, HelloReply> startCall(Channel channel, CompletableFuture<Status> callStatus) {
+        ClientCall<HelloRequest, HelloReply> call = channel.newCall(GreeterGrpc.getSayHelloMethod(), CallOptions.DEFAULT);
+        call.start(new ClientCall.Listener<HelloReply>() {
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+                callStatus.complete(status);
+            }
+        }, new Metadata());
+        call.request(1);
+        return call;
+    }
+}
@@ -0,0 +1,113 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.context.GrpcStartupRecorder;
+import codes.sf.springboot.grpc.client.context.GrpcStartupRecorder.Event;
+import io.grpc.examples.generated.CompletableGreeterGrpc;
+import io.grpc.examples.generated.GreeterGrpc;
+import io.grpc.examples.generated.ReactorGreeterGrpc;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.boot.test.rule.OutputCapture;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+import java.util.List;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupRecorderTests {
+
+    @Rule
+    public OutputCapture output = new OutputCapture();
+
+    @Test
+    public void scanEventTest() {
+        test(runner -> runner
+                .run(context -> {
+                    assertThat(context).hasSingleBean(GrpcStartupRecorder.class);
+                    GrpcStartupRecorder recorder = context.getBean(GrpcStartupRecorder.class);
+
+                    assertThat(recorder.getEvents(GrpcStartupRecorder.ANNOTATION_PARSING)).hasSize(1);
+
+                    List<Event> scans = recorder.getEvents(GrpcStartupRecorder.SCAN);
+                    assertThat(scans).hasSize(1);
+                    Event scan = scans.get(0);
+                    assertThat(scan.getName()).isEqualTo("io.grpc.examples");
+                    assertThat(scan.getDurationNanos()).isPositive();
+                    assertThat((Integer) scan.getAttributes().get("classesInspected")).isGreaterThanOrEqualTo(3);
+                    assertThat(scan.getAttributes()).containsEntry("stubsRegistered", 5);
+                })
+        );
+    }
+
+    @Test
+    public void stubEventTest() {
+        test(runner -> runner
+                .run(context -> {
+                    GrpcStartupRecorder recorder = context.getBean(GrpcStartupRecorder.class);
+
+                    context.getBean(GreeterGrpc.GreeterStub.class);
+                    context.getBean(GreeterGrpc.GreeterBlockingStub.class);
+                    context.getBean(GreeterGrpc.GreeterFutureStub.class);
+                    context.getBean(ReactorGreeterGrpc.ReactorGreeterStub.class);
+                    context.getBean(CompletableGreeterGrpc.CompletableGreeterStub.class);
+
+                    List<Event> stubs = recorder.getEvents(GrpcStartupRecorder.STUB);
+                    assertThat(stubs).extracting(Event::getName).containsExactlyInAnyOrder(
+                            GreeterGrpc.GreeterStub.class.getName(),
+                            GreeterGrpc.GreeterBlockingStub.class.getName(),
+                            GreeterGrpc.GreeterFutureStub.class.getName(),
+                            ReactorGreeterGrpc.ReactorGreeterStub.class.getName(),
+                            CompletableGreeterGrpc.CompletableGreeterStub.class.getName());
+                    for (Event stub : stubs)
+                        assertThat(stub.getAttributes()).containsKeys("channelResolutionNanos", "postProcessingNanos");
+
+                    List<Event> slowest = recorder.getSlowestStubs(2);
+                    assertThat(slowest).hasSize(2);
+                    assertThat(slowest.get(0).getDurationNanos()).isGreaterThanOrEqualTo(slowest.get(1).getDurationNanos());
+                })
+        );
+    }
+
+    @Test
+    public void logStartupSummaryPropertyTest() {
+        test(runner -> runner
+                .withPropertyValues("grpc.client.logStartupSummary=true")
+                .withUserConfiguration(StubUser.class)
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+
+                    // Only the stub injected during startup is created by then
+                    assertThat(output.toString())
+                            .containsPattern("INFO .*gRPC client startup: scanned \\d+ classes, registered 5 stubs in ")
+                            .contains("; created 1 stubs in ")
+                            .contains("; slowest stubs:\n  " + GreeterGrpc.GreeterBlockingStub.class.getName() + " ");
+                })
+        );
+    }
+
+    @Test
+    public void maxEventsTest() {
+        test(runner -> runner
+                .run(context -> {
+                    GrpcStartupRecorder recorder = context.getBean(GrpcStartupRecorder.class);
+
+                    for (int i = 0; i < GrpcStartupRecorder.MAX_EVENTS + 10; i++)
+                        recorder.record(new Event(GrpcStartupRecorder.STUB, "stub" + i, 1, Collections.emptyMap()));
+
+                    assertThat(recorder.getEvents()).hasSize(GrpcStartupRecorder.MAX_EVENTS);
+                })
+        );
+    }
+
+    @Configuration
+    static class StubUser {
+
+        @Bean
+        public Object stubUser(GreeterGrpc.GreeterBlockingStub stub) {
+            return stub;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package codes.sf.springboot.grpc.client.test;
+
+import codes.sf.springboot.grpc.client.autoconfigure.GrpcChannelFactory;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import org.junit.Test;
+
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.test;
+import static codes.sf.springboot.grpc.client.test.GrpcTestUtils.testWithServer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class WarmupTests {
+
+    @Test
+    public void warmupTest() {
+        testWithServer(2011, runner -> {
+            runner.withPropertyValues(
+                    "grpc.client.target=localhost:2011",
+                    "grpc.client.warmup.enabled=true",
+                    "grpc.client.warmup.healthCheck=true")
+                    .run(context -> {
+                        assertThat(context).hasNotFailed();
+                        assertReady(context.getBean(GrpcChannelFactory.class));
+                        GrpcTestUtils.assertStubsWork(context);
+                    });
+        });
+    }
+
+    @Test
+    public void pooledWarmupTest() {
+        testWithServer(2012, runner -> {
+            runner.withPropertyValues(
+                    "grpc.client.target=localhost:2012",
+                    "grpc.client.pool.minSize=2",
+                    "grpc.client.pool.maxSize=4",
+                    "grpc.client.warmup.enabled=true")
+                    .run(context -> {
+                        assertThat(context).hasNotFailed();
+                        assertReady(context.getBean(GrpcChannelFactory.class));
+                    });
+        });
+    }
+
+    @Test
+    public void warmupTimeoutTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2013",
+                        "grpc.client.warmup.enabled=true",
+                        "grpc.client.warmup.timeout=200ms")
+                .run(context -> assertThat(context).hasNotFailed())
+        );
+    }
+
+    @Test
+    public void warmupFailOnTimeoutTest() {
+        test(runner -> runner
+                .withPropertyValues(
+                        "grpc.client.target=localhost:2013",
+                        "grpc.client.warmup.enabled=true",
+                        "grpc.client.warmup.timeout=200ms",
+                        "grpc.client.warmup.failOnTimeout=true")
+                .run(context -> assertThat(context)
+                        .getFailure()
+                        .hasMessageContaining("is not ready"))
+        );
+    }
+
+    private static void assertReady(GrpcChannelFactory channelFactory) {
+        assertEquals(1, channelFactory.getChannels().size());
+        for (ManagedChannel channel : channelFactory.getChannels())
+            assertEquals(ConnectivityState.READY, channel.getState(false));
+    }
+}